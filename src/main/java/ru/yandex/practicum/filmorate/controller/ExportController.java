@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.ExportService;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+@RestController
+public class ExportController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ExportService exportService;
+    private final Duration timeout;
+
+    @Autowired
+    public ExportController(ExportService exportService,
+                            @Value("${filmorate.export.timeout:1h}") Duration timeout) {
+        this.exportService = exportService;
+        this.timeout = timeout;
+    }
+
+    @GetMapping("/films/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms(HttpServletRequest request) {
+        extendTimeout(request);
+        return ResponseEntity.ok().contentType(NDJSON).body(exportService::exportFilms);
+    }
+
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(HttpServletRequest request) {
+        extendTimeout(request);
+        return ResponseEntity.ok().contentType(NDJSON).body(exportService::exportUsers);
+    }
+
+    /**
+     * Выгрузка может идти дольше общего таймаута асинхронных запросов, поэтому таймаут
+     * продлевается только для неё — до начала асинхронной обработки.
+     */
+    private void extendTimeout(HttpServletRequest request) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportController.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        ((AsyncWebRequest) webRequest).setTimeout(timeout.toMillis());
+                    }
+                });
+    }
+}
@@ -3,9 +3,18 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmDetails;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @Slf4j
@@ -14,42 +23,102 @@ import java.util.List;
 public class FilmController {
 
     private final FilmService filmService;
+    private final JsonSnapshots jsonSnapshots;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, JsonSnapshots jsonSnapshots) {
         this.filmService = filmService;
+        this.jsonSnapshots = jsonSnapshots;
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Вернул список фильмов");
-        return filmService.getAllFilms();
+    public ResponseEntity<List<FilmSummary>> getAllFilms(@RequestParam(required = false) Integer after,
+                                                         @RequestParam(required = false) Integer limit) {
+        log.debug("Вернул список фильмов");
+        return PageResponses.toResponse("/films", filmService.getFilmsPage(after, limit), FilmSummary::of);
+    }
+
+    @GetMapping("/{id}")
+    public FilmDetails getFilm(@PathVariable Integer id) {
+        return filmService.getDetails(filmService.getFilm(id));
+    }
+
+    @GetMapping("/{id}/likes")
+    public ResponseEntity<List<Integer>> getFilmLikes(@PathVariable Integer id,
+                                                      @RequestParam(required = false) Integer after,
+                                                      @RequestParam(required = false) Integer limit) {
+        return PageResponses.toResponse("/films/" + id + "/likes", filmService.getFilmLikes(id, after, limit));
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
-    public Film createFilm(@RequestBody Film film) {
-        return filmService.addNewFilm(film);
+    public FilmDetails createFilm(@RequestBody Film film) {
+        return filmService.getDetails(filmService.addNewFilm(film));
 
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createFilms(@RequestBody List<Film> films) {
+        return filmService.addNewFilms(films);
+    }
+
     @PutMapping
-    public Film updateFilm(@RequestBody Film film) {
-        return filmService.updateFilm(film);
+    public FilmDetails updateFilm(@RequestBody Film film) {
+        return filmService.getDetails(filmService.updateFilm(film));
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void addLike(@PathVariable Integer id, @PathVariable Integer userId) {
-        filmService.addLike(id, userId);
+    public ResponseEntity<Void> addLike(@PathVariable Integer id, @PathVariable Integer userId,
+                                        @RequestParam(required = false) Boolean wait) {
+        return likeResponse(filmService.addLike(id, userId, wait));
+    }
+
+    @PutMapping("/likes")
+    public List<BatchItemResult> addLikes(@RequestBody List<FilmLike> likes) {
+        return filmService.addLikes(likes);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void deleteLike(@PathVariable Integer id, @PathVariable Integer userId) {
-        filmService.removeLike(id, userId);
+    public ResponseEntity<Void> deleteLike(@PathVariable Integer id, @PathVariable Integer userId,
+                                           @RequestParam(required = false) Boolean wait) {
+        return likeResponse(filmService.removeLike(id, userId, wait));
     }
 
     @GetMapping("/popular")
-    public List<Film> getMostPopularFilm(@RequestParam(defaultValue = "10") Integer count) {
-        return filmService.getMostPopularFilms(count);
+    public ResponseEntity<byte[]> getMostPopularFilm(@RequestParam(defaultValue = "10") Integer count,
+                                                     @RequestParam(required = false) String genre,
+                                                     @RequestParam(required = false) String mpa,
+                                                     @RequestParam(required = false) Integer year,
+                                                     WebRequest request) {
+        FilmFilter filter = filmService.popularFilter(genre, mpa, year);
+        return jsonSnapshots.respond(request, popularKey(count, filter),
+                filmService.getPopularVersion(count, filter),
+                () -> FilmSummary.of(filmService.getMostPopularFilms(count, filter)));
+    }
+
+    @GetMapping("/trending")
+    public List<FilmSummary> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                              @RequestParam(defaultValue = "10") Integer count) {
+        return FilmSummary.of(filmService.getTrendingFilms(window, count));
+    }
+
+    @GetMapping("/search")
+    public List<FilmSummary> searchFilms(@RequestParam(required = false) String q,
+                                         @RequestParam(defaultValue = "10") Integer count) {
+        return FilmSummary.of(filmService.searchFilms(q, count));
+    }
+
+    // лайк из асинхронной очереди, которого не дождались, ещё не применён: 202 вместо 200
+    private static ResponseEntity<Void> likeResponse(boolean applied) {
+        return applied ? ResponseEntity.ok().build() : ResponseEntity.accepted().build();
+    }
+
+    private static String popularKey(int count, FilmFilter filter) {
+        if (filter.isEmpty()) {
+            return "popular-" + count;
+        }
+        // ключ попадает в ETag, поэтому жанр кодируется в ASCII без кавычек
+        String genre = filter.genre() == null ? "" : URLEncoder.encode(filter.genre(), StandardCharsets.UTF_8);
+        return "popular-" + count + "-" + genre + "-" + filter.mpa() + "-" + filter.year();
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Модуль Jackson, который хранит готовый JSON сводки каждого фильма и вставляет его в ответ как есть.
+ * Фрагмент сверяется с текущей сводкой фильма, поэтому изменение фильма или его лайков делает фрагмент
+ * недействительным без уведомлений от хранилища, а списки, страницы и поиск сериализуют только изменившиеся
+ * фильмы. Spring Boot регистрирует модуль в общем {@code ObjectMapper}.
+ */
+@Component
+public class FilmJsonFragments extends SimpleModule {
+    private static final int MAX_FRAGMENTS = 100_000;
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final Cache<Integer, Fragment> fragments = Caffeine.newBuilder()
+            .maximumSize(MAX_FRAGMENTS)
+            .build();
+
+    public FilmJsonFragments() {
+        super("film-json-fragments");
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription description,
+                                                      JsonSerializer<?> serializer) {
+                if (description.getBeanClass() != FilmSummary.class) {
+                    return serializer;
+                }
+                return new FragmentSerializer((JsonSerializer<Object>) serializer);
+            }
+        });
+    }
+
+    private record Fragment(FilmSummary summary, SerializedString json) {
+    }
+
+    private class FragmentSerializer extends StdSerializer<FilmSummary> implements ResolvableSerializer {
+        private final JsonSerializer<Object> delegate;
+
+        FragmentSerializer(JsonSerializer<Object> delegate) {
+            super(FilmSummary.class);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer resolvable) {
+                resolvable.resolve(provider);
+            }
+        }
+
+        @Override
+        public void serialize(FilmSummary film, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (film.getId() == null) {
+                delegate.serialize(film, generator, provider);
+                return;
+            }
+            Fragment fragment = fragments.getIfPresent(film.getId());
+            if (fragment == null || !fragment.summary().equals(film)) {
+                fragment = new Fragment(film, render(film, provider));
+                fragments.put(film.getId(), fragment);
+            }
+            generator.writeRawValue(fragment.json());
+        }
+
+        private SerializedString render(FilmSummary film, SerializerProvider provider) throws IOException {
+            StringWriter json = new StringWriter();
+            try (JsonGenerator generator = FACTORY.createGenerator(json)) {
+                delegate.serialize(film, generator, provider);
+            }
+            SerializedString fragment = new SerializedString(json.toString());
+            // UTF-8 кодируется один раз здесь, а не при каждой записи ответа
+            fragment.asUnquotedUTF8();
+            return fragment;
+        }
+    }
+}
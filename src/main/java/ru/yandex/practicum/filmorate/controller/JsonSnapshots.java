@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Условные GET-ответы по версии данных ответа. ETag строится из ключа ответа и версии,
+ * поэтому совпавший {@code If-None-Match} отвечается 304 без вызова сервиса, а сериализованное
+ * тело переиспользуется, пока версия не изменилась.
+ */
+@Component
+public class JsonSnapshots {
+    private static final int MAX_SNAPSHOTS = 10_000;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Snapshot> snapshots = Caffeine.newBuilder()
+            .maximumSize(MAX_SNAPSHOTS)
+            .build();
+
+    @Autowired
+    public JsonSnapshots(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ResponseEntity<byte[]> respond(WebRequest request, String key, VersionStamp version, Supplier<?> body) {
+        String etag = "\"" + key + "-" + version.version() + "\"";
+        if (request.checkNotModified(etag, version.lastModified())) {
+            return null;
+        }
+        Snapshot snapshot = snapshots.getIfPresent(key);
+        if (snapshot == null || snapshot.version() != version.version()) {
+            // версия прочитана до построения тела, поэтому тело не может оказаться старше версии
+            snapshot = new Snapshot(version.version(), serialize(body.get()));
+            snapshots.put(key, snapshot);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .lastModified(version.lastModified())
+                .body(snapshot.json());
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Snapshot(long version, byte[] json) {
+    }
+}
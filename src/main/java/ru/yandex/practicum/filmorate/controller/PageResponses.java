@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.List;
+import java.util.function.Function;
+
+final class PageResponses {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private PageResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(String path, Page<T> page) {
+        return toResponse(path, page, Function.identity());
+    }
+
+    /**
+     * Ответ со страницей, элементы которой отдаются в представлении {@code view}.
+     */
+    static <T, R> ResponseEntity<List<R>> toResponse(String path, Page<T> page, Function<T, R> view) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(HttpHeaders.LINK, String.format("<%s?after=%d&limit=%d>; rel=\"next\"",
+                    path, page.getNextCursor(), page.getLimit()));
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems().stream().map(view).toList());
+    }
+}
@@ -4,8 +4,15 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDetails;
+import ru.yandex.practicum.filmorate.model.UserRecommendation;
+import ru.yandex.practicum.filmorate.model.UserSummary;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
@@ -16,29 +23,42 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final JsonSnapshots jsonSnapshots;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JsonSnapshots jsonSnapshots) {
         this.userService = userService;
+        this.jsonSnapshots = jsonSnapshots;
     }
 
 
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("успешно обработан запрос:GET /users,возвращен список пользователей");
-        return userService.getAllUsers();
+    public ResponseEntity<List<UserSummary>> getAllUsers(@RequestParam(required = false) Integer after,
+                                                         @RequestParam(required = false) Integer limit) {
+        log.debug("успешно обработан запрос:GET /users,возвращен список пользователей");
+        return PageResponses.toResponse("/users", userService.getUsersPage(after, limit), UserSummary::of);
+    }
+
+    @GetMapping("/{id}")
+    public UserDetails getUser(@PathVariable Integer id) {
+        return UserDetails.of(userService.getUser(id));
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
-    public User createNewUser(@Valid @RequestBody User user) {
-        return userService.createNewUser(user);
+    public UserDetails createNewUser(@Valid @RequestBody User user) {
+        return UserDetails.of(userService.createNewUser(user));
 
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createNewUsers(@RequestBody List<User> users) {
+        return userService.createNewUsers(users);
+    }
+
     @PutMapping
-    public User updateUser(@Valid @RequestBody User user) {
-        return userService.updateUser(user);
+    public UserDetails updateUser(@Valid @RequestBody User user) {
+        return UserDetails.of(userService.updateUser(user));
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -46,6 +66,11 @@ public class UserController {
         userService.addUserToFriends(userId, friendId);
     }
 
+    @PutMapping("/friends")
+    public List<BatchItemResult> addFriendships(@RequestBody List<Friendship> friendships) {
+        return userService.addFriendships(friendships);
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFromFriendsList(@PathVariable("id") Integer userId, @PathVariable Integer friendId) {
         userService.removeFriend(userId, friendId);
@@ -53,12 +78,27 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getUsersFriendList(@PathVariable("id") Integer userId) {
-        return userService.getUsersFriendList(userId);
+    public ResponseEntity<byte[]> getUsersFriendList(@PathVariable("id") Integer userId, WebRequest request) {
+        return jsonSnapshots.respond(request, "friends-" + userId, userService.getFriendsVersion(userId),
+                () -> UserSummary.of(userService.getUsersFriendList(userId)));
+    }
+
+    @GetMapping("/{id}/friends/ids")
+    public ResponseEntity<List<Integer>> getFriendIds(@PathVariable("id") Integer userId,
+                                                      @RequestParam(required = false) Integer after,
+                                                      @RequestParam(required = false) Integer limit) {
+        return PageResponses.toResponse("/users/" + userId + "/friends/ids",
+                userService.getFriendIds(userId, after, limit));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<UserRecommendation> getRecommendations(@PathVariable("id") Integer userId,
+                                                       @RequestParam(defaultValue = "10") Integer count) {
+        return userService.getRecommendations(userId, count);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public List<User> getMutualFriends(@PathVariable("id") Integer userId, @PathVariable Integer otherId) {
-        return userService.getMutualFriends(userId, otherId);
+    public List<UserSummary> getMutualFriends(@PathVariable("id") Integer userId, @PathVariable Integer otherId) {
+        return UserSummary.of(userService.getMutualFriends(userId, otherId));
     }
 }
\ No newline at end of file
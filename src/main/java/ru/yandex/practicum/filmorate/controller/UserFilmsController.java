@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users/{id}")
+public class UserFilmsController {
+
+    private final FilmService filmService;
+
+    @Autowired
+    public UserFilmsController(FilmService filmService) {
+        this.filmService = filmService;
+    }
+
+    @GetMapping("/liked-films")
+    public List<FilmSummary> getLikedFilms(@PathVariable("id") Integer userId) {
+        return FilmSummary.of(filmService.getLikedFilms(userId));
+    }
+
+    @GetMapping("/recommended-films")
+    public List<FilmSummary> getRecommendedFilms(@PathVariable("id") Integer userId,
+                                                 @RequestParam(defaultValue = "10") Integer count) {
+        return FilmSummary.of(filmService.getRecommendedFilms(userId, count));
+    }
+}
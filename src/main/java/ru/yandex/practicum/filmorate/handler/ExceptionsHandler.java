@@ -1,31 +1,64 @@
 package ru.yandex.practicum.filmorate.handler;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.ErrorResponse;
 
 @RestControllerAdvice
 public class ExceptionsHandler {
+    private final Counter validationErrors;
+    private final Counter notFoundErrors;
+    private final Counter overloadedErrors;
+    private final Counter serverErrors;
+
+    @Autowired
+    public ExceptionsHandler(MeterRegistry registry) {
+        this.validationErrors = errorCounter(registry, "validation");
+        this.notFoundErrors = errorCounter(registry, "not_found");
+        this.overloadedErrors = errorCounter(registry, "overloaded");
+        this.serverErrors = errorCounter(registry, "internal");
+    }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler
     public ErrorResponse validationExceptionHandler(ValidationException e) {
+        validationErrors.increment();
         return new ErrorResponse("Ошибка валидации данных", e.getMessage());
     }
 
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler
     public ErrorResponse notFoundExceptionHandler(NotFoundException e) {
+        notFoundErrors.increment();
         return new ErrorResponse("запрашиваемый ресурс не найден", e.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler
+    public ErrorResponse overloadedExceptionHandler(OverloadedException e) {
+        overloadedErrors.increment();
+        return new ErrorResponse("сервер перегружен, повторите запрос позже", e.getMessage());
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler
     public ErrorResponse notFoundExceptionHandler(RuntimeException e) {
+        serverErrors.increment();
         return new ErrorResponse("возникла ошибка на сервере", e.getMessage());
     }
+
+    private static Counter errorCounter(MeterRegistry registry, String type) {
+        return Counter.builder("filmorate.errors")
+                .description("Ошибки, обработанные ExceptionsHandler")
+                .tag("type", type)
+                .register(registry);
+    }
 }
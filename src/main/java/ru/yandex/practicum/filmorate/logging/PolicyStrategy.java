@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Стратегия Logbook с политиками по эндпоинтам. Запрос и ответ пишутся одной записью после
+ * ответа, когда известен статус: ошибки логируются всегда, успешные запросы — с заданной
+ * вероятностью, поэтому форматирование тел не происходит на каждом запросе.
+ */
+public class PolicyStrategy implements Strategy {
+    private static final int ERROR_STATUS = 400;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<RequestLoggingProperties.Endpoint> endpoints;
+    private final RequestLogPolicy defaultPolicy;
+    private final double sampleRate;
+
+    public PolicyStrategy(RequestLoggingProperties properties) {
+        this.endpoints = List.copyOf(properties.getEndpoints());
+        this.defaultPolicy = properties.getDefaultPolicy();
+        this.sampleRate = properties.getSampleRate();
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        return policyFor(request) == RequestLogPolicy.OFF ? request.withoutBody() : request.withBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // запрос пишется вместе с ответом, когда станет ясно, нужна ли запись
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        return policyFor(request) == RequestLogPolicy.OFF ? response.withoutBody() : response.withBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        RequestLogPolicy policy = policyFor(request);
+        boolean error = response.getStatus() >= ERROR_STATUS;
+        switch (policy) {
+            case OFF:
+                return;
+            case ERRORS:
+                if (error) {
+                    sink.writeBoth(correlation, request, response);
+                }
+                return;
+            case SAMPLED:
+                if (error) {
+                    sink.writeBoth(correlation, request, response);
+                } else if (sampled()) {
+                    sink.writeBoth(correlation, request.withoutBody(), response.withoutBody());
+                }
+                return;
+            case SAMPLED_WITH_BODY:
+                if (error || sampled()) {
+                    sink.writeBoth(correlation, request, response);
+                }
+                return;
+            default:
+                sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    RequestLogPolicy policyFor(HttpRequest request) {
+        String path = request.getPath();
+        for (RequestLoggingProperties.Endpoint endpoint : endpoints) {
+            if (pathMatcher.match(endpoint.getPath(), path)) {
+                return endpoint.getPolicy();
+            }
+        }
+        return defaultPolicy;
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
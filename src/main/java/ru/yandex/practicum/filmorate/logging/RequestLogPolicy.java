@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.logging;
+
+public enum RequestLogPolicy {
+    /**
+     * Запросы не логируются и тела не буферизуются.
+     */
+    OFF,
+    /**
+     * Логируются только ответы 4xx/5xx, вместе с телами.
+     */
+    ERRORS,
+    /**
+     * Ошибки логируются всегда с телами, успешные запросы — выборочно и без тел.
+     */
+    SAMPLED,
+    /**
+     * Ошибки логируются всегда, успешные запросы — выборочно; тела пишутся в обоих случаях.
+     */
+    SAMPLED_WITH_BODY,
+    /**
+     * Каждый запрос логируется с телами. Только для отладки.
+     */
+    FULL
+}
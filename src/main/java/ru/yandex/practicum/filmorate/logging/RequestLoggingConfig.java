@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.Strategy;
+
+@Configuration
+@EnableConfigurationProperties(RequestLoggingProperties.class)
+public class RequestLoggingConfig {
+
+    @Bean
+    public Strategy logbookStrategy(RequestLoggingProperties properties) {
+        return new PolicyStrategy(properties);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.request-logging")
+public class RequestLoggingProperties {
+    private double sampleRate = 0.01;
+    private RequestLogPolicy defaultPolicy = RequestLogPolicy.SAMPLED;
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Endpoint {
+        private String path;
+        private RequestLogPolicy policy;
+    }
+}
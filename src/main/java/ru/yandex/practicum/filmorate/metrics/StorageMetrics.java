@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Размеры хранилищ и статистика кэшей. Значения снимаются при чтении метрик,
+ * поэтому горячий путь запросов они не затрагивают.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    @Autowired
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::countFilms)
+                .description("Количество фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.likes", filmStorage, FilmStorage::countLikes)
+                .description("Количество лайков")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::countUsers)
+                .description("Количество пользователей")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", userStorage, UserStorage::countFriendships)
+                .description("Количество дружб")
+                .register(registry);
+        if (filmStorage instanceof CachingFilmStorage films) {
+            bindCache(registry, "films", films::getCacheStats);
+        }
+        if (userStorage instanceof CachingUserStorage users) {
+            bindCache(registry, "users", users::getCacheStats);
+        }
+    }
+
+    private void bindCache(MeterRegistry registry, String cache, Supplier<CacheStats> stats) {
+        counter(registry, cache, "hit", stats, CacheStats::hitCount);
+        counter(registry, cache, "miss", stats, CacheStats::missCount);
+        FunctionCounter.builder("filmorate.cache.evictions", stats, s -> s.get().evictionCount())
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String cache, String result, Supplier<CacheStats> stats,
+                         ToDoubleFunction<CacheStats> value) {
+        FunctionCounter.builder("filmorate.cache.gets", stats, s -> value.applyAsDouble(s.get()))
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+}
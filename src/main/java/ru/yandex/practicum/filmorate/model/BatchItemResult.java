@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+
+@Getter
+public class BatchItemResult {
+    private final int index;
+    private final Integer id;
+    private final boolean success;
+    private final String error;
+
+    private BatchItemResult(int index, Integer id, boolean success, String error) {
+        this.index = index;
+        this.id = id;
+        this.success = success;
+        this.error = error;
+    }
+
+    public static BatchItemResult success(int index, Integer id) {
+        return new BatchItemResult(index, id, true, null);
+    }
+
+    public static BatchItemResult failure(int index, String error) {
+        return new BatchItemResult(index, null, false, error);
+    }
+}
@@ -1,9 +1,16 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import ru.yandex.practicum.filmorate.util.DeltaIntSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
 import java.time.LocalDate;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 @Data
 public class Film {
@@ -11,23 +18,62 @@ public class Film {
     private String name;
     private String description;
     private LocalDate releaseDate;
-    private Set<Integer> usersIdLike = new HashSet<>();
-    private Integer likes = 0;
+    private volatile DeltaIntSet usersIdLike = DeltaIntSet.EMPTY;
     private int duration;
     private  HashSet<String> genreOfFilm;
     private MPA raiting;
+    // число лайков, прочитанное без множества их id; -1 — число выводится из множества
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile int likesCount = -1;
+
+    public SortedIntSet getUsersIdLike() {
+        return usersIdLike.toSortedSet();
+    }
+
+    public void setUsersIdLike(SortedIntSet userIds) {
+        usersIdLike = DeltaIntSet.of(userIds == null ? SortedIntSet.EMPTY : userIds);
+        likesCount = -1;
+    }
+
+    /**
+     * Число лайков выводится из множества, поэтому не может с ним разойтись. Исключение — фильм,
+     * прочитанный без множества: у него число задано {@link #setLikesCount(int)}.
+     */
+    public int getLikes() {
+        int count = likesCount;
+        return count >= 0 ? count : usersIdLike.size();
+    }
+
+    /**
+     * Задаёт число лайков фильму, чьё множество id не загружено: так хранилище в БД отдаёт фильмы
+     * для списков и карточек, а сами id читает постранично.
+     */
+    @JsonIgnore
+    public void setLikesCount(int count) {
+        likesCount = count;
+    }
+
+    /**
+     * Страница id поставивших лайк пользователей без сборки всего множества.
+     */
+    public List<Integer> likedAfter(int afterId, int limit) {
+        return usersIdLike.after(afterId, limit);
+    }
+
+    public boolean hasLikeFrom(int userId) {
+        return usersIdLike.contains(userId);
+    }
 
     public void setUserOnLikeList(Integer userId) {
-        if (!usersIdLike.contains(userId)) {
-            usersIdLike.add(userId);
-            likes = usersIdLike.size();
-        }
+        usersIdLike = usersIdLike.with(userId);
     }
 
     public void removeUserOnLikeList(Integer userId) {
-        if (usersIdLike != null && usersIdLike.contains(userId)) {
-            usersIdLike.remove(userId);
-            likes--;
-        }
+        usersIdLike = usersIdLike.without(userId);
+    }
+
+    public void addUsersToLikeList(SortedIntSet userIds) {
+        usersIdLike = usersIdLike.union(userIds);
     }
 }
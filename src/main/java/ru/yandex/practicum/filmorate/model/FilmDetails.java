@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Карточка фильма: число лайков и первые {@link #LIKES_SHOWN} id поставивших их пользователей.
+ * Остальные id отдаются постранично начиная с {@code nextLikeCursor}.
+ */
+@Value
+public class FilmDetails {
+    public static final int LIKES_SHOWN = 100;
+
+    Integer id;
+    String name;
+    String description;
+    LocalDate releaseDate;
+    int duration;
+    Set<String> genreOfFilm;
+    MPA raiting;
+    int likes;
+    List<Integer> likedBy;
+    Integer nextLikeCursor;
+
+    /**
+     * @param likes первые {@code LIKES_SHOWN + 1} id поставивших лайк пользователей
+     */
+    public static FilmDetails of(Film film, List<Integer> likes) {
+        Page<Integer> likedBy = Page.of(likes, LIKES_SHOWN, Integer::intValue);
+        return new FilmDetails(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getGenreOfFilm(), film.getRaiting(), film.getLikes(),
+                likedBy.getItems(), likedBy.getNextCursor());
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Фильтр популярных фильмов. Пустое поле не ограничивает выборку.
+ */
+public record FilmFilter(String genre, MPA mpa, Integer year) {
+    public static final FilmFilter NONE = new FilmFilter(null, null, null);
+
+    public boolean isEmpty() {
+        return genre == null && mpa == null && year == null;
+    }
+
+    /**
+     * Число заданных условий.
+     */
+    public int conditions() {
+        return (genre == null ? 0 : 1) + (mpa == null ? 0 : 1) + (year == null ? 0 : 1);
+    }
+
+    public boolean matches(Film film) {
+        if (genre != null && (film.getGenreOfFilm() == null || !film.getGenreOfFilm().contains(genre))) {
+            return false;
+        }
+        if (mpa != null && mpa != film.getRaiting()) {
+            return false;
+        }
+        return year == null || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year;
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Фильм в списках: вместо id пользователей, поставивших лайк, только их число. Размер записи не зависит
+ * от популярности фильма.
+ */
+@Value
+public class FilmSummary {
+    Integer id;
+    String name;
+    String description;
+    LocalDate releaseDate;
+    int duration;
+    Set<String> genreOfFilm;
+    MPA raiting;
+    int likes;
+
+    public static FilmSummary of(Film film) {
+        // жанры копируются: сводка служит ключом кэша JSON и не должна меняться вместе с фильмом
+        Set<String> genres = film.getGenreOfFilm() == null ? null : new LinkedHashSet<>(film.getGenreOfFilm());
+        return new FilmSummary(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), genres, film.getRaiting(), film.getLikes());
+    }
+
+    public static List<FilmSummary> of(List<Film> films) {
+        return films.stream().map(FilmSummary::of).toList();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+public class Page<T> {
+    private final List<T> items;
+    private final int limit;
+    private final Integer nextCursor;
+
+    public Page(List<T> items, int limit, Integer nextCursor) {
+        this.items = items;
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> Page<T> of(List<T> fetched, int limit, Function<T, Integer> idOf) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, limit, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new Page<>(items, limit, idOf.apply(items.getLast()));
+    }
+}
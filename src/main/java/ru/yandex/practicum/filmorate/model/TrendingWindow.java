@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.Duration;
+
+/**
+ * Окно трендов: скользящая сумма лайков за последние {@code buckets} корзин длиной {@code bucket}.
+ * Текущая корзина заполняется, поэтому окно покрывает от {@code buckets - 1} до {@code buckets} корзин.
+ */
+public enum TrendingWindow {
+    HOUR("1h", Duration.ofMinutes(1), 60),
+    DAY("24h", Duration.ofMinutes(15), 96),
+    WEEK("7d", Duration.ofHours(1), 168);
+
+    private final String label;
+    private final Duration bucket;
+    private final int buckets;
+
+    TrendingWindow(String label, Duration bucket, int buckets) {
+        this.label = label;
+        this.bucket = bucket;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Окно по обозначению из запроса ({@code 1h}, {@code 24h}, {@code 7d}) или null, если такого нет.
+     */
+    public static TrendingWindow fromLabel(String label) {
+        for (TrendingWindow window : values()) {
+            if (window.label.equals(label)) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Duration getBucket() {
+        return bucket;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+}
@@ -1,10 +1,12 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.DeltaIntSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 public class User {
@@ -14,16 +16,36 @@ public class User {
     private String login;
     private String name;
     private LocalDate birthday;
-    private Set<Integer> friends = new HashSet<>();
+    // одиночное добавление друга копирует только небольшие множества изменений, а не весь список
+    private volatile DeltaIntSet friends = DeltaIntSet.EMPTY;
     private FriendStatus friendStatus;
 
+    public SortedIntSet getFriends() {
+        return friends.toSortedSet();
+    }
+
+    @JsonIgnore
+    public int getFriendCount() {
+        return friends.size();
+    }
+
+    public boolean hasFriend(int friendId) {
+        return friends.contains(friendId);
+    }
+
     public void setFriends(Integer friend) {
-        friends.add(friend);
+        friends = friends.with(friend);
     }
 
     public void removeOnFriend(Integer friend) {
-        if (friends != null) {
-            friends.remove(friend);
-        }
+        friends = friends.without(friend);
+    }
+
+    public void addFriends(SortedIntSet friendIds) {
+        friends = friends.union(friendIds);
+    }
+
+    public void replaceFriends(SortedIntSet friends) {
+        this.friends = DeltaIntSet.of(friends);
     }
 }
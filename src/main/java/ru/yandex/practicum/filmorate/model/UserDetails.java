@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Профиль пользователя: число друзей и первые {@link #FRIENDS_SHOWN} их id. Остальные id отдаются
+ * постранично начиная с {@code nextFriendCursor}.
+ */
+@Value
+public class UserDetails {
+    public static final int FRIENDS_SHOWN = 100;
+
+    Integer id;
+    String email;
+    String login;
+    String name;
+    LocalDate birthday;
+    int friendCount;
+    List<Integer> friendIds;
+    Integer nextFriendCursor;
+
+    public static UserDetails of(User user) {
+        SortedIntSet friends = user.getFriends();
+        Page<Integer> friendIds = Page.of(friends.after(0, FRIENDS_SHOWN + 1), FRIENDS_SHOWN, Integer::intValue);
+        return new UserDetails(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(),
+                friends.size(), friendIds.getItems(), friendIds.getNextCursor());
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+/**
+ * Рекомендованный пользователь и число общих друзей с тем, кому он рекомендован.
+ */
+@Value
+public class UserRecommendation {
+    UserSummary user;
+    int mutualFriends;
+}
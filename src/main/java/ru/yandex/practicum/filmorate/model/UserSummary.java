@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Пользователь в списках: вместо id друзей только их число.
+ */
+@Value
+public class UserSummary {
+    Integer id;
+    String email;
+    String login;
+    String name;
+    LocalDate birthday;
+    int friendCount;
+
+    public static UserSummary of(User user) {
+        return new UserSummary(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(),
+                user.getFriendCount());
+    }
+
+    public static List<UserSummary> of(List<User> users) {
+        return users.stream().map(UserSummary::of).toList();
+    }
+}
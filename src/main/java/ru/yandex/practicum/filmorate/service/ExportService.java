@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+public class ExportService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportService(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportFilms(OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            filmStorage.forEachFilm(lineWriter(generator));
+        }
+        log.info("Выгрузка фильмов завершена");
+    }
+
+    public void exportUsers(OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            userStorage.forEachUser(lineWriter(generator));
+        }
+        log.info("Выгрузка пользователей завершена");
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private <T> Consumer<T> lineWriter(JsonGenerator generator) {
+        return value -> {
+            try {
+                objectMapper.writeValue(generator, value);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
@@ -1,28 +1,64 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmDetails;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 @Service
+@Timed(value = "filmorate.service", histogram = true)
 @Slf4j
 public class FilmService {
+    public static final int MAX_PAGE_SIZE = 10_000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int MAX_YEAR = 9999;
 
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmSimilarities similarities;
+    // null, если асинхронный приём лайков выключен
+    private final LikeIngestion ingestion;
+    private final TrendingFilms trending;
 
-    @Autowired
     public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+        this(filmStorage, userStorage, new FilmSimilarities(filmStorage));
+    }
+
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, FilmSimilarities similarities) {
+        this(filmStorage, userStorage, similarities, null, new TrendingFilms(Clock.systemUTC()));
+    }
+
+    @Autowired
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, FilmSimilarities similarities,
+                       @Nullable LikeIngestion ingestion, TrendingFilms trending) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.similarities = similarities;
+        this.ingestion = ingestion;
+        this.trending = trending;
     }
 
     public Film updateFilm(Film film) {
@@ -33,11 +69,61 @@ public class FilmService {
         return filmStorage.addFilm(film);
     }
 
+    public List<BatchItemResult> addNewFilms(List<Film> films) {
+        checkBatch(films);
+        return filmStorage.addFilms(films);
+    }
+
     public List<Film> getAllFilms() {
         return filmStorage.getAllFilms();
     }
 
+    public Page<Film> getFilmsPage(Integer after, Integer limit) {
+        int afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        checkPage(afterId, pageSize);
+        return Page.of(filmStorage.getFilmsPage(afterId, pageSize + 1), pageSize, Film::getId);
+    }
+
+    public Film getFilm(Integer id) {
+        Film film = filmStorage.getFilmOnId(id);
+        if (film == null) {
+            log.error("Запрошен несуществующий фильм {}", id);
+            throw new NotFoundException("фильм не найден");
+        }
+        return film;
+    }
+
+    /**
+     * Карточка фильма. Хранилище может отдать фильм без id поставивших лайк пользователей, поэтому
+     * первые из них читаются отдельно.
+     */
+    public FilmDetails getDetails(Film film) {
+        return FilmDetails.of(film, filmStorage.getFilmLikes(film.getId(), 0, FilmDetails.LIKES_SHOWN + 1));
+    }
+
+    /**
+     * Id пользователей, поставивших лайк фильму, по возрастанию начиная после {@code after}.
+     */
+    public Page<Integer> getFilmLikes(Integer id, Integer after, Integer limit) {
+        int afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        checkPage(afterId, pageSize);
+        checkFilm(id);
+        return Page.of(filmStorage.getFilmLikes(id, afterId, pageSize + 1), pageSize, Integer::intValue);
+    }
+
     public void addLike(Integer idFilm, Integer userId) {
+        addLike(idFilm, userId, null);
+    }
+
+    /**
+     * Ставит лайк. При асинхронном приёме лайк только ставится в очередь, если не запрошено ожидание
+     * его применения: параметром {@code wait} или, когда он не задан, настройкой {@code read-your-writes}.
+     *
+     * @return применён ли лайк к моменту возврата
+     */
+    public boolean addLike(Integer idFilm, Integer userId, Boolean wait) {
         if (idFilm == null || userId == null) {
             log.error("Полученный id пустые");
             throw new ValidationException("Полученный id пустые");
@@ -46,14 +132,71 @@ public class FilmService {
             log.error("Неизвестный пользователь пытался поставить лайк");
             throw new NotFoundException("Незарегистрированный пользователь не может ставить лайки");
         }
-        if (filmStorage.getFilmOnId(idFilm) == null) {
+        if (!filmStorage.containsFilm(idFilm)) {
             log.error("передан id несуществующего фильма");
             throw new NotFoundException("фильм не найден");
         }
-        filmStorage.getFilmOnId(idFilm).setUserOnLikeList(userId);
+        if (ingestion != null) {
+            return submit(idFilm, userId, true, wait);
+        }
+        // в тренды попадает только лайк, который хранилище действительно добавило
+        if (filmStorage.addLike(idFilm, userId)) {
+            trending.likeAdded(idFilm);
+        }
+        similarities.likesChanged(idFilm);
+        return true;
+    }
+
+    public List<BatchItemResult> addLikes(List<FilmLike> likes) {
+        checkBatch(likes);
+        Set<Integer> userIds = new HashSet<>();
+        Set<Integer> filmIds = new HashSet<>();
+        for (FilmLike like : likes) {
+            if (like != null) {
+                userIds.add(like.getUserId());
+                filmIds.add(like.getFilmId());
+            }
+        }
+        userIds.remove(null);
+        filmIds.remove(null);
+        Set<Integer> existingUsers = new HashSet<>();
+        for (User user : userStorage.getUsersByIds(userIds)) {
+            existingUsers.add(user.getId());
+        }
+        Set<Integer> existingFilms = filmStorage.getExistingFilmIds(filmIds);
+        List<BatchItemResult> results = new ArrayList<>(likes.size());
+        List<FilmLike> validLikes = new ArrayList<>(likes.size());
+        Set<Integer> changedFilms = new HashSet<>();
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                results.add(BatchItemResult.failure(i, "Полученный id пустые"));
+            } else if (!existingUsers.contains(like.getUserId())) {
+                results.add(BatchItemResult.failure(i, "Незарегистрированный пользователь не может ставить лайки"));
+            } else if (!existingFilms.contains(like.getFilmId())) {
+                results.add(BatchItemResult.failure(i, "фильм не найден"));
+            } else {
+                validLikes.add(like);
+                changedFilms.add(like.getFilmId());
+                results.add(BatchItemResult.success(i, like.getFilmId()));
+            }
+        }
+        filmStorage.addLikes(validLikes).forEach(trending::likesChanged);
+        similarities.likesChanged(changedFilms);
+        log.info("Пакетно поставлено лайков: {} из {}", validLikes.size(), likes.size());
+        return results;
     }
 
     public void removeLike(Integer idFilm, Integer userId) {
+        removeLike(idFilm, userId, null);
+    }
+
+    /**
+     * Удаляет лайк, при асинхронном приёме — как {@link #addLike(Integer, Integer, Boolean)}.
+     *
+     * @return применено ли удаление к моменту возврата
+     */
+    public boolean removeLike(Integer idFilm, Integer userId, Boolean wait) {
         if (idFilm == null || userId == null) {
             log.error("полученный id пустые");
             throw new ValidationException("Полученный id пустые");
@@ -62,21 +205,162 @@ public class FilmService {
             log.error("неизвестный пользователь пытался удалить лайк");
             throw new NotFoundException("Незарегистрированный пользователь не может удалять лайки");
         }
-        if (filmStorage.getFilmOnId(idFilm) == null) {
+        if (!filmStorage.containsFilm(idFilm)) {
             log.error("Передан id несуществующего фильма");
             throw new NotFoundException("фильм не найден");
         }
-        filmStorage.getFilmOnId(idFilm).removeUserOnLikeList(userId);
+        if (ingestion != null) {
+            return submit(idFilm, userId, false, wait);
+        }
+        if (filmStorage.removeLike(idFilm, userId)) {
+            trending.likeRemoved(idFilm);
+        }
+        similarities.likesChanged(idFilm);
+        return true;
     }
 
     public List<Film> getMostPopularFilms(Integer count) {
+        return getMostPopularFilms(count, FilmFilter.NONE);
+    }
+
+    public List<Film> getMostPopularFilms(Integer count, FilmFilter filter) {
         if (count < 0) {
             log.error("Был передан отрицательный count");
             throw new ValidationException("Нельзя передать отрицательное количество фильмов!");
         }
-        return filmStorage.getAllFilms().stream()
-                .sorted((film1, film2) -> film2.getLikes().compareTo(film1.getLikes()))
-                .limit(count)
-                .collect(Collectors.toList());
+        return filmStorage.getPopularFilms(count, filter);
+    }
+
+    public FilmFilter popularFilter(String genre, String mpa, Integer year) {
+        MPA rating = null;
+        if (mpa != null) {
+            try {
+                rating = MPA.valueOf(mpa);
+            } catch (IllegalArgumentException e) {
+                log.error("Передан неизвестный рейтинг {}", mpa);
+                throw new ValidationException("Неизвестный рейтинг MPA: " + mpa);
+            }
+        }
+        if (year != null && (year < 1 || year > MAX_YEAR)) {
+            log.error("Передан некорректный год {}", year);
+            throw new ValidationException("Год должен быть от 1 до " + MAX_YEAR);
+        }
+        return new FilmFilter(genre, rating, year);
+    }
+
+    public List<Film> getLikedFilms(Integer userId) {
+        if (userStorage.getUserOnId(userId) == null) {
+            log.error("Запрошены лайки неизвестного пользователя {}", userId);
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return filmStorage.getLikedFilms(userId);
+    }
+
+    /**
+     * Фильмы, похожие на понравившиеся пользователю, по убыванию похожести. Матрица похожести обновляется
+     * в фоне, поэтому недавние лайки учитываются с задержкой.
+     */
+    public List<Film> getRecommendedFilms(Integer userId, Integer count) {
+        if (count <= 0 || count > FilmSimilarities.MAX_RECOMMENDATIONS) {
+            log.error("Передано некорректное число рекомендаций {}", count);
+            throw new ValidationException("Параметр count должен быть от 1 до "
+                    + FilmSimilarities.MAX_RECOMMENDATIONS);
+        }
+        if (userStorage.getUserOnId(userId) == null) {
+            log.error("Запрошены рекомендации неизвестного пользователя {}", userId);
+            throw new NotFoundException("Пользователь не найден");
+        }
+        List<Film> films = new ArrayList<>(count);
+        for (int filmId : similarities.recommend(userId, count)) {
+            Film film = filmStorage.getFilmOnId(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    /**
+     * Фильмы, набравшие больше всего лайков за окно {@code 1h}, {@code 24h} или {@code 7d}.
+     */
+    public List<Film> getTrendingFilms(String window, Integer count) {
+        TrendingWindow trendingWindow = TrendingWindow.fromLabel(window);
+        if (trendingWindow == null) {
+            log.error("Передано неизвестное окно трендов {}", window);
+            throw new ValidationException("Параметр window должен быть 1h, 24h или 7d");
+        }
+        if (count <= 0 || count > TrendingFilms.MAX_TRENDING) {
+            log.error("Передано некорректное число трендовых фильмов {}", count);
+            throw new ValidationException("Параметр count должен быть от 1 до " + TrendingFilms.MAX_TRENDING);
+        }
+        List<Film> films = new ArrayList<>(count);
+        for (int filmId : trending.top(trendingWindow, count)) {
+            Film film = filmStorage.getFilmOnId(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    public List<Film> searchFilms(String query, Integer count) {
+        if (query == null || query.isBlank()) {
+            log.error("Передан пустой поисковый запрос");
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            log.error("Передано некорректное число результатов поиска {}", count);
+            throw new ValidationException("Параметр count должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.searchFilms(query, count);
+    }
+
+    /**
+     * Версия ответа о популярных фильмах. Топ общего рейтинга и рейтинга по одному условию отслеживается
+     * хранилищем на глубину {@link PopularityIndex#TRACKED_TOP}; более длинный список или фильтр из нескольких
+     * условий, который может уйти вглубь индекса, следует версии всех фильмов.
+     */
+    public VersionStamp getPopularVersion(int count, FilmFilter filter) {
+        if (count <= PopularityIndex.TRACKED_TOP && filter.conditions() <= 1) {
+            return filmStorage.getPopularityVersion();
+        }
+        return filmStorage.getVersion();
+    }
+
+    private boolean submit(int filmId, int userId, boolean liked, Boolean wait) {
+        CompletableFuture<Void> applied = ingestion.submit(filmId, userId, liked);
+        if (wait == null ? !ingestion.isReadYourWrites() : !wait) {
+            return false;
+        }
+        ingestion.await(applied);
+        return true;
+    }
+
+    private void checkFilm(Integer id) {
+        if (id == null || !filmStorage.containsFilm(id)) {
+            log.error("Запрошен несуществующий фильм {}", id);
+            throw new NotFoundException("фильм не найден");
+        }
+    }
+
+    private void checkPage(int afterId, int pageSize) {
+        if (afterId < 0) {
+            log.error("Передан отрицательный курсор after {}", afterId);
+            throw new ValidationException("Параметр after не может быть отрицательным");
+        }
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            log.error("Передан некорректный размер страницы {}", pageSize);
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private void checkBatch(List<?> items) {
+        if (items == null) {
+            throw new ValidationException("пустое тело запроса");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            log.error("Передан пакет из {} элементов", items.size());
+            throw new ValidationException("Пакет не может содержать более " + MAX_BATCH_SIZE + " элементов");
+        }
     }
 }
@@ -0,0 +1,525 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikedFilmsIndex;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Рекомендации фильмов «кто лайкал то же, что и вы, лайкал ещё»: для каждого фильма хранится до
+ * {@code neighbours} самых похожих фильмов по косинусной мере между множествами лайков, и запрос только
+ * складывает списки соседей понравившихся пользователю фильмов.
+ * <p>
+ * Матрица соседей строится в фоне: полная перестройка считает строки всех фильмов параллельно по снимку
+ * лайков и подменяет матрицу целиком, а между перестройками раз в {@code refresh-interval} пересчитываются
+ * только фильмы, лайки которых менялись. Похожесть симметрична, поэтому новая оценка пересчитанного фильма
+ * вносится и в строки его соседей. Строку, где фильм остался со старой оценкой, хотя уже выпал из соседей
+ * пересчитанного фильма, исправляет следующая полная перестройка раз в {@code rebuild-interval}.
+ * Лайки фильмов и пользователей с числом лайков больше {@code maxDegree} берутся равномерной выборкой,
+ * как в {@link FriendRecommendations}. Строки читают хранилище, поэтому считаются в собственном пуле
+ * из {@code parallelism} потоков, а не в общем пуле JVM.
+ */
+@Slf4j
+@Component
+public class FilmSimilarities {
+    public static final int MAX_RECOMMENDATIONS = 100;
+    public static final int DEFAULT_NEIGHBOURS = 50;
+    public static final int DEFAULT_MAX_DEGREE = 1000;
+    // оценки хранятся в фиксированной точке, 1.0 = 2^16: сумма по maxDegree фильмам помещается в int
+    private static final int SCALE = 1 << 16;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    // частей полной перестройки на поток: выравнивает нагрузку, когда строки фильмов разной длины
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final FilmStorage filmStorage;
+    private final int neighbours;
+    private final int maxDegree;
+    private final Duration refreshInterval;
+    private final Duration rebuildInterval;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private final ForkJoinPool pool;
+    private final AtomicInteger workers = new AtomicInteger();
+    // id фильмов плотные, поэтому счётчики и строки лежат в массивах по id, а не в хеш-таблицах с упакованными
+    // ключами: к ним обращается каждый кандидат каждой строки. Число лайков, по которому посчитаны строки,
+    // читается и меняется только под refreshLock
+    private int[] likeCounts = new int[0];
+    private long rebuiltAt;
+    private boolean built;
+    // строки пишет только поток под refreshLock; сами строки неизменяемы, поэтому читатели видят их целыми
+    private volatile Neighbours[] rows = new Neighbours[0];
+    private volatile ScheduledExecutorService scheduler;
+
+    public FilmSimilarities(FilmStorage filmStorage) {
+        this(filmStorage, DEFAULT_NEIGHBOURS, DEFAULT_MAX_DEGREE);
+    }
+
+    public FilmSimilarities(FilmStorage filmStorage, int neighbours, int maxDegree) {
+        this(filmStorage, neighbours, maxDegree, Duration.ofSeconds(1), Duration.ofHours(1), 0);
+    }
+
+    @Autowired
+    public FilmSimilarities(FilmStorage filmStorage,
+                            @Value("${filmorate.film-recommendations.neighbours:50}") int neighbours,
+                            @Value("${filmorate.film-recommendations.max-degree:1000}") int maxDegree,
+                            @Value("${filmorate.film-recommendations.refresh-interval:1s}") Duration refreshInterval,
+                            @Value("${filmorate.film-recommendations.rebuild-interval:1h}") Duration rebuildInterval,
+                            @Value("${filmorate.film-recommendations.parallelism:0}") int parallelism) {
+        this.filmStorage = filmStorage;
+        this.neighbours = neighbours;
+        this.maxDegree = maxDegree;
+        this.refreshInterval = refreshInterval;
+        this.rebuildInterval = rebuildInterval;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // как в FriendRecommendations: при насыщении пул не добавляет компенсирующих потоков
+        this.pool = new ForkJoinPool(threads, this::newWorker, null, false,
+                0, threads, 1, pool -> true, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Запускает фоновое обновление матрицы: первое построение сразу, затем раз в {@code refresh-interval}.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("filmorate-film-similarities").daemon().factory());
+        long interval = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        pool.shutdownNow();
+    }
+
+    /**
+     * Отмечает фильмы, лайки которых изменились: их строки пересчитаются при следующем обновлении.
+     */
+    public void likesChanged(Collection<Integer> filmIds) {
+        changed.addAll(filmIds);
+    }
+
+    public void likesChanged(int filmId) {
+        changed.add(filmId);
+    }
+
+    /**
+     * Пересчитывает строки изменившихся фильмов, а если матрица ещё не строилась или с последней
+     * перестройки прошло {@code rebuild-interval} — строит её заново.
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            if (!built || System.nanoTime() - rebuiltAt >= rebuildInterval.toNanos()) {
+                rebuild();
+                return;
+            }
+            List<Integer> filmIds = new ArrayList<>();
+            for (Iterator<Integer> it = changed.iterator(); it.hasNext(); ) {
+                filmIds.add(it.next());
+                it.remove();
+            }
+            // сначала число лайков всех изменённых фильмов: по нему считаются их оценки друг с другом
+            Map<Integer, SortedIntSet> likes = new HashMap<>();
+            int maxId = rows.length - 1;
+            for (int filmId : filmIds) {
+                maxId = Math.max(maxId, filmId);
+            }
+            if (maxId >= rows.length) {
+                likeCounts = Arrays.copyOf(likeCounts, maxId + 1);
+                rows = Arrays.copyOf(rows, maxId + 1);
+            }
+            for (int filmId : filmIds) {
+                SortedIntSet userIds = filmStorage.getLikingUserIds(filmId);
+                likes.put(filmId, userIds);
+                likeCounts[filmId] = userIds.size();
+            }
+            // строки считаются параллельно, а в матрицу вносятся по очереди
+            List<Callable<Change>> tasks = new ArrayList<>(filmIds.size());
+            for (int filmId : filmIds) {
+                tasks.add(() -> change(filmId, likes.get(filmId)));
+            }
+            List<Change> changes = invokeAll(tasks);
+            for (Change change : changes) {
+                apply(change);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Строит матрицу заново: строки фильмов считаются параллельно по снимку лайков, готовая матрица
+     * подменяет прежнюю целиком. Изменения лайков во время построения попадут в следующее обновление.
+     */
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            long started = System.nanoTime();
+            changed.clear();
+            // лайки фильма меняются на месте, поэтому строки считаются по копиям их множеств
+            List<Film> snapshot = new ArrayList<>();
+            filmStorage.forEachFilm(film -> {
+                Film copy = new Film();
+                copy.setId(film.getId());
+                copy.setUsersIdLike(film.getUsersIdLike());
+                snapshot.add(copy);
+            });
+            // фильмы обходятся по возрастанию id
+            int maxId = snapshot.isEmpty() ? 0 : snapshot.getLast().getId();
+            int[] counts = new int[maxId + 1];
+            for (Film film : snapshot) {
+                counts[film.getId()] = film.getLikes();
+            }
+            LikedFilmsIndex likedFilms = new LikedFilmsIndex();
+            likedFilms.rebuild(snapshot);
+            // каждая задача пишет только строки своих фильмов, а завершение задач публикует все строки
+            // до записи в volatile-поле
+            Neighbours[] built = new Neighbours[maxId + 1];
+            int chunk = Math.max(1, snapshot.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int from = 0; from < snapshot.size(); from += chunk) {
+                List<Film> films = snapshot.subList(from, Math.min(snapshot.size(), from + chunk));
+                tasks.add(() -> {
+                    for (Film film : films) {
+                        int[] userIds = film.getUsersIdLike().sample(maxDegree);
+                        IntCountMap coLikes = coLikes(film.getId(), userIds, likedFilms::get);
+                        Neighbours row = top(film.getLikes(), userIds.length, coLikes, counts);
+                        built[film.getId()] = row.size() > 0 ? row : null;
+                    }
+                    return null;
+                });
+            }
+            invokeAll(tasks);
+            likeCounts = counts;
+            rows = built;
+            rebuiltAt = System.nanoTime();
+            this.built = true;
+            log.info("Матрица похожести фильмов построена за {} мс: фильмов с соседями {} из {}",
+                    TimeUnit.NANOSECONDS.toMillis(rebuiltAt - started),
+                    Arrays.stream(built).filter(Objects::nonNull).count(), snapshot.size());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * До {@code count} id фильмов, которые пользователь ещё не лайкал, по убыванию суммы похожести
+     * на понравившиеся ему фильмы, при равенстве — по возрастанию id.
+     */
+    public List<Integer> recommend(int userId, int count) {
+        SortedIntSet liked = filmStorage.getLikedFilmIds(userId);
+        Neighbours[] rows = this.rows;
+        IntCountMap scores = new IntCountMap();
+        for (int filmId : liked.sample(maxDegree)) {
+            Neighbours row = filmId < rows.length ? rows[filmId] : null;
+            if (row == null) {
+                continue;
+            }
+            for (int i = 0; i < row.size(); i++) {
+                if (!liked.contains(row.filmIds[i])) {
+                    scores.add(row.filmIds[i], row.scores[i]);
+                }
+            }
+        }
+        TopRanks top = new TopRanks(count);
+        scores.forEach((filmId, score) -> top.offer(rank(filmId, score)));
+        long[] ranked = top.descending();
+        List<Integer> filmIds = new ArrayList<>(ranked.length);
+        for (long rank : ranked) {
+            filmIds.add(filmId(rank));
+        }
+        return filmIds;
+    }
+
+    /**
+     * Выполняет задачи в пуле и возвращает их результаты по порядку.
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось посчитать строки матрицы похожести", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Расчёт матрицы похожести прерван", e);
+        }
+        return results;
+    }
+
+    private ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("filmorate-film-similarities-worker-" + workers.incrementAndGet());
+        worker.setDaemon(true);
+        return worker;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // матрица остаётся прежней, изменённые фильмы пересчитаются при следующей полной перестройке
+            log.error("Не удалось обновить матрицу похожести фильмов", e);
+        }
+    }
+
+    /**
+     * Новая строка фильма по текущим лайкам вместе с числом общих лайков со всеми фильмами.
+     */
+    private Change change(int filmId, SortedIntSet likes) {
+        int[] userIds = likes.sample(maxDegree);
+        IntCountMap coLikes = coLikes(filmId, userIds, filmStorage::getLikedFilmIds);
+        Neighbours row = top(likes.size(), userIds.length, coLikes, likeCounts);
+        return new Change(filmId, likes.size(), userIds.length, coLikes, row);
+    }
+
+    /**
+     * Заменяет строку фильма и вносит новые оценки в строки его соседей. Строки меняет только обновление
+     * под refreshLock, поэтому проверка строки и её запись не гоняются.
+     */
+    private void apply(Change change) {
+        Neighbours[] rows = this.rows;
+        int filmId = change.filmId();
+        Neighbours previous = rows[filmId];
+        rows[filmId] = change.row().size() > 0 ? change.row() : null;
+        change.coLikes().forEach((other, count) -> {
+            // фильм, добавленный после расширения массивов, получит строку при изменении своих лайков
+            if (other >= rows.length) {
+                return;
+            }
+            int score = score(count, change.sampledUsers(), change.likes(), Math.max(likeCounts[other], count));
+            Neighbours current = rows[other] == null ? Neighbours.EMPTY : rows[other];
+            if (current.admits(filmId, score, neighbours)) {
+                rows[other] = current.with(filmId, score, neighbours);
+            }
+        });
+        if (previous != null) {
+            for (int other : previous.filmIds) {
+                if (change.coLikes().get(other) == 0 && rows[other] != null) {
+                    Neighbours rest = rows[other].without(filmId);
+                    rows[other] = rest.size() > 0 ? rest : null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Сколько раз каждый другой фильм лайкнут пользователями {@code userIds}.
+     */
+    private IntCountMap coLikes(int filmId, int[] userIds, IntFunction<SortedIntSet> likedFilms) {
+        IntCountMap coLikes = new IntCountMap();
+        for (int userId : userIds) {
+            for (int other : likedFilms.apply(userId).sample(maxDegree)) {
+                if (other != filmId) {
+                    coLikes.increment(other);
+                }
+            }
+        }
+        return coLikes;
+    }
+
+    private Neighbours top(int likes, int sampledUsers, IntCountMap coLikes, int[] counts) {
+        TopRanks top = new TopRanks(neighbours);
+        coLikes.forEach((other, count) -> {
+            int otherLikes = other < counts.length ? Math.max(counts[other], count) : count;
+            top.offer(rank(other, score(count, sampledUsers, likes, otherLikes)));
+        });
+        long[] ranked = top.descending();
+        int[] filmIds = new int[ranked.length];
+        int[] scores = new int[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            filmIds[i] = filmId(ranked[i]);
+            scores[i] = (int) (ranked[i] >>> Integer.SIZE);
+        }
+        return new Neighbours(filmIds, scores);
+    }
+
+    /**
+     * Косинус между множествами лайков в фиксированной точке. Если лайки фильма взяты выборкой,
+     * число общих лайков оценивается пропорционально её доле.
+     */
+    private static int score(int coLikes, int sampledUsers, int likes, int otherLikes) {
+        double estimated = (double) coLikes * likes / sampledUsers;
+        double cosine = Math.min(1.0, estimated / Math.sqrt((double) likes * otherLikes));
+        return Math.max(1, (int) (cosine * SCALE));
+    }
+
+    /**
+     * Оценка в старших битах, инвертированный id в младших: больший ранг — лучше, при равных оценках
+     * выигрывает меньший id.
+     */
+    private static long rank(int filmId, int score) {
+        return (long) score << Integer.SIZE | (Integer.MAX_VALUE - filmId);
+    }
+
+    private static int filmId(long rank) {
+        return Integer.MAX_VALUE - (int) rank;
+    }
+
+    /**
+     * До {@code limit} наибольших рангов: двоичная куча на массиве long с наименьшим рангом в корне, без упаковки
+     * в Long — через неё проходит каждый кандидат каждой строки.
+     */
+    private static final class TopRanks {
+        private final long[] heap;
+        private int size;
+
+        TopRanks(int limit) {
+            heap = new long[limit];
+        }
+
+        void offer(long rank) {
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) >>> 1] > rank) {
+                    heap[i] = heap[(i - 1) >>> 1];
+                    i = (i - 1) >>> 1;
+                }
+                heap[i] = rank;
+            } else if (size > 0 && rank > heap[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && heap[child + 1] < heap[child]) {
+                        child++;
+                    }
+                    if (heap[child] >= rank) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = rank;
+            }
+        }
+
+        long[] descending() {
+            long[] ranks = Arrays.copyOf(heap, size);
+            Arrays.sort(ranks);
+            for (int i = 0, j = ranks.length - 1; i < j; i++, j--) {
+                long rank = ranks[i];
+                ranks[i] = ranks[j];
+                ranks[j] = rank;
+            }
+            return ranks;
+        }
+    }
+
+    /**
+     * Пересчитанная строка фильма: {@code coLikes} посчитаны по {@code sampledUsers} из {@code likes} лайков.
+     */
+    private record Change(int filmId, int likes, int sampledUsers, IntCountMap coLikes, Neighbours row) {
+    }
+
+    /**
+     * Соседи фильма по убыванию оценки, при равенстве — по возрастанию id.
+     */
+    private record Neighbours(int[] filmIds, int[] scores) {
+        static final Neighbours EMPTY = new Neighbours(new int[0], new int[0]);
+
+        int size() {
+            return filmIds.length;
+        }
+
+        /**
+         * Меняет ли оценка строку: фильм уже в ней или оценка входит в {@code limit} лучших. Большинство
+         * соседей пересчитанного фильма отсекается здесь без копирования строки.
+         */
+        boolean admits(int filmId, int score, int limit) {
+            int last = filmIds.length - 1;
+            return filmIds.length < limit || score > scores[last]
+                    || score == scores[last] && filmId < filmIds[last] || indexOf(filmId) >= 0;
+        }
+
+        /**
+         * Строка с оценкой {@code score} для {@code filmId}, если она входит в {@code limit} лучших.
+         */
+        Neighbours with(int filmId, int score, int limit) {
+            int current = indexOf(filmId);
+            if (current >= 0 && scores[current] == score) {
+                return this;
+            }
+            Neighbours rest = current >= 0 ? without(filmId) : this;
+            int position = 0;
+            while (position < rest.size() && (rest.scores[position] > score
+                    || rest.scores[position] == score && rest.filmIds[position] < filmId)) {
+                position++;
+            }
+            if (position >= limit) {
+                return rest;
+            }
+            int size = Math.min(limit, rest.size() + 1);
+            int[] filmIds = new int[size];
+            int[] scores = new int[size];
+            System.arraycopy(rest.filmIds, 0, filmIds, 0, position);
+            System.arraycopy(rest.scores, 0, scores, 0, position);
+            filmIds[position] = filmId;
+            scores[position] = score;
+            System.arraycopy(rest.filmIds, position, filmIds, position + 1, size - position - 1);
+            System.arraycopy(rest.scores, position, scores, position + 1, size - position - 1);
+            return new Neighbours(filmIds, scores);
+        }
+
+        Neighbours without(int filmId) {
+            int i = indexOf(filmId);
+            if (i < 0) {
+                return this;
+            }
+            int[] ids = new int[filmIds.length - 1];
+            int[] values = new int[scores.length - 1];
+            System.arraycopy(filmIds, 0, ids, 0, i);
+            System.arraycopy(scores, 0, values, 0, i);
+            System.arraycopy(filmIds, i + 1, ids, i, ids.length - i);
+            System.arraycopy(scores, i + 1, values, i, values.length - i);
+            return new Neighbours(ids, values);
+        }
+
+        private int indexOf(int filmId) {
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рекомендации «друзья друзей»: пользователи, с которыми больше всего общих друзей. Друзья пользователя
+ * обходятся параллельно задачами fork-join, общие друзья считаются в {@link IntCountMap} по частям и сливаются.
+ * У пользователя и его друзей с числом друзей больше {@code maxDegree} берётся равномерная выборка из
+ * {@code maxDegree} друзей: иначе один популярный пользователь превращает запрос в обход всей сети,
+ * а вклад каждого его друга в рейтинг и так мал. Результат кэшируется на пользователя; изменение дружбы
+ * сбрасывает кэш только у её участников и их друзей — только у них меняются счётчики.
+ * Задачи читают хранилище и могут блокироваться на нём, поэтому идут в собственном пуле из
+ * {@code parallelism} потоков, а не в общем пуле JVM.
+ */
+@Component
+public class FriendRecommendations {
+    public static final int MAX_RECOMMENDATIONS = 100;
+    public static final int DEFAULT_MAX_DEGREE = 1000;
+    public static final long DEFAULT_CACHE_SIZE = 10_000;
+    // друзей на задачу: меньшие части не окупают накладные расходы fork-join
+    private static final int FRIENDS_PER_TASK = 64;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final UserStorage userStorage;
+    private final int maxDegree;
+    private final long cacheSize;
+    private final Cache<Integer, List<Recommendation>> cache;
+    private final ForkJoinPool pool;
+    private final AtomicInteger workers = new AtomicInteger();
+    // число изменений дружбы: расчёт, во время которого оно выросло, не остаётся в кэше
+    private final AtomicLong generation = new AtomicLong();
+
+    public FriendRecommendations(UserStorage userStorage) {
+        this(userStorage, DEFAULT_MAX_DEGREE, DEFAULT_CACHE_SIZE);
+    }
+
+    public FriendRecommendations(UserStorage userStorage, int maxDegree, long cacheSize) {
+        this(userStorage, maxDegree, cacheSize, 0);
+    }
+
+    @Autowired
+    public FriendRecommendations(UserStorage userStorage,
+                                 @Value("${filmorate.recommendations.max-degree:1000}") int maxDegree,
+                                 @Value("${filmorate.recommendations.cache-size:10000}") long cacheSize,
+                                 @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.userStorage = userStorage;
+        this.maxDegree = maxDegree;
+        this.cacheSize = cacheSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // потоков не больше parallelism: при насыщении пул не добавляет компенсирующих потоков, а ждёт
+        this.pool = new ForkJoinPool(threads, this::newWorker, null, false,
+                0, threads, 1, pool -> true, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * До {@link #MAX_RECOMMENDATIONS} пользователей по убыванию числа общих друзей, при равенстве — по
+     * возрастанию id. Друзья и сам пользователь не рекомендуются.
+     */
+    public List<Recommendation> recommend(int userId) {
+        List<Recommendation> cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        // расчёт идёт вне блокировок кэша: под ними задачи fork-join ждали бы обслуживания кэша в том же пуле
+        long started = generation.get();
+        User user = userStorage.getUserOnId(userId);
+        if (user == null) {
+            return List.of();
+        }
+        List<Recommendation> computed = compute(user);
+        cache.put(userId, computed);
+        if (generation.get() != started) {
+            // дружбы менялись во время расчёта, и он мог прочитать старые данные
+            cache.asMap().remove(userId, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * Сбрасывает рекомендации, которые могла изменить дружба двух пользователей. Вызывается после изменения
+     * хранилища, поэтому расчёт, начатый по старым данным, не останется в кэше.
+     */
+    public void friendshipChanged(int userId, int friendId) {
+        friendshipsChanged(List.of(userId, friendId));
+    }
+
+    /**
+     * То же для пакета: {@code userIds} — все участники изменённых дружб.
+     */
+    public void friendshipsChanged(Collection<Integer> userIds) {
+        generation.incrementAndGet();
+        List<SortedIntSet> friendSets = new ArrayList<>();
+        long affected = userIds.size();
+        for (User user : userStorage.getUsersByIds(userIds)) {
+            friendSets.add(user.getFriends());
+            affected += user.getFriendCount();
+        }
+        cache.invalidateAll(userIds);
+        if (affected > cacheSize) {
+            // обойти кэш дешевле, чем друзей популярного пользователя
+            cache.asMap().keySet().removeIf(id -> friendSets.stream().anyMatch(friends -> friends.contains(id)));
+            return;
+        }
+        for (SortedIntSet friends : friendSets) {
+            cache.invalidateAll(friends);
+        }
+    }
+
+    private List<Recommendation> compute(User user) {
+        SortedIntSet friends = user.getFriends();
+        int[] expanded = friends.sample(maxDegree);
+        IntCountMap mutual = expanded.length <= FRIENDS_PER_TASK
+                ? new Expansion(user.getId(), expanded, 0, expanded.length).compute()
+                : pool.invoke(new Expansion(user.getId(), expanded, 0, expanded.length));
+        PriorityQueue<Recommendation> top = new PriorityQueue<>(Recommendation::compare);
+        mutual.forEach((candidate, count) -> {
+            if (friends.contains(candidate)) {
+                return;
+            }
+            Recommendation recommendation = new Recommendation(candidate, count);
+            if (top.size() < MAX_RECOMMENDATIONS) {
+                top.add(recommendation);
+            } else if (Recommendation.compare(recommendation, top.peek()) > 0) {
+                top.poll();
+                top.add(recommendation);
+            }
+        });
+        Recommendation[] result = top.toArray(new Recommendation[0]);
+        Arrays.sort(result, (a, b) -> Recommendation.compare(b, a));
+        return List.of(result);
+    }
+
+    private ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("filmorate-friend-recommendations-" + workers.incrementAndGet());
+        worker.setDaemon(true);
+        return worker;
+    }
+
+    /**
+     * Позиция {@code i}-го из {@code taken} элементов, взятых через равные промежутки из {@code size}.
+     */
+    private static int sampled(int i, int size, int taken) {
+        return (int) ((long) i * size / taken);
+    }
+
+    /**
+     * Пользователь-кандидат и число общих друзей с тем, кому он рекомендуется.
+     */
+    public record Recommendation(int userId, int mutualFriends) {
+        /**
+         * Больше — лучше: больше общих друзей, при равенстве меньше id.
+         */
+        static int compare(Recommendation a, Recommendation b) {
+            if (a.mutualFriends != b.mutualFriends) {
+                return Integer.compare(a.mutualFriends, b.mutualFriends);
+            }
+            return Integer.compare(b.userId, a.userId);
+        }
+    }
+
+    private class Expansion extends RecursiveTask<IntCountMap> {
+        private final int userId;
+        private final int[] friendIds;
+        private final int from;
+        private final int to;
+
+        Expansion(int userId, int[] friendIds, int from, int to) {
+            this.userId = userId;
+            this.friendIds = friendIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntCountMap compute() {
+            if (to - from > FRIENDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                Expansion left = new Expansion(userId, friendIds, from, middle);
+                left.fork();
+                IntCountMap right = new Expansion(userId, friendIds, middle, to).compute();
+                IntCountMap merged = left.join();
+                // в большую таблицу вливается меньшая
+                if (merged.size() < right.size()) {
+                    right.addAll(merged);
+                    return right;
+                }
+                merged.addAll(right);
+                return merged;
+            }
+            List<Integer> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(friendIds[i]);
+            }
+            IntCountMap mutual = new IntCountMap();
+            for (User friend : userStorage.getUsersByIds(chunk)) {
+                SortedIntSet candidates = friend.getFriends();
+                int taken = Math.min(candidates.size(), maxDegree);
+                for (int i = 0; i < taken; i++) {
+                    int candidate = candidates.get(sampled(i, candidates.size(), taken));
+                    if (candidate != userId) {
+                        mutual.increment(candidate);
+                    }
+                }
+            }
+            return mutual;
+        }
+    }
+}
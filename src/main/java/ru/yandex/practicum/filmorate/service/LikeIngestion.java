@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Асинхронный приём лайков и их отмен. Операции раскладываются по шардам по id фильма: у каждого шарда
+ * ограниченная очередь и свой поток записи, поэтому операции одной пары «фильм — пользователь» применяются
+ * в порядке поступления. Поток записи забирает из очереди до {@code max-batch} операций и схлопывает их
+ * по фильму: от пары остаётся последняя операция, так что повторы и взаимно отменяющиеся лайки до хранилища
+ * не доходят, а каждый фильм обновляется одним {@link FilmStorage#updateLikes} под одной блокировкой.
+ * Если очередь шарда остаётся заполненной дольше {@code enqueue-timeout}, запрос отклоняется.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.like-ingestion.enabled", havingValue = "true")
+public class LikeIngestion implements MeterBinder {
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final FilmStorage filmStorage;
+    private final FilmSimilarities similarities;
+    private final TrendingFilms trending;
+    private final int maxBatch;
+    private final Duration enqueueTimeout;
+    private final Duration awaitTimeout;
+    private final boolean readYourWrites;
+    private final Shard[] shards;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    // постановка в очередь идёт под блокировкой чтения, остановка — под блокировкой записи:
+    // после остановки в очередь не попадёт ни одна операция
+    private final ReentrantReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private volatile boolean stopped;
+
+    public LikeIngestion(FilmStorage filmStorage, FilmSimilarities similarities, TrendingFilms trending,
+                         int shards, int queueCapacity, int maxBatch, Duration enqueueTimeout,
+                         boolean readYourWrites) {
+        this(filmStorage, similarities, trending, shards, queueCapacity, maxBatch, enqueueTimeout, Duration.ofSeconds(5),
+                readYourWrites);
+    }
+
+    @Autowired
+    public LikeIngestion(FilmStorage filmStorage, FilmSimilarities similarities, TrendingFilms trending,
+                         @Value("${filmorate.like-ingestion.shards:0}") int shards,
+                         @Value("${filmorate.like-ingestion.queue-capacity:10000}") int queueCapacity,
+                         @Value("${filmorate.like-ingestion.max-batch:1000}") int maxBatch,
+                         @Value("${filmorate.like-ingestion.enqueue-timeout:100ms}") Duration enqueueTimeout,
+                         @Value("${filmorate.like-ingestion.await-timeout:5s}") Duration awaitTimeout,
+                         @Value("${filmorate.like-ingestion.read-your-writes:false}") boolean readYourWrites) {
+        this.filmStorage = filmStorage;
+        this.similarities = similarities;
+        this.trending = trending;
+        this.maxBatch = maxBatch;
+        this.enqueueTimeout = enqueueTimeout;
+        this.awaitTimeout = awaitTimeout;
+        this.readYourWrites = readYourWrites;
+        this.shards = new Shard[shards > 0 ? shards : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(new ArrayBlockingQueue<>(queueCapacity));
+        }
+    }
+
+    /**
+     * Запускает потоки записи, по одному на шард.
+     */
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            shard.writer = Thread.ofPlatform().name("filmorate-like-writer-" + i).daemon().start(() -> write(shard));
+        }
+    }
+
+    /**
+     * Перестаёт принимать операции и ждёт, пока потоки записи применят уже принятые. Операции, которые
+     * потоки записи не успели применить за {@code await-timeout}, завершаются ошибкой.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        submitLock.writeLock().lock();
+        try {
+            stopped = true;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        for (Shard shard : shards) {
+            if (shard.writer != null) {
+                shard.writer.join(awaitTimeout.toMillis());
+            }
+        }
+        List<LikeOperation> left = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.queue.drainTo(left);
+        }
+        if (!left.isEmpty()) {
+            log.warn("Приём лайков остановлен, не применено операций: {}", left.size());
+        }
+        for (LikeOperation operation : left) {
+            operation.applied().completeExceptionally(new OverloadedException("Приём лайков остановлен"));
+        }
+    }
+
+    /**
+     * Ждать ли по умолчанию применения лайка, чтобы следующий запрос клиента его уже видел.
+     */
+    public boolean isReadYourWrites() {
+        return readYourWrites;
+    }
+
+    /**
+     * Ставит лайк ({@code liked}) или его отмену в очередь шарда фильма. Возвращённый future завершается,
+     * когда операция применена к хранилищу.
+     */
+    public CompletableFuture<Void> submit(int filmId, int userId, boolean liked) {
+        LikeOperation operation = new LikeOperation(filmId, userId, liked, new CompletableFuture<>());
+        boolean accepted;
+        Lock lock = submitLock.readLock();
+        lock.lock();
+        try {
+            if (stopped) {
+                throw new OverloadedException("Приём лайков остановлен");
+            }
+            accepted = shardOf(filmId).queue.offer(operation, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            lock.unlock();
+        }
+        if (!accepted) {
+            log.warn("Очередь лайков фильма {} переполнена", filmId);
+            throw new OverloadedException("Очередь лайков переполнена");
+        }
+        return operation.applied();
+    }
+
+    /**
+     * Ждёт применения операции не дольше {@code await-timeout}. Ошибка хранилища пробрасывается как есть.
+     */
+    public void await(CompletableFuture<Void> operation) {
+        try {
+            operation.get(awaitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new OverloadedException("Лайк принят, но не применён за " + awaitTimeout.toMillis() + " мс");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Ожидание применения лайка прервано");
+        }
+    }
+
+    /**
+     * Число операций в очередях всех шардов.
+     */
+    public int queued() {
+        int queued = 0;
+        for (Shard shard : shards) {
+            queued += shard.queue.size();
+        }
+        return queued;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.queued", this, LikeIngestion::queued)
+                .description("Лайки в очередях асинхронного приёма")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.applied", applied, LongAdder::sum)
+                .description("Лайки, применённые асинхронным приёмом")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.coalesced", coalesced, LongAdder::sum)
+                .description("Лайки, схлопнутые с более поздней операцией той же пары")
+                .register(registry);
+    }
+
+    private Shard shardOf(int filmId) {
+        return shards[Math.floorMod(filmId, shards.length)];
+    }
+
+    private void write(Shard shard) {
+        List<LikeOperation> batch = new ArrayList<>(maxBatch);
+        while (!stopped || !shard.queue.isEmpty()) {
+            try {
+                LikeOperation first = shard.queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            shard.queue.drainTo(batch, maxBatch - 1);
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<LikeOperation> batch) {
+        // последняя операция пары определяет итог: лайк после отмены — лайк, отмена после лайка — отмена
+        Map<Integer, Map<Integer, Boolean>> byFilm = new HashMap<>();
+        for (LikeOperation operation : batch) {
+            byFilm.computeIfAbsent(operation.filmId(), id -> new HashMap<>()).put(operation.userId(), operation.liked());
+        }
+        Map<Integer, RuntimeException> failed = new HashMap<>();
+        List<Integer> changedFilms = new ArrayList<>(byFilm.size());
+        int pairs = 0;
+        for (Map.Entry<Integer, Map<Integer, Boolean>> film : byFilm.entrySet()) {
+            int[] added = new int[film.getValue().size()];
+            int[] removed = new int[film.getValue().size()];
+            int addedSize = 0;
+            int removedSize = 0;
+            for (Map.Entry<Integer, Boolean> pair : film.getValue().entrySet()) {
+                if (pair.getValue()) {
+                    added[addedSize++] = pair.getKey();
+                } else {
+                    removed[removedSize++] = pair.getKey();
+                }
+            }
+            pairs += film.getValue().size();
+            try {
+                // в тренды идёт изменение, подтверждённое хранилищем: повторы между пакетами не учитываются
+                trending.likesChanged(film.getKey(), filmStorage.updateLikes(film.getKey(),
+                        SortedIntSet.of(Arrays.copyOf(added, addedSize)),
+                        SortedIntSet.of(Arrays.copyOf(removed, removedSize))));
+                changedFilms.add(film.getKey());
+            } catch (RuntimeException e) {
+                log.error("Не удалось применить лайки фильма {}", film.getKey(), e);
+                failed.put(film.getKey(), e);
+            }
+        }
+        similarities.likesChanged(changedFilms);
+        applied.add(batch.size());
+        coalesced.add(batch.size() - pairs);
+        for (LikeOperation operation : batch) {
+            RuntimeException error = failed.get(operation.filmId());
+            if (error == null) {
+                operation.applied().complete(null);
+            } else {
+                operation.applied().completeExceptionally(error);
+            }
+        }
+    }
+
+    private record LikeOperation(int filmId, int userId, boolean liked, CompletableFuture<Void> applied) {
+    }
+
+    private static final class Shard {
+        private final BlockingQueue<LikeOperation> queue;
+        private Thread writer;
+
+        private Shard(BlockingQueue<LikeOperation> queue) {
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Тренды: сколько лайков фильм набрал за последний час, сутки или неделю.
+ * <p>
+ * Для каждого окна у фильма есть кольцевой буфер счётчиков по корзинам времени и их скользящая сумма.
+ * Лайк без блокировок прибавляется к корзине текущего момента и к сумме. Когда наступает новая корзина,
+ * первый заметивший это поток обнуляет у всех фильмов корзину, вышедшую из окна, и вычитает её из сумм,
+ * а фильмы с пустым буфером удаляет: память зависит от числа фильмов с лайками в окне, а не от числа лайков.
+ * В буфере на одну корзину больше, чем в окне, — обнуляется корзина, следующая за текущей, и запись
+ * в текущую не теряется. Отмена лайка вычитается из текущей корзины, даже если лайк ставили раньше.
+ * <p>
+ * Лучшие {@link #MAX_TRENDING} фильмов окна поддерживаются инкрементально: фильм, сумма которого выросла
+ * до последнего места топа, вставляется в топ. Уменьшение суммы фильма из топа и истечение корзины
+ * помечают топ устаревшим, и следующий запрос пересобирает его из сумм.
+ */
+@Component
+public class TrendingFilms {
+    public static final int MAX_TRENDING = 100;
+
+    private final Clock clock;
+    private final Map<TrendingWindow, WindowCounts> windows = new EnumMap<>(TrendingWindow.class);
+
+    public TrendingFilms(Clock clock) {
+        this.clock = clock;
+        long now = clock.millis();
+        for (TrendingWindow window : TrendingWindow.values()) {
+            windows.put(window, new WindowCounts(window.getBucket().toMillis(), window.getBuckets(), now));
+        }
+    }
+
+    @Autowired
+    public TrendingFilms(ObjectProvider<Clock> clock) {
+        this(clock.getIfAvailable(Clock::systemUTC));
+    }
+
+    public void likeAdded(int filmId) {
+        likesChanged(filmId, 1);
+    }
+
+    public void likeRemoved(int filmId) {
+        likesChanged(filmId, -1);
+    }
+
+    /**
+     * Учитывает изменение числа лайков фильма, которое хранилище подтвердило как применённое.
+     */
+    public void likesChanged(int filmId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        long now = clock.millis();
+        for (WindowCounts counts : windows.values()) {
+            counts.add(filmId, delta, now);
+        }
+    }
+
+    /**
+     * Id фильмов с наибольшим числом лайков в окне по убыванию, при равенстве — по возрастанию id.
+     * Фильмы без лайков в окне не попадают в ответ.
+     */
+    public List<Integer> top(TrendingWindow window, int count) {
+        return windows.get(window).top(clock.millis(), count);
+    }
+
+    /**
+     * Число лайков фильма в окне за вычетом отмен.
+     */
+    public int likes(TrendingWindow window, int filmId) {
+        WindowCounts counts = windows.get(window);
+        counts.rotate(clock.millis());
+        FilmCounts film = counts.films.get(filmId);
+        return film == null ? 0 : film.total.get();
+    }
+
+    /**
+     * Число фильмов, для которых в окне хранятся счётчики.
+     */
+    public int trackedFilms(TrendingWindow window) {
+        WindowCounts counts = windows.get(window);
+        counts.rotate(clock.millis());
+        return counts.films.size();
+    }
+
+    private static final class WindowCounts {
+        private final long bucketMillis;
+        private final int slots;
+        private final ConcurrentHashMap<Integer, FilmCounts> films = new ConcurrentHashMap<>();
+        private final ReentrantLock rotationLock = new ReentrantLock();
+        private final TopFilms top = new TopFilms(MAX_TRENDING);
+        private volatile long epoch;
+
+        private WindowCounts(long bucketMillis, int buckets, long now) {
+            this.bucketMillis = bucketMillis;
+            this.slots = buckets + 1;
+            this.epoch = Math.floorDiv(now, bucketMillis);
+        }
+
+        private void add(int filmId, int delta, long now) {
+            int slot = (int) Math.floorMod(rotate(now), slots);
+            while (true) {
+                FilmCounts counts = films.computeIfAbsent(filmId, id -> new FilmCounts(slots));
+                int total = counts.add(slot, delta);
+                if (total != FilmCounts.REMOVED) {
+                    top.changed(filmId, total, delta);
+                    return;
+                }
+                // счётчики как раз удаляются из окна: повторяем с новыми
+                Thread.onSpinWait();
+            }
+        }
+
+        private List<Integer> top(long now, int count) {
+            rotate(now);
+            if (top.stale) {
+                top.rebuild(films);
+            }
+            return top.sorted(count);
+        }
+
+        /**
+         * Переходит к корзине момента {@code now} и возвращает номер текущей корзины.
+         * Часы, отстающие от уже начатой корзины, пишут в неё.
+         */
+        private long rotate(long now) {
+            long current = Math.floorDiv(now, bucketMillis);
+            if (current <= epoch) {
+                return epoch;
+            }
+            rotationLock.lock();
+            try {
+                long from = epoch;
+                if (current > from) {
+                    int steps = (int) Math.min(current - from, slots);
+                    boolean expired = false;
+                    for (Map.Entry<Integer, FilmCounts> film : films.entrySet()) {
+                        FilmCounts counts = film.getValue();
+                        for (int step = 1; step <= steps; step++) {
+                            expired |= counts.expire((int) Math.floorMod(from + step + 1, slots));
+                        }
+                        if (counts.tryRemove()) {
+                            films.remove(film.getKey(), counts);
+                        }
+                    }
+                    epoch = current;
+                    if (expired) {
+                        top.stale = true;
+                    }
+                }
+                return epoch;
+            } finally {
+                rotationLock.unlock();
+            }
+        }
+    }
+
+    private static final class FilmCounts {
+        private static final int REMOVED = Integer.MIN_VALUE;
+        private static final int DEAD = -1;
+
+        private final AtomicIntegerArray buckets;
+        private final AtomicInteger total = new AtomicInteger();
+        // число незавершённых записей; DEAD — счётчики удалены из окна и писать в них нельзя
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private FilmCounts(int slots) {
+            this.buckets = new AtomicIntegerArray(slots);
+        }
+
+        /**
+         * Прибавляет лайки к корзине и возвращает новую сумму или {@link #REMOVED}, если счётчики удалены.
+         */
+        private int add(int slot, int delta) {
+            int current;
+            do {
+                current = writers.get();
+                if (current == DEAD) {
+                    return REMOVED;
+                }
+            } while (!writers.compareAndSet(current, current + 1));
+            buckets.getAndAdd(slot, delta);
+            int result = total.addAndGet(delta);
+            writers.decrementAndGet();
+            return result;
+        }
+
+        private boolean expire(int slot) {
+            int expired = buckets.getAndSet(slot, 0);
+            if (expired == 0) {
+                return false;
+            }
+            total.addAndGet(-expired);
+            return true;
+        }
+
+        /**
+         * Помечает пустые счётчики удалёнными. Пустота проверяется после пометки, когда все начатые записи
+         * уже завершились, а новые не начнутся.
+         */
+        private boolean tryRemove() {
+            if (total.get() != 0 || !writers.compareAndSet(0, DEAD)) {
+                return false;
+            }
+            for (int i = 0; i < buckets.length(); i++) {
+                if (buckets.get(i) != 0) {
+                    writers.set(0);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class TopFilms {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] filmIds;
+        private final int[] likes;
+        private int size;
+        // сумма, с которой фильм может попасть в топ; читается без блокировки, чтобы не брать её на каждый лайк
+        private volatile int threshold = 1;
+        private volatile boolean stale;
+
+        private TopFilms(int capacity) {
+            this.filmIds = new int[capacity];
+            this.likes = new int[capacity];
+        }
+
+        private void changed(int filmId, int total, int delta) {
+            if (delta > 0 && total < threshold) {
+                return;
+            }
+            lock.lock();
+            try {
+                int index = indexOf(filmId);
+                if (delta > 0) {
+                    if (index >= 0) {
+                        likes[index] = Math.max(likes[index], total);
+                    } else {
+                        offer(filmId, total);
+                    }
+                } else if (index >= 0) {
+                    // на освободившееся место может претендовать фильм вне топа
+                    likes[index] = total;
+                    stale = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void rebuild(Map<Integer, FilmCounts> films) {
+            lock.lock();
+            try {
+                stale = false;
+                size = 0;
+                threshold = 1;
+                for (Map.Entry<Integer, FilmCounts> film : films.entrySet()) {
+                    int total = film.getValue().total.get();
+                    if (total >= threshold) {
+                        offer(film.getKey(), total);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private List<Integer> sorted(int count) {
+            long[] ranks;
+            lock.lock();
+            try {
+                ranks = new long[size];
+                for (int i = 0; i < size; i++) {
+                    if (likes[i] > 0) {
+                        ranks[i] = (long) likes[i] << 32 | (Integer.MAX_VALUE - filmIds[i]);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            Arrays.sort(ranks);
+            List<Integer> result = new ArrayList<>(Math.min(count, ranks.length));
+            for (int i = ranks.length - 1; i >= 0 && result.size() < count && ranks[i] > 0; i--) {
+                result.add(Integer.MAX_VALUE - (int) ranks[i]);
+            }
+            return result;
+        }
+
+        private void offer(int filmId, int total) {
+            if (size < filmIds.length) {
+                filmIds[size] = filmId;
+                likes[size] = total;
+                size++;
+            } else {
+                int last = last();
+                if (total < likes[last] || total == likes[last] && filmId > filmIds[last]) {
+                    return;
+                }
+                filmIds[last] = filmId;
+                likes[last] = total;
+            }
+            threshold = size < filmIds.length ? 1 : likes[last()];
+        }
+
+        // фильм на последнем месте: меньше всего лайков, при равенстве — наибольший id
+        private int last() {
+            int last = 0;
+            for (int i = 1; i < size; i++) {
+                if (likes[i] < likes[last] || likes[i] == likes[last] && filmIds[i] > filmIds[last]) {
+                    last = i;
+                }
+            }
+            return last;
+        }
+
+        private int indexOf(int filmId) {
+            for (int i = 0; i < size; i++) {
+                if (filmIds[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
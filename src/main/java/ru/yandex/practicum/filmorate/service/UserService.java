@@ -1,30 +1,55 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserRecommendation;
+import ru.yandex.practicum.filmorate.model.UserSummary;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
+@Timed(value = "filmorate.service", histogram = true)
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 10_000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final UserStorage userStorage;
+    private final FriendRecommendations recommendations;
 
-    @Autowired
     public UserService(UserStorage userStorage) {
+        this(userStorage, new FriendRecommendations(userStorage));
+    }
+
+    @Autowired
+    public UserService(UserStorage userStorage, FriendRecommendations recommendations) {
         this.userStorage = userStorage;
+        this.recommendations = recommendations;
     }
 
     public User createNewUser(User user) {
         return userStorage.addUser(user);
     }
 
+    public List<BatchItemResult> createNewUsers(List<User> users) {
+        checkBatch(users);
+        return userStorage.addUsers(users);
+    }
+
     public User updateUser(User user) {
         return userStorage.updateUser(user);
     }
@@ -33,6 +58,32 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public Page<User> getUsersPage(Integer after, Integer limit) {
+        int afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        checkPage(afterId, pageSize);
+        return Page.of(userStorage.getUsersPage(afterId, pageSize + 1), pageSize, User::getId);
+    }
+
+    public User getUser(Integer id) {
+        User user = userStorage.getUserOnId(id);
+        if (user == null) {
+            log.error("Запрошен несуществующий пользователь {}", id);
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return user;
+    }
+
+    /**
+     * Id друзей пользователя по возрастанию начиная после {@code after}.
+     */
+    public Page<Integer> getFriendIds(Integer id, Integer after, Integer limit) {
+        int afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        checkPage(afterId, pageSize);
+        return Page.of(getUser(id).getFriends().after(afterId, pageSize + 1), pageSize, Integer::intValue);
+    }
+
     public List<User> getMutualFriends(Integer userId, Integer otherId) {
         if (userId == null || otherId == null) {
             log.error("Передан пустой id");
@@ -48,17 +99,7 @@ public class UserService {
             log.error("У пользователей пока нет друзей");
             throw new ValidationException("У пользователей пока нет друзей");
         }
-        List<Integer> userFriends = new ArrayList<>(user.getFriends());
-        List<Integer> otherFriends = new ArrayList<>(other.getFriends());
-        userFriends.retainAll(otherFriends);
-        List<User> mutualFriends = new ArrayList<>();
-        for (Integer friendId : userFriends) {
-            User friend = userStorage.getUserOnId(friendId);
-            if (friend != null) {
-                mutualFriends.add(friend);
-            }
-        }
-        return mutualFriends;
+        return userStorage.getCommonFriends(userId, otherId);
     }
 
     public void addUserToFriends(Integer userId, Integer friendId) {
@@ -76,9 +117,49 @@ public class UserService {
         if (isFriends(userId, friendId)) {
             throw new ValidationException("Пользователи уже друзья");
         }
-        userStorage.getUserOnId(userId).setFriends(friendId);
-        userStorage.getUserOnId(friendId).setFriends(userId);
+        userStorage.addFriend(userId, friendId);
+        recommendations.friendshipChanged(userId, friendId);
+    }
 
+    public List<BatchItemResult> addFriendships(List<Friendship> friendships) {
+        checkBatch(friendships);
+        Set<Integer> userIds = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            if (friendship != null) {
+                userIds.add(friendship.getUserId());
+                userIds.add(friendship.getFriendId());
+            }
+        }
+        userIds.remove(null);
+        Set<Integer> existingUsers = new HashSet<>();
+        for (User user : userStorage.getUsersByIds(userIds)) {
+            existingUsers.add(user.getId());
+        }
+        List<BatchItemResult> results = new ArrayList<>(friendships.size());
+        List<Friendship> validFriendships = new ArrayList<>(friendships.size());
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship == null || friendship.getUserId() == null || friendship.getFriendId() == null) {
+                results.add(BatchItemResult.failure(i, "Передан пустой id"));
+            } else if (friendship.getUserId().equals(friendship.getFriendId())) {
+                results.add(BatchItemResult.failure(i, "Нельзя добавить себя в друзья"));
+            } else if (!existingUsers.contains(friendship.getUserId())
+                    || !existingUsers.contains(friendship.getFriendId())) {
+                results.add(BatchItemResult.failure(i, "Пользователь не найден"));
+            } else {
+                validFriendships.add(friendship);
+                results.add(BatchItemResult.success(i, friendship.getUserId()));
+            }
+        }
+        userStorage.addFriendships(validFriendships);
+        Set<Integer> changed = new HashSet<>();
+        for (Friendship friendship : validFriendships) {
+            changed.add(friendship.getUserId());
+            changed.add(friendship.getFriendId());
+        }
+        recommendations.friendshipsChanged(changed);
+        log.info("Пакетно добавлено дружб: {} из {}", validFriendships.size(), friendships.size());
+        return results;
     }
 
     public void removeFriend(Integer userId, Integer friendId) {
@@ -91,8 +172,8 @@ public class UserService {
             throw new NotFoundException("Пользователь не был найден");
         }
         if (isFriends(userId, friendId)) {
-            userStorage.getUserOnId(friendId).removeOnFriend(userId);
-            userStorage.getUserOnId(userId).removeOnFriend(friendId);
+            userStorage.removeFriend(userId, friendId);
+            recommendations.friendshipChanged(userId, friendId);
         }
     }
 
@@ -102,17 +183,64 @@ public class UserService {
             log.error("Пользователь не был найден");
             throw new NotFoundException("пользователь не был найден");
         }
-        HashSet<User> friends = new HashSet<>();
-        for (Integer userId : user.getFriends()) {
-            if (userStorage.getAllUsers().contains(userStorage.getUserOnId(userId))) {
-                friends.add(userStorage.getUserOnId(userId));
+        return userStorage.getUsersByIds(user.getFriends());
+    }
+
+    /**
+     * Пользователи с наибольшим числом общих друзей, которые ещё не друзья {@code userId}.
+     */
+    public List<UserRecommendation> getRecommendations(Integer userId, Integer count) {
+        if (count <= 0 || count > FriendRecommendations.MAX_RECOMMENDATIONS) {
+            log.error("Передано некорректное число рекомендаций {}", count);
+            throw new ValidationException("Параметр count должен быть от 1 до "
+                    + FriendRecommendations.MAX_RECOMMENDATIONS);
+        }
+        getUser(userId);
+        List<FriendRecommendations.Recommendation> top = recommendations.recommend(userId);
+        top = top.subList(0, Math.min(count, top.size()));
+        Map<Integer, User> users = new HashMap<>();
+        for (User user : userStorage.getUsersByIds(top.stream().map(FriendRecommendations.Recommendation::userId)
+                .toList())) {
+            users.put(user.getId(), user);
+        }
+        List<UserRecommendation> result = new ArrayList<>(top.size());
+        for (FriendRecommendations.Recommendation recommendation : top) {
+            User user = users.get(recommendation.userId());
+            // пользователь мог быть удалён после расчёта
+            if (user != null) {
+                result.add(new UserRecommendation(UserSummary.of(user), recommendation.mutualFriends()));
             }
         }
-        return new ArrayList<>(friends);
+        return result;
+    }
+
+    public VersionStamp getFriendsVersion(Integer userId) {
+        return userStorage.getFriendsVersion(userId);
+    }
+
+    private void checkPage(int afterId, int pageSize) {
+        if (afterId < 0) {
+            log.error("Передан отрицательный курсор after {}", afterId);
+            throw new ValidationException("Параметр after не может быть отрицательным");
+        }
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            log.error("Передан некорректный размер страницы {}", pageSize);
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private void checkBatch(List<?> items) {
+        if (items == null) {
+            throw new ValidationException("пустое тело запроса");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            log.error("Передан пакет из {} элементов", items.size());
+            throw new ValidationException("Пакет не может содержать более " + MAX_BATCH_SIZE + " элементов");
+        }
     }
 
     private boolean isFriends(Integer userId, Integer friendId) {
-        return userStorage.getUserOnId(userId).getFriends().contains(friendId) &&
-                userStorage.getUserOnId(friendId).getFriends().contains(userId);
+        return userStorage.getUserOnId(userId).hasFriend(friendId) &&
+                userStorage.getUserOnId(friendId).hasFriend(userId);
     }
 }
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@Slf4j
+final class BatchValidation {
+
+    private BatchValidation() {
+    }
+
+    static <T> BatchItemResult[] validate(List<T> items, Consumer<T> validator) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                validator.accept(items.get(i));
+            } catch (ValidationException e) {
+                results[i] = BatchItemResult.failure(i, e.getMessage());
+            } catch (RuntimeException e) {
+                // ошибка в одном элементе не должна срывать весь пакет
+                log.error("Не удалось проверить элемент пакета {}", i, e);
+                results[i] = BatchItemResult.failure(i, "некорректные данные элемента");
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Кэш фильмов по id перед основным хранилищем. Запись идёт сразу в хранилище,
+ * после чего затронутые фильмы вытесняются из кэша.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final Cache<Integer, Film> films;
+
+    @Autowired
+    public CachingFilmStorage(@Qualifier("filmStorage") FilmStorage delegate,
+                              @Value("${filmorate.cache.films.maximum-size:10000}") long maximumSize) {
+        this.delegate = delegate;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return delegate.addFilm(film);
+    }
+
+    @Override
+    public List<BatchItemResult> addFilms(List<Film> films) {
+        return delegate.addFilms(films);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        try {
+            return delegate.updateFilm(film);
+        } finally {
+            evict(film);
+        }
+    }
+
+    @Override
+    public Film removeFilm(Film film) {
+        try {
+            return delegate.removeFilm(film);
+        } finally {
+            evict(film);
+        }
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return delegate.getFilmsPage(afterId, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        delegate.forEachFilm(action);
+    }
+
+    @Override
+    public Film getFilmOnId(Integer id) {
+        if (id == null) {
+            return delegate.getFilmOnId(null);
+        }
+        return films.get(id, delegate::getFilmOnId);
+    }
+
+    @Override
+    public Set<Integer> getExistingFilmIds(Collection<Integer> ids) {
+        return delegate.getExistingFilmIds(ids);
+    }
+
+    @Override
+    public boolean containsFilm(int id) {
+        return films.getIfPresent(id) != null || delegate.containsFilm(id);
+    }
+
+    @Override
+    public List<Integer> getFilmLikes(int filmId, int afterId, int limit) {
+        return delegate.getFilmLikes(filmId, afterId, limit);
+    }
+
+    @Override
+    public SortedIntSet getLikingUserIds(int filmId) {
+        return delegate.getLikingUserIds(filmId);
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            evict(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            evict(filmId);
+        }
+    }
+
+    @Override
+    public int updateLikes(int filmId, SortedIntSet added, SortedIntSet removed) {
+        try {
+            return delegate.updateLikes(filmId, added, removed);
+        } finally {
+            evict(filmId);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> addLikes(Collection<FilmLike> likes) {
+        try {
+            return delegate.addLikes(likes);
+        } finally {
+            Set<Integer> filmIds = new HashSet<>();
+            for (FilmLike like : likes) {
+                if (like.getFilmId() != null) {
+                    filmIds.add(like.getFilmId());
+                }
+            }
+            films.invalidateAll(filmIds);
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, FilmFilter filter) {
+        return delegate.getPopularFilms(count, filter);
+    }
+
+    @Override
+    public List<Film> getLikedFilms(int userId) {
+        return delegate.getLikedFilms(userId);
+    }
+
+    @Override
+    public SortedIntSet getLikedFilmIds(int userId) {
+        return delegate.getLikedFilmIds(userId);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return delegate.searchFilms(query, count);
+    }
+
+    @Override
+    public VersionStamp getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public VersionStamp getPopularityVersion() {
+        return delegate.getPopularityVersion();
+    }
+
+    @Override
+    public long countFilms() {
+        return delegate.countFilms();
+    }
+
+    @Override
+    public long countLikes() {
+        return delegate.countLikes();
+    }
+
+    public CacheStats getCacheStats() {
+        return films.stats();
+    }
+
+    void evictAll() {
+        films.invalidateAll();
+    }
+
+    private void evict(Film film) {
+        if (film != null) {
+            evict(film.getId());
+        }
+    }
+
+    private void evict(Integer id) {
+        if (id != null) {
+            films.invalidate(id);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш пользователей по id перед основным хранилищем. В кэше лежат пользователи вместе
+ * со списком друзей, поэтому изменение дружбы вытесняет обоих пользователей.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final CachingFilmStorage filmCache;
+    private final Cache<Integer, User> users;
+    // растёт при каждом вытеснении; пакетная загрузка по нему узнаёт, что могла прочитать устаревшие данные
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public CachingUserStorage(@Qualifier("userStorage") UserStorage delegate, CachingFilmStorage filmCache,
+                              @Value("${filmorate.cache.users.maximum-size:10000}") long maximumSize) {
+        this.delegate = delegate;
+        this.filmCache = filmCache;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public User addUser(User user) {
+        return delegate.addUser(user);
+    }
+
+    @Override
+    public List<BatchItemResult> addUsers(List<User> users) {
+        return delegate.addUsers(users);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        try {
+            return delegate.updateUser(user);
+        } finally {
+            evict(user == null ? null : user.getId());
+        }
+    }
+
+    @Override
+    public User removeUser(User user) {
+        User removed = null;
+        try {
+            removed = delegate.removeUser(user);
+            return removed;
+        } finally {
+            evict(user == null ? null : user.getId());
+            if (removed != null) {
+                // вместе с пользователем пропадают его дружбы и лайки
+                evictAll(removed.getFriends());
+                filmCache.evictAll();
+            }
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        return delegate.getUsersPage(afterId, limit);
+    }
+
+    @Override
+    public User getUserOnId(Integer id) {
+        if (id == null) {
+            return delegate.getUserOnId(null);
+        }
+        return users.get(id, delegate::getUserOnId);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        Set<Integer> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        Map<Integer, User> cached = users.getAllPresent(distinct);
+        if (cached.size() < distinct.size()) {
+            List<Integer> missing = new ArrayList<>(distinct.size() - cached.size());
+            for (Integer id : distinct) {
+                if (!cached.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            long evictionsBefore = evictions.get();
+            List<User> loaded = delegate.getUsersByIds(missing);
+            Map<Integer, User> merged = new HashMap<>(cached);
+            for (User user : loaded) {
+                merged.put(user.getId(), user);
+                users.put(user.getId(), user);
+            }
+            if (evictions.get() != evictionsBefore) {
+                users.invalidateAll(missing);
+            }
+            cached = merged;
+        }
+        List<User> result = new ArrayList<>(cached.size());
+        for (Integer id : distinct) {
+            User user = cached.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void addFriend(Integer userId, Integer friendId) {
+        try {
+            delegate.addFriend(userId, friendId);
+        } finally {
+            evict(userId);
+            evict(friendId);
+        }
+    }
+
+    @Override
+    public void removeFriend(Integer userId, Integer friendId) {
+        try {
+            delegate.removeFriend(userId, friendId);
+        } finally {
+            evict(userId);
+            evict(friendId);
+        }
+    }
+
+    @Override
+    public void addFriendships(Collection<Friendship> friendships) {
+        try {
+            delegate.addFriendships(friendships);
+        } finally {
+            Set<Integer> userIds = new HashSet<>();
+            for (Friendship friendship : friendships) {
+                userIds.add(friendship.getUserId());
+                userIds.add(friendship.getFriendId());
+            }
+            evictAll(userIds);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId) {
+        return delegate.getCommonFriends(userId, otherId);
+    }
+
+    @Override
+    public VersionStamp getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public VersionStamp getFriendsVersion(int userId) {
+        return delegate.getFriendsVersion(userId);
+    }
+
+    @Override
+    public long countUsers() {
+        return delegate.countUsers();
+    }
+
+    @Override
+    public long countFriendships() {
+        return delegate.countFriendships();
+    }
+
+    public CacheStats getCacheStats() {
+        return users.stats();
+    }
+
+    private void evict(Integer id) {
+        if (id != null) {
+            evictions.incrementAndGet();
+            users.invalidate(id);
+        }
+    }
+
+    private void evictAll(Collection<Integer> ids) {
+        evictions.incrementAndGet();
+        for (Integer id : ids) {
+            if (id != null) {
+                users.invalidate(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.id.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionCounter;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component("filmStorage")
+@Profile("db")
+public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS =
+            "SELECT id, name, description, release_date, duration, mpa, likes FROM films";
+    // текст приводится к тому же виду, что и слова FilmSearchIndex.tokens
+    private static final String SEARCH_NAME = "REPLACE(LOWER(name), 'ё', 'е')";
+    private static final String SEARCH_DESCRIPTION = "REPLACE(LOWER(description), 'ё', 'е')";
+    private static final String WORD_START = "(^|[^\\p{L}\\p{N}])";
+    private static final String WORD_END = "($|[^\\p{L}\\p{N}])";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SimpleJdbcInsert filmInsert;
+    private final VersionCounter version = new VersionCounter();
+    private final IdGenerator idGenerator;
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingColumns("id", "name", "description", "release_date", "duration", "mpa", "likes");
+        // id выдаются приложением, а не базой: пакетная вставка обходится без возврата сгенерированных ключей
+        this.idGenerator = new AtomicIdGenerator(
+                jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM films", Integer.class));
+    }
+
+    @Override
+    @Transactional
+    public Film addFilm(Film film) {
+        FilmValidator.validateNew(film);
+        film.setId(idGenerator.nextId());
+        MapSqlParameterSource row = new MapSqlParameterSource()
+                .addValue("id", film.getId())
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("release_date", Date.valueOf(film.getReleaseDate()))
+                .addValue("duration", film.getDuration())
+                .addValue("mpa", mpaName(film))
+                .addValue("likes", 0);
+        filmInsert.execute(row);
+        film.setUsersIdLike(SortedIntSet.EMPTY);
+        saveGenres(film);
+        changed();
+        log.info("Добавлен фильм {}", film.getName());
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> addFilms(List<Film> films) {
+        BatchItemResult[] results = BatchValidation.validate(films, FilmValidator::validateNew);
+        List<Film> valid = new ArrayList<>();
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                Film film = films.get(i);
+                film.setId(idGenerator.nextId());
+                valid.add(film);
+                rows.add(new MapSqlParameterSource()
+                        .addValue("id", film.getId())
+                        .addValue("name", film.getName())
+                        .addValue("description", film.getDescription())
+                        .addValue("release_date", Date.valueOf(film.getReleaseDate()))
+                        .addValue("duration", film.getDuration())
+                        .addValue("mpa", mpaName(film)));
+            }
+        }
+        if (!valid.isEmpty()) {
+            namedJdbcTemplate.batchUpdate("INSERT INTO films (id, name, description, release_date, duration, mpa) " +
+                            "VALUES (:id, :name, :description, :release_date, :duration, :mpa)",
+                    rows.toArray(new SqlParameterSource[0]));
+            for (Film film : valid) {
+                film.setUsersIdLike(SortedIntSet.EMPTY);
+                saveGenres(film);
+            }
+            changed();
+        }
+        int next = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = BatchItemResult.success(i, valid.get(next++).getId());
+            }
+        }
+        log.info("Пакетно добавлено фильмов: {} из {}", valid.size(), films.size());
+        return List.of(results);
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
+        FilmValidator.validateUpdate(film);
+        int updated = jdbcTemplate.update(
+                "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa = ? WHERE id = ?",
+                film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()), film.getDuration(),
+                mpaName(film), film.getId());
+        if (updated == 0) {
+            log.error("Фильма с Id {} не был найден", film.getId());
+            throw new NotFoundException("Фильм не найден");
+        }
+        jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?", film.getId());
+        saveGenres(film);
+        changed();
+        log.info("Фильм с именем {} и Id {}", film.getName(), film.getId());
+        return getFilmOnId(film.getId());
+    }
+
+    @Override
+    @Transactional
+    public Film removeFilm(Film film) {
+        if (film == null) {
+            log.error("");
+            throw new ValidationException("");
+        }
+        Film removedFilm = getFilmOnId(film.getId());
+        if (removedFilm != null) {
+            jdbcTemplate.update("DELETE FROM films WHERE id = ?", film.getId());
+            changed();
+        }
+        return removedFilm;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return withGenres(jdbcTemplate.query(SELECT_FILMS + " ORDER BY id", this::mapFilm));
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return withGenres(jdbcTemplate.query(SELECT_FILMS + " WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapFilm, afterId, limit));
+    }
+
+    /**
+     * В отличие от списков, фильмы отдаются с полными множествами лайков: по ним строится матрица похожести
+     * и выгрузка.
+     */
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        int afterId = 0;
+        List<Film> batch;
+        do {
+            batch = withLikes(getFilmsPage(afterId, EXPORT_BATCH_SIZE));
+            for (Film film : batch) {
+                action.accept(film);
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.getLast().getId();
+            }
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+    }
+
+    @Override
+    public Film getFilmOnId(Integer id) {
+        List<Film> films = withGenres(jdbcTemplate.query(SELECT_FILMS + " WHERE id = ?", this::mapFilm, id));
+        return films.isEmpty() ? null : films.getFirst();
+    }
+
+    @Override
+    public Set<Integer> getExistingFilmIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (List<Integer> chunk : IdChunks.split(new HashSet<>(ids))) {
+            existing.addAll(namedJdbcTemplate.queryForList("SELECT id FROM films WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk), Integer.class));
+        }
+        return existing;
+    }
+
+    @Override
+    public boolean containsFilm(int id) {
+        return jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)", Boolean.class, id);
+    }
+
+    @Override
+    public List<Integer> getFilmLikes(int filmId, int afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT user_id FROM likes_users WHERE film_id = ? AND user_id > ? " +
+                "ORDER BY user_id LIMIT ?", Integer.class, filmId, afterId, limit);
+    }
+
+    @Override
+    public SortedIntSet getLikingUserIds(int filmId) {
+        return SortedIntSet.copyOf(jdbcTemplate.queryForList("SELECT user_id FROM likes_users WHERE film_id = ?",
+                Integer.class, filmId));
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Integer filmId, Integer userId) {
+        try {
+            jdbcTemplate.update("INSERT INTO likes_users (film_id, user_id) VALUES (?, ?)", filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            log.error("Фильм с Id {} или пользователь с Id {} не найден", filmId, userId);
+            throw new NotFoundException("фильм не найден");
+        }
+        jdbcTemplate.update("UPDATE films SET likes = likes + 1 WHERE id = ?", filmId);
+        changed();
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(Integer filmId, Integer userId) {
+        if (!containsFilm(filmId)) {
+            log.error("Фильм с Id {} не был найден", filmId);
+            throw new NotFoundException("фильм не найден");
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM likes_users WHERE film_id = ? AND user_id = ?",
+                filmId, userId);
+        if (deleted == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes = likes - 1 WHERE id = ?", filmId);
+        changed();
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public Map<Integer, Integer> addLikes(Collection<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return Map.of();
+        }
+        List<Object[]> rows = new ArrayList<>(likes.size());
+        Set<Integer> filmIds = new HashSet<>();
+        for (FilmLike like : likes) {
+            rows.add(new Object[]{like.getFilmId(), like.getUserId()});
+            filmIds.add(like.getFilmId());
+        }
+        Map<Integer, Integer> before = likeCounts(filmIds);
+        jdbcTemplate.batchUpdate("MERGE INTO likes_users (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)",
+                rows);
+        for (List<Integer> chunk : IdChunks.split(filmIds)) {
+            namedJdbcTemplate.update("UPDATE films SET likes = " +
+                            "(SELECT COUNT(*) FROM likes_users AS l WHERE l.film_id = films.id) WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk));
+        }
+        changed();
+        Map<Integer, Integer> added = new HashMap<>();
+        likeCounts(filmIds).forEach((filmId, count) -> {
+            int delta = count - before.getOrDefault(filmId, count);
+            if (delta > 0) {
+                added.put(filmId, delta);
+            }
+        });
+        return added;
+    }
+
+    private Map<Integer, Integer> likeCounts(Set<Integer> filmIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (List<Integer> chunk : IdChunks.split(filmIds)) {
+            namedJdbcTemplate.query("SELECT id, likes FROM films WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        counts.put(rs.getInt("id"), rs.getInt("likes"));
+                    });
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return withGenres(jdbcTemplate.query(SELECT_FILMS + " ORDER BY likes DESC, id LIMIT ?",
+                this::mapFilm, count));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, FilmFilter filter) {
+        StringBuilder sql = new StringBuilder(SELECT_FILMS + " WHERE 1 = 1");
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+        if (filter.genre() != null) {
+            sql.append(" AND id IN (SELECT fg.film_id FROM film_genre AS fg JOIN genre AS g ON g.id = fg.genre_id " +
+                    "WHERE g.name = :genre)");
+            params.addValue("genre", filter.genre());
+        }
+        if (filter.mpa() != null) {
+            sql.append(" AND mpa = :mpa");
+            params.addValue("mpa", filter.mpa().name());
+        }
+        if (filter.year() != null) {
+            sql.append(" AND release_date >= :from AND release_date < :to");
+            params.addValue("from", Date.valueOf(LocalDate.of(filter.year(), 1, 1)));
+            params.addValue("to", Date.valueOf(LocalDate.of(filter.year() + 1, 1, 1)));
+        }
+        sql.append(" ORDER BY likes DESC, id LIMIT :count");
+        return withGenres(namedJdbcTemplate.query(sql.toString(), params, this::mapFilm));
+    }
+
+    @Override
+    public List<Film> getLikedFilms(int userId) {
+        return withGenres(jdbcTemplate.query(SELECT_FILMS +
+                " WHERE id IN (SELECT film_id FROM likes_users WHERE user_id = ?) ORDER BY id", this::mapFilm, userId));
+    }
+
+    @Override
+    public SortedIntSet getLikedFilmIds(int userId) {
+        return SortedIntSet.copyOf(jdbcTemplate.queryForList("SELECT film_id FROM likes_users WHERE user_id = ?",
+                Integer.class, userId));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        List<String> tokens = new ArrayList<>(FilmSearchIndex.tokens(query));
+        if (tokens.isEmpty() || count <= 0) {
+            return List.of();
+        }
+        tokens = tokens.subList(0, Math.min(tokens.size(), FilmSearchIndex.MAX_QUERY_TOKENS));
+        // оценка повторяет FilmSearchIndex: для каждого слова берётся лучшее совпадение, к сумме прибавляются лайки
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        StringBuilder score = new StringBuilder(FilmSearchIndex.LIKES_WEIGHT + " * LN(likes + 1)");
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+        for (int i = 0; i < tokens.size(); i++) {
+            where.append(" AND (REGEXP_LIKE(" + SEARCH_NAME + ", :prefix" + i + ") OR REGEXP_LIKE("
+                    + SEARCH_DESCRIPTION + ", :prefix" + i + "))");
+            score.append(" + CASE WHEN REGEXP_LIKE(" + SEARCH_NAME + ", :exact" + i + ") THEN "
+                    + FilmSearchIndex.NAME_WEIGHT
+                    + " WHEN REGEXP_LIKE(" + SEARCH_NAME + ", :prefix" + i + ") THEN "
+                    + FilmSearchIndex.NAME_WEIGHT * FilmSearchIndex.PREFIX_WEIGHT
+                    + " WHEN REGEXP_LIKE(" + SEARCH_DESCRIPTION + ", :exact" + i + ") THEN "
+                    + FilmSearchIndex.DESCRIPTION_WEIGHT
+                    + " ELSE " + FilmSearchIndex.DESCRIPTION_WEIGHT * FilmSearchIndex.PREFIX_WEIGHT + " END");
+            params.addValue("prefix" + i, WORD_START + tokens.get(i));
+            params.addValue("exact" + i, WORD_START + tokens.get(i) + WORD_END);
+        }
+        String sql = SELECT_FILMS + where + " ORDER BY " + score + " DESC, id LIMIT :count";
+        return withGenres(namedJdbcTemplate.query(sql, params, this::mapFilm));
+    }
+
+    @Override
+    public VersionStamp getVersion() {
+        return version.current();
+    }
+
+    @Override
+    public long countFilms() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public long countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes_users", Long.class);
+    }
+
+    void changed() {
+        TransactionalVersions.incrementAfterCompletion(version);
+    }
+
+    private void saveGenres(Film film) {
+        if (film.getGenreOfFilm() == null || film.getGenreOfFilm().isEmpty()) {
+            return;
+        }
+        List<Object[]> genres = new ArrayList<>();
+        for (String genre : film.getGenreOfFilm()) {
+            genres.add(new Object[]{genre});
+        }
+        jdbcTemplate.batchUpdate("MERGE INTO genre (name) KEY (name) VALUES (?)", genres);
+        List<Object[]> links = new ArrayList<>();
+        for (String genre : film.getGenreOfFilm()) {
+            links.add(new Object[]{film.getId(), genre});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) SELECT ?, id FROM genre WHERE name = ?",
+                links);
+    }
+
+    /**
+     * Дополняет фильмы жанрами. Лайки берутся из столбца {@code likes}: списки и карточки показывают только
+     * их число, а id поставивших лайк пользователей читаются постранично {@link #getFilmLikes}.
+     */
+    private List<Film> withGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = new LinkedHashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        for (List<Integer> chunk : IdChunks.split(filmsById.keySet())) {
+            namedJdbcTemplate.query("SELECT fg.film_id, g.name FROM film_genre AS fg " +
+                            "JOIN genre AS g ON g.id = fg.genre_id WHERE fg.film_id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        Film film = filmsById.get(rs.getInt("film_id"));
+                        if (film.getGenreOfFilm() == null) {
+                            film.setGenreOfFilm(new HashSet<>());
+                        }
+                        film.getGenreOfFilm().add(rs.getString("name"));
+                    });
+        }
+        return films;
+    }
+
+    private List<Film> withLikes(List<Film> films) {
+        Map<Integer, List<Integer>> likesByFilm = new HashMap<>();
+        for (Film film : films) {
+            likesByFilm.put(film.getId(), new ArrayList<>());
+        }
+        for (List<Integer> chunk : IdChunks.split(likesByFilm.keySet())) {
+            namedJdbcTemplate.query("SELECT film_id, user_id FROM likes_users WHERE film_id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        likesByFilm.get(rs.getInt("film_id")).add(rs.getInt("user_id"));
+                    });
+        }
+        for (Film film : films) {
+            film.setUsersIdLike(SortedIntSet.copyOf(likesByFilm.get(film.getId())));
+        }
+        return films;
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        Date releaseDate = rs.getDate("release_date");
+        film.setReleaseDate(releaseDate == null ? null : releaseDate.toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        String mpa = rs.getString("mpa");
+        film.setRaiting(mpa == null ? null : MPA.valueOf(mpa));
+        film.setLikesCount(rs.getInt("likes"));
+        return film;
+    }
+
+    private String mpaName(Film film) {
+        return film.getRaiting() == null ? null : film.getRaiting().name();
+    }
+}
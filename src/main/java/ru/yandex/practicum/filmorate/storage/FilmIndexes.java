@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Индексы популярности: общий и вторичные — по жанру, рейтингу MPA и году выхода. Рейтинги лежат в массиве
+ * по порядковому номеру перечисления, жанры и годы — в хеш-таблицах. Запрос с фильтром обходит самый узкий
+ * из подходящих индексов по убыванию популярности и проверяет остальные условия, пока не наберёт нужное число.
+ * Число лайков фильма по id хранится в страницах массива, как в {@link LikedFilmsIndex}, и читается без обхода
+ * дерева. Обновления одного фильма должны выполняться под его блокировкой в хранилище.
+ * Методы изменения возвращают true, если мог измениться топ общего индекса или индекса по одному условию
+ * фильтра, см. {@link PopularityIndex#changesTop(int)}.
+ */
+public class FilmIndexes {
+    private static final MPA[] RATINGS = MPA.values();
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final PopularityIndex all = new PopularityIndex();
+    private final PopularityIndex[] byMpa = new PopularityIndex[RATINGS.length];
+    private final Map<String, PopularityIndex> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, PopularityIndex> byYear = new ConcurrentHashMap<>();
+    // лайки + 1, ноль — фильма нет
+    private final AtomicReferenceArray<AtomicIntegerArray> likes =
+            new AtomicReferenceArray<>(1 << (Integer.SIZE - PAGE_BITS));
+
+    public FilmIndexes() {
+        for (int i = 0; i < byMpa.length; i++) {
+            byMpa[i] = new PopularityIndex();
+        }
+    }
+
+    /**
+     * Общий индекс популярности всех фильмов.
+     */
+    public PopularityIndex all() {
+        return all;
+    }
+
+    /**
+     * Число лайков фильма или -1, если фильма нет.
+     */
+    public int likes(int filmId) {
+        AtomicIntegerArray page = likes.get(filmId >>> PAGE_BITS);
+        return page == null ? -1 : page.get(filmId & PAGE_MASK) - 1;
+    }
+
+    public boolean add(Film film) {
+        boolean topChanged = false;
+        for (PopularityIndex index : indexesOf(film, true)) {
+            topChanged |= index.add(film.getId(), film.getLikes());
+        }
+        setLikes(film.getId(), film.getLikes());
+        return topChanged;
+    }
+
+    /**
+     * Убирает фильм из индексов. Атрибуты берутся у {@code film}, поэтому при обновлении передаётся прежний объект.
+     */
+    public boolean remove(Film film, int likes) {
+        boolean topChanged = false;
+        for (PopularityIndex index : indexesOf(film, false)) {
+            topChanged |= index.remove(film.getId(), likes);
+        }
+        setLikes(film.getId(), -1);
+        return topChanged;
+    }
+
+    /**
+     * Переносит фильм между индексами после смены атрибутов. В индексах, общих для старой и новой версии,
+     * фильм не трогается, поэтому читатели его не теряют, но топ в них тоже считается изменённым:
+     * в ответе есть атрибуты фильма.
+     */
+    public boolean replace(Film oldFilm, Film newFilm) {
+        List<PopularityIndex> before = indexesOf(oldFilm, false);
+        List<PopularityIndex> after = indexesOf(newFilm, true);
+        boolean topChanged = false;
+        for (PopularityIndex index : after) {
+            if (!before.contains(index)) {
+                topChanged |= index.add(newFilm.getId(), newFilm.getLikes());
+            } else {
+                topChanged |= index.changesTop(newFilm.getLikes());
+            }
+        }
+        for (PopularityIndex index : before) {
+            if (!after.contains(index)) {
+                topChanged |= index.remove(oldFilm.getId(), oldFilm.getLikes());
+            }
+        }
+        return topChanged;
+    }
+
+    public boolean update(Film film, int oldLikes, int newLikes) {
+        boolean topChanged = false;
+        for (PopularityIndex index : indexesOf(film, false)) {
+            topChanged |= index.update(film.getId(), oldLikes, newLikes);
+        }
+        setLikes(film.getId(), newLikes);
+        return topChanged;
+    }
+
+    public void clear() {
+        all.clear();
+        for (PopularityIndex index : byMpa) {
+            index.clear();
+        }
+        byGenre.clear();
+        byYear.clear();
+        for (int i = 0; i < likes.length(); i++) {
+            likes.set(i, null);
+        }
+    }
+
+    /**
+     * Id самых популярных фильмов под фильтром. {@code matches} проверяет фильм целиком и отсекает фильмы,
+     * изменившиеся после того, как индекс их вернул.
+     */
+    public List<Integer> top(int count, FilmFilter filter, IntPredicate matches) {
+        if (filter.isEmpty()) {
+            return all.top(count);
+        }
+        List<PopularityIndex> candidates = new ArrayList<>();
+        if (filter.mpa() != null) {
+            candidates.add(byMpa[filter.mpa().ordinal()]);
+        }
+        if (filter.genre() != null) {
+            candidates.add(byGenre.get(filter.genre()));
+        }
+        if (filter.year() != null) {
+            candidates.add(byYear.get(filter.year()));
+        }
+        PopularityIndex narrowest = null;
+        for (PopularityIndex candidate : candidates) {
+            if (candidate == null) {
+                // значения нет ни у одного фильма — результат заведомо пуст
+                return List.of();
+            }
+            if (narrowest == null || candidate.size() < narrowest.size()) {
+                narrowest = candidate;
+            }
+        }
+        return narrowest.top(count, matches);
+    }
+
+    private void setLikes(int filmId, int count) {
+        int index = filmId >>> PAGE_BITS;
+        AtomicIntegerArray page = likes.get(index);
+        if (page == null) {
+            likes.compareAndSet(index, null, new AtomicIntegerArray(PAGE_SIZE));
+            page = likes.get(index);
+        }
+        page.set(filmId & PAGE_MASK, count + 1);
+    }
+
+    private List<PopularityIndex> indexesOf(Film film, boolean create) {
+        List<PopularityIndex> indexes = new ArrayList<>();
+        indexes.add(all);
+        if (film.getRaiting() != null) {
+            indexes.add(byMpa[film.getRaiting().ordinal()]);
+        }
+        if (film.getGenreOfFilm() != null) {
+            for (String genre : film.getGenreOfFilm()) {
+                if (genre != null) {
+                    addIndex(indexes, byGenre, genre, create);
+                }
+            }
+        }
+        if (film.getReleaseDate() != null) {
+            addIndex(indexes, byYear, film.getReleaseDate().getYear(), create);
+        }
+        return indexes;
+    }
+
+    private static <K> void addIndex(List<PopularityIndex> indexes, Map<K, PopularityIndex> byKey, K key,
+                                     boolean create) {
+        PopularityIndex index = create ? byKey.computeIfAbsent(key, k -> new PopularityIndex()) : byKey.get(key);
+        if (index != null) {
+            indexes.add(index);
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.DeltaIntSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Обратный индекс по названию и описанию фильмов: слово → id фильмов, где оно встречается. Словарь отсортирован,
+ * поэтому слова с заданным префиксом лежат подряд. Фильм находится, если каждое слово запроса является словом
+ * или префиксом слова его названия или описания. Релевантность слова — лучшее из совпадений: точное в названии,
+ * префикс в названии, точное в описании, префикс в описании; к сумме по словам прибавляется логарифм числа лайков.
+ */
+public class FilmSearchIndex {
+    public static final double NAME_WEIGHT = 2;
+    public static final double DESCRIPTION_WEIGHT = 1;
+    public static final double PREFIX_WEIGHT = 0.75;
+    public static final double LIKES_WEIGHT = 0.25;
+    public static final int MAX_QUERY_TOKENS = 10;
+    // как и в Lucene, префикс раскрывается в ограниченное число слов, иначе запрос из одной буквы обходит словарь
+    static final int MAX_EXPANSIONS = 64;
+    // шаг обхода по популярности на одно множество слова примерно во столько раз дороже перебора кандидата
+    static final int WALK_COST = 4;
+    // массив с отметкой на каждый id выгоднее, когда отмечаемые id занимают хотя бы такую долю диапазона
+    private static final int DENSE_RATIO = 16;
+    // примерная цена двоичного поиска в сравнении с одной отметкой в массиве
+    private static final int BINARY_SEARCH_STEPS = 16;
+
+    // логарифм считается на каждого кандидата, поэтому для типичных чисел лайков он заранее посчитан
+    private static final double[] BOOSTS = new double[4096];
+
+    static {
+        for (int likes = 0; likes < BOOSTS.length; likes++) {
+            BOOSTS[likes] = LIKES_WEIGHT * Math.log1p(likes);
+        }
+    }
+
+    private final ConcurrentNavigableMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final FilmIndexes indexes;
+
+    public FilmSearchIndex(FilmIndexes indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Слова текста в нижнем регистре без повторов: последовательности букв и цифр, «ё» заменяется на «е».
+     */
+    public static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                int lower = Character.toLowerCase(codePoint);
+                token.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    public void add(Film film) {
+        change(film.getId(), Set.of(), tokens(film.getName()), Set.of(), tokens(film.getDescription()));
+    }
+
+    public void remove(Film film) {
+        change(film.getId(), tokens(film.getName()), Set.of(), tokens(film.getDescription()), Set.of());
+    }
+
+    /**
+     * Переиндексирует фильм после обновления: трогаются только слова, которые появились или исчезли.
+     */
+    public void replace(Film oldFilm, Film newFilm) {
+        change(newFilm.getId(), tokens(oldFilm.getName()), tokens(newFilm.getName()),
+                tokens(oldFilm.getDescription()), tokens(newFilm.getDescription()));
+    }
+
+    /**
+     * Строит индекс заново. Фильмы обходятся по возрастанию id, поэтому списки id собираются уже отсортированными.
+     * Конкурентные изменения во время перестройки не допускаются.
+     */
+    public void rebuild(Collection<Film> films) {
+        Map<String, IdList> names = new HashMap<>();
+        Map<String, IdList> descriptions = new HashMap<>();
+        for (Film film : films) {
+            for (String token : tokens(film.getName())) {
+                names.computeIfAbsent(token, t -> new IdList()).add(film.getId());
+            }
+            for (String token : tokens(film.getDescription())) {
+                descriptions.computeIfAbsent(token, t -> new IdList()).add(film.getId());
+            }
+        }
+        terms.clear();
+        Map<String, Postings> rebuilt = new HashMap<>();
+        names.forEach((token, ids) -> rebuilt.put(token, new Postings(ids.toSet(), DeltaIntSet.EMPTY)));
+        descriptions.forEach((token, ids) -> rebuilt.merge(token, new Postings(DeltaIntSet.EMPTY, ids.toSet()),
+                (name, description) -> new Postings(name.name, description.description)));
+        terms.putAll(rebuilt);
+    }
+
+    public void clear() {
+        terms.clear();
+    }
+
+    /**
+     * Id до {@code count} лучших фильмов по убыванию оценки, при равенстве — по возрастанию id.
+     * Обычно перебираются фильмы самого редкого слова запроса. Если запрос из одного слова, которое встречается
+     * часто, выгоднее идти по фильмам в порядке популярности: подходящие находятся быстро, и обход
+     * останавливается, как только оставшиеся фильмы уже не могут попасть в результат. Для нескольких слов
+     * граница «лучшее совпадение по каждому слову» слишком редко достижима, и обход почти никогда не заканчивается.
+     */
+    public List<Integer> search(String query, int count) {
+        List<TokenMatch> matches = new ArrayList<>();
+        for (String token : tokens(query)) {
+            if (matches.size() == MAX_QUERY_TOKENS) {
+                break;
+            }
+            TokenMatch match = match(token);
+            if (match.sets.isEmpty()) {
+                return List.of();
+            }
+            matches.add(match);
+        }
+        if (matches.isEmpty() || count <= 0) {
+            return List.of();
+        }
+        matches.sort((a, b) -> Long.compare(a.size, b.size));
+        long rarest = matches.getFirst().size;
+        // перебор стоит порядка rarest, обход — count / (rarest / число фильмов) шагов, каждый дороже
+        // пропорционально числу множеств слова; бюджет обхода — столько шагов, сколько стоит перебор
+        long stepCost = (long) WALK_COST * matches.getFirst().sets.size();
+        if (matches.size() == 1 && rarest * rarest > stepCost * count * indexes.all().size()) {
+            Top top = new Top(count);
+            if (walk(matches, top, rarest / stepCost)) {
+                return top.ids();
+            }
+        }
+        Top top = new Top(count);
+        Candidates candidates = matches.getFirst().candidates();
+        for (TokenMatch match : matches.subList(1, matches.size())) {
+            candidates.retain(match);
+        }
+        for (int i = 0; i < candidates.size; i++) {
+            top.offer(candidates.ids[i], candidates.scores[i], indexes.likes(candidates.ids[i]));
+        }
+        return top.ids();
+    }
+
+    /**
+     * Обходит фильмы по убыванию лайков, пока фильм с наибольшей возможной релевантностью ещё может попасть
+     * в результат. Возвращает false, если за {@code budget} шагов обход не закончился.
+     */
+    private boolean walk(List<TokenMatch> matches, Top top, long budget) {
+        double maxRelevance = 0;
+        for (TokenMatch match : matches) {
+            maxRelevance += match.maxWeight();
+        }
+        PopularityWalk walk = new PopularityWalk(matches, top, maxRelevance, budget);
+        indexes.all().forEach(walk);
+        return !walk.outOfBudget;
+    }
+
+    private TokenMatch match(String token) {
+        TokenMatch match = new TokenMatch();
+        int expansions = 0;
+        for (Map.Entry<String, Postings> entry : terms.tailMap(token).entrySet()) {
+            if (!entry.getKey().startsWith(token) || expansions++ == MAX_EXPANSIONS) {
+                break;
+            }
+            double factor = entry.getKey().length() == token.length() ? 1 : PREFIX_WEIGHT;
+            match.add(entry.getValue().name, NAME_WEIGHT * factor);
+            match.add(entry.getValue().description, DESCRIPTION_WEIGHT * factor);
+        }
+        // по убыванию веса: первое множество, где нашёлся фильм, и даёт лучшее совпадение
+        match.sets.sort((a, b) -> Double.compare(b.weight, a.weight));
+        return match;
+    }
+
+    private void change(int filmId, Set<String> oldName, Set<String> newName,
+                        Set<String> oldDescription, Set<String> newDescription) {
+        for (String token : oldName) {
+            if (!newName.contains(token)) {
+                terms.computeIfPresent(token, (t, postings) -> postings.withName(postings.name.without(filmId)));
+            }
+        }
+        for (String token : newName) {
+            if (!oldName.contains(token)) {
+                terms.compute(token, (t, postings) -> Postings.of(postings).withName(Postings.of(postings).name
+                        .with(filmId)));
+            }
+        }
+        for (String token : oldDescription) {
+            if (!newDescription.contains(token)) {
+                terms.computeIfPresent(token, (t, postings) ->
+                        postings.withDescription(postings.description.without(filmId)));
+            }
+        }
+        for (String token : newDescription) {
+            if (!oldDescription.contains(token)) {
+                terms.compute(token, (t, postings) -> Postings.of(postings).withDescription(Postings.of(postings)
+                        .description.with(filmId)));
+            }
+        }
+    }
+
+    private record Postings(DeltaIntSet name, DeltaIntSet description) {
+        static final Postings EMPTY = new Postings(DeltaIntSet.EMPTY, DeltaIntSet.EMPTY);
+
+        static Postings of(Postings postings) {
+            return postings == null ? EMPTY : postings;
+        }
+
+        // пустой результат удаляет слово из словаря
+        Postings withName(DeltaIntSet ids) {
+            return ids.size() == 0 && description.size() == 0 ? null : new Postings(ids, description);
+        }
+
+        Postings withDescription(DeltaIntSet ids) {
+            return ids.size() == 0 && name.size() == 0 ? null : new Postings(name, ids);
+        }
+    }
+
+    private record WeightedSet(DeltaIntSet ids, double weight) {
+    }
+
+    /**
+     * Множества id, в которых встречается слово запроса или слова с ним как префиксом, с весом каждого.
+     */
+    private static final class TokenMatch {
+        final List<WeightedSet> sets = new ArrayList<>();
+        long size;
+
+        void add(DeltaIntSet ids, double weight) {
+            if (ids.size() > 0) {
+                sets.add(new WeightedSet(ids, weight));
+                size += ids.size();
+            }
+        }
+
+        double maxWeight() {
+            return sets.getFirst().weight;
+        }
+
+        /**
+         * Номер лучшего множества (с единицы) для каждого id до {@code maxId} включительно, ноль — слова нет.
+         * Множества проходятся от меньшего веса к большему, так что лучшее записывается последним.
+         */
+        byte[] bestSets(int maxId) {
+            byte[] best = new byte[maxId + 1];
+            for (int set = sets.size() - 1; set >= 0; set--) {
+                SortedIntSet ids = sets.get(set).ids.toSortedSet();
+                for (int i = 0; i < ids.size() && ids.get(i) <= maxId; i++) {
+                    best[ids.get(i)] = (byte) (set + 1);
+                }
+            }
+            return best;
+        }
+
+        int maxId() {
+            int maxId = 0;
+            for (WeightedSet set : sets) {
+                SortedIntSet ids = set.ids.toSortedSet();
+                maxId = Math.max(maxId, ids.get(ids.size() - 1));
+            }
+            return maxId;
+        }
+
+        double weight(int filmId) {
+            for (WeightedSet set : sets) {
+                if (set.ids.contains(filmId)) {
+                    return set.weight;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Объединяет отсортированные множества слиянием, оставляя каждому фильму лучший вес.
+         */
+        Candidates candidates() {
+            if (sets.size() == 1) {
+                SortedIntSet ids = sets.getFirst().ids.toSortedSet();
+                Candidates candidates = new Candidates(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    candidates.ids[i] = ids.get(i);
+                    candidates.scores[i] = sets.getFirst().weight;
+                }
+                candidates.size = ids.size();
+                return candidates;
+            }
+            int maxId = maxId();
+            if (size >= maxId / DENSE_RATIO) {
+                // множества покрывают заметную долю id: отметить их в массиве дешевле, чем сливать через кучу
+                byte[] best = bestSets(maxId);
+                Candidates candidates = new Candidates((int) Math.min(size, maxId));
+                for (int id = 0; id <= maxId; id++) {
+                    if (best[id] != 0) {
+                        candidates.ids[candidates.size] = id;
+                        candidates.scores[candidates.size++] = sets.get((best[id] & 0xFF) - 1).weight;
+                    }
+                }
+                return candidates;
+            }
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> Integer.compare(a.id(), b.id()));
+            for (WeightedSet set : sets) {
+                cursors.add(new Cursor(set.ids.toSortedSet(), set.weight));
+            }
+            Candidates candidates = new Candidates((int) Math.min(size, Integer.MAX_VALUE - 8));
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                int id = cursor.id();
+                if (candidates.size > 0 && candidates.ids[candidates.size - 1] == id) {
+                    candidates.scores[candidates.size - 1] = Math.max(candidates.scores[candidates.size - 1],
+                            cursor.weight);
+                } else {
+                    candidates.ids[candidates.size] = id;
+                    candidates.scores[candidates.size++] = cursor.weight;
+                }
+                if (++cursor.position < cursor.ids.size()) {
+                    cursors.add(cursor);
+                }
+            }
+            return candidates;
+        }
+    }
+
+    private static final class Cursor {
+        final SortedIntSet ids;
+        final double weight;
+        int position;
+
+        Cursor(SortedIntSet ids, double weight) {
+            this.ids = ids;
+            this.weight = weight;
+        }
+
+        int id() {
+            return ids.get(position);
+        }
+    }
+
+    private static final class Candidates {
+        final int[] ids;
+        final double[] scores;
+        int size;
+
+        Candidates(int capacity) {
+            ids = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        /**
+         * Оставляет кандидатов, у которых есть слово {@code match}, и прибавляет его вес. Если множества слова
+         * велики, лучшее множество каждого id отмечается в массиве за один проход. Иначе каждое множество
+         * сверяется с кандидатами со стороны меньшего: малое ищется в кандидатах, в большом ищутся кандидаты.
+         * Множества идут по убыванию веса, поэтому первый найденный вес лучший.
+         */
+        void retain(TokenMatch match) {
+            if (size == 0) {
+                return;
+            }
+            double[] weights = new double[size];
+            long searches = 0;
+            for (WeightedSet set : match.sets) {
+                searches += Math.min(size, set.ids.size());
+            }
+            int maxId = ids[size - 1];
+            if (searches * BINARY_SEARCH_STEPS > match.size + maxId / DENSE_RATIO) {
+                byte[] best = match.bestSets(maxId);
+                for (int i = 0; i < size; i++) {
+                    if (best[ids[i]] != 0) {
+                        weights[i] = match.sets.get((best[ids[i]] & 0xFF) - 1).weight;
+                    }
+                }
+            } else {
+                for (WeightedSet set : match.sets) {
+                    if (set.ids.size() < size) {
+                        SortedIntSet setIds = set.ids.toSortedSet();
+                        for (int i = 0; i < setIds.size(); i++) {
+                            int position = Arrays.binarySearch(ids, 0, size, setIds.get(i));
+                            if (position >= 0 && weights[position] == 0) {
+                                weights[position] = set.weight;
+                            }
+                        }
+                    } else {
+                        for (int i = 0; i < size; i++) {
+                            if (weights[i] == 0 && set.ids.contains(ids[i])) {
+                                weights[i] = set.weight;
+                            }
+                        }
+                    }
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (weights[i] > 0) {
+                    ids[kept] = ids[i];
+                    scores[kept++] = scores[i] + weights[i];
+                }
+            }
+            size = kept;
+        }
+    }
+
+    private final class PopularityWalk implements PopularityIndex.Visitor {
+        final List<TokenMatch> matches;
+        final Top top;
+        final double maxRelevance;
+        long budget;
+        boolean outOfBudget;
+
+        PopularityWalk(List<TokenMatch> matches, Top top, double maxRelevance, long budget) {
+            this.matches = matches;
+            this.top = top;
+            this.maxRelevance = maxRelevance;
+            this.budget = budget;
+        }
+
+        @Override
+        public boolean visit(int id, int likes) {
+            // дальше лайков не больше, а при равных лайках id больше — лучшего результата не будет
+            if (top.isFull() && !top.accepts(id, maxRelevance + boost(likes))) {
+                return false;
+            }
+            if (budget-- == 0) {
+                outOfBudget = true;
+                return false;
+            }
+            if (indexes.likes(id) != likes) {
+                // устаревшая позиция фильма, у которого как раз меняются лайки
+                return true;
+            }
+            double relevance = 0;
+            for (TokenMatch match : matches) {
+                double weight = match.weight(id);
+                if (weight == 0) {
+                    return true;
+                }
+                relevance += weight;
+            }
+            top.offer(id, relevance, likes);
+            return true;
+        }
+    }
+
+    /**
+     * Лучшие {@code count} фильмов; в начале очереди худший.
+     */
+    private static final class Top {
+        final int count;
+        final PriorityQueue<Scored> queue = new PriorityQueue<>();
+
+        Top(int count) {
+            this.count = count;
+        }
+
+        boolean isFull() {
+            return queue.size() == count;
+        }
+
+        boolean accepts(int id, double score) {
+            return !isFull() || Scored.compare(id, score, queue.peek()) > 0;
+        }
+
+        /**
+         * Отрицательное число лайков означает, что фильма уже нет.
+         */
+        void offer(int id, double relevance, int likes) {
+            if (likes < 0) {
+                return;
+            }
+            double score = relevance + boost(likes);
+            if (!accepts(id, score)) {
+                return;
+            }
+            queue.add(new Scored(id, score));
+            if (queue.size() > count) {
+                queue.poll();
+            }
+        }
+
+        List<Integer> ids() {
+            Integer[] ids = new Integer[queue.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = queue.poll().id;
+            }
+            return Arrays.asList(ids);
+        }
+    }
+
+    private record Scored(int id, double score) implements Comparable<Scored> {
+        // хуже меньшая оценка, при равенстве — больший id
+        static int compare(int id, double score, Scored other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(other.id, id);
+        }
+
+        @Override
+        public int compareTo(Scored other) {
+            return compare(id, score, other);
+        }
+    }
+
+    private static double boost(int likes) {
+        return likes < BOOSTS.length ? BOOSTS[likes] : LIKES_WEIGHT * Math.log1p(likes);
+    }
+
+    private static final class IdList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        DeltaIntSet toSet() {
+            return DeltaIntSet.of(SortedIntSet.of(Arrays.copyOf(ids, size)));
+        }
+    }
+}
@@ -1,18 +1,138 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
+    int EXPORT_BATCH_SIZE = 1000;
+
     Film addFilm(Film film);
 
+    List<BatchItemResult> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film removeFilm(Film film);
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(int afterId, int limit);
+
     Film getFilmOnId(Integer id);
 
+    Set<Integer> getExistingFilmIds(Collection<Integer> ids);
+
+    boolean containsFilm(int id);
+
+    /**
+     * Id пользователей, поставивших лайк фильму, по возрастанию после {@code afterId}.
+     * У несуществующего фильма список пуст.
+     */
+    List<Integer> getFilmLikes(int filmId, int afterId, int limit);
+
+    /**
+     * Id всех пользователей, поставивших лайк фильму.
+     */
+    SortedIntSet getLikingUserIds(int filmId);
+
+    /**
+     * @return true, если лайка ещё не было
+     */
+    boolean addLike(Integer filmId, Integer userId);
+
+    /**
+     * @return true, если лайк был и удалён
+     */
+    boolean removeLike(Integer filmId, Integer userId);
+
+    /**
+     * @return на сколько выросло число лайков каждого фильма; фильмы, у которых оно не изменилось, не входят
+     */
+    Map<Integer, Integer> addLikes(Collection<FilmLike> likes);
+
+    /**
+     * Применяет к одному фильму пакет лайков и отмен. Пользователь не должен входить в оба множества.
+     * Фильм, удалённый к моменту применения, пропускается.
+     *
+     * @return на сколько изменилось число лайков фильма: повторные лайки и отмены несуществующих не считаются
+     */
+    default int updateLikes(int filmId, SortedIntSet added, SortedIntSet removed) {
+        if (!containsFilm(filmId)) {
+            return 0;
+        }
+        int delta = 0;
+        for (int i = 0; i < added.size(); i++) {
+            if (addLike(filmId, added.get(i))) {
+                delta++;
+            }
+        }
+        for (int i = 0; i < removed.size(); i++) {
+            if (removeLike(filmId, removed.get(i))) {
+                delta--;
+            }
+        }
+        return delta;
+    }
+
+    List<Film> getPopularFilms(int count);
+
+    List<Film> getPopularFilms(int count, FilmFilter filter);
+
+    /**
+     * Фильмы, которые понравились пользователю, по возрастанию id.
+     */
+    List<Film> getLikedFilms(int userId);
+
+    /**
+     * Id фильмов, которые понравились пользователю.
+     */
+    SortedIntSet getLikedFilmIds(int userId);
+
+    /**
+     * Фильмы, в названии или описании которых есть все слова запроса или слова, которые с них начинаются,
+     * по убыванию релевантности с учётом лайков.
+     */
+    List<Film> searchFilms(String query, int count);
+
+    VersionStamp getVersion();
+
+    /**
+     * Версия рейтинга популярности: меняется, когда мог измениться состав, порядок или данные первых
+     * {@link PopularityIndex#TRACKED_TOP} фильмов общего рейтинга или рейтинга с одним условием фильтра.
+     * Хранилище без отслеживания топа отдаёт версию всех фильмов.
+     */
+    default VersionStamp getPopularityVersion() {
+        return getVersion();
+    }
+
+    long countFilms();
+
+    long countLikes();
+
+    /**
+     * Обходит все фильмы по возрастанию id вместе с полными множествами лайков.
+     */
+    default void forEachFilm(Consumer<Film> action) {
+        int afterId = 0;
+        List<Film> batch;
+        do {
+            batch = getFilmsPage(afterId, EXPORT_BATCH_SIZE);
+            for (Film film : batch) {
+                action.accept(film);
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.getLast().getId();
+            }
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+    }
 }
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+
+@Slf4j
+final class FilmValidator {
+    private static final int MAX_LENGTH_DESCRIPTION = 200;
+    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private FilmValidator() {
+    }
+
+    static void validateNew(Film film) {
+        if (film == null) {
+            throw new ValidationException("пустое тело запроса");
+        }
+        if (film.getName() == null || film.getName().isBlank()) {
+            log.error("Пустая строка/пробел в названии фильма");
+            throw new ValidationException("название не может быть пустым");
+        }
+        if (film.getDescription() == null || film.getDescription().length() > MAX_LENGTH_DESCRIPTION) {
+            log.error("Описание фильма занимает более 200 символов");
+            throw new ValidationException("максимальная длина описания — 200 символов");
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+            log.error("введённая дата релиза фильма раньше 1895 года");
+            throw new ValidationException("дата релиза — не раньше 28 декабря 1895 года");
+        }
+        if (film.getDuration() <= 0) {
+            log.error("Продолжительность фильма указана, как отрицательное число");
+            throw new ValidationException("продолжительность фильма должна быть положительным числом");
+        }
+    }
+
+    static void validateUpdate(Film film) {
+        if (film == null) {
+            throw new ValidationException("пустое тело запроса");
+        }
+        if (film.getId() == null) {
+            log.error("Не указан Id фильма");
+            throw new ValidationException("Должен быть указан Id фильма");
+        }
+        if (film.getDescription() == null || film.getDescription().isBlank() ||
+                film.getDescription().length() > MAX_LENGTH_DESCRIPTION) {
+            log.error("Не указано описание фильма");
+            throw new ValidationException("Должно быть указано описание фильма");
+        }
+        if (film.getName() == null || film.getName().isBlank()) {
+            log.error("пустая строка/пробел в названии фильма");
+            throw new ValidationException("название не может быть пустым");
+        }
+        if (film.getDuration() <= 0) {
+            log.error("продолжительность фильма указана, как отрицательное число");
+            throw new ValidationException("продолжительность фильма должна быть положительным числом");
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+            log.error("Введённая дата релиза фильма раньше 1895 года");
+            throw new ValidationException("дата релиза — не раньше 28 декабря 1895 года");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+final class IdChunks {
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private IdChunks() {
+    }
+
+    static List<List<Integer>> split(Collection<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>(Math.min(ids.size(), IN_CLAUSE_CHUNK));
+        for (Integer id : ids) {
+            chunk.add(id);
+            if (chunk.size() == IN_CLAUSE_CHUNK) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(IN_CLAUSE_CHUNK);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -1,82 +1,112 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.id.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotLoad;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionCounter;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 
 @Slf4j
-@Component
+@Component("filmStorage")
+@Profile("!db")
 public class InMemoryFilmStorage implements FilmStorage {
-    private static final int MAX_LENGTH_DESCRIPTION = 200;
-    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
-    private final HashMap<Integer, Film> filmMap = new HashMap<>();
+    // фильмы по id читаются из хеш-таблицы, а для постраничного обхода по порядку id ведётся отдельный индекс
+    private final Map<Integer, Film> filmMap = new ConcurrentHashMap<>();
+    private final NavigableSet<Integer> filmIds = new ConcurrentSkipListSet<>();
+    private final StripedLock locks = new StripedLock();
+    private final FilmIndexes indexes = new FilmIndexes();
+    private final LikedFilmsIndex likedFilms = new LikedFilmsIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex(indexes);
+    private final VersionCounter version = new VersionCounter();
+    private final VersionCounter popularityVersion = new VersionCounter();
+    // количества ведутся отдельно, чтобы метрики не обходили хранилище
+    private final LongAdder filmCount = new LongAdder();
+    private final LongAdder likeCount = new LongAdder();
+    private final IdGenerator idGenerator;
+    private volatile StorageJournal journal = StorageJournal.NONE;
+    private volatile SnapshotLoad loading;
+
+    public InMemoryFilmStorage() {
+        this(new AtomicIdGenerator());
+    }
+
+    public InMemoryFilmStorage(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
 
     @Override
     public Film addFilm(Film film) {
-        if (film == null) {
-            throw new ValidationException("пустое тело запроса");
-        }
-        if (film.getName() == null || film.getName().isBlank()) {
-            log.error("Пустая строка/пробел в названии фильма");
-            throw new ValidationException("название не может быть пустым");
-        }
-        if (film.getDescription() == null || film.getDescription().length() > MAX_LENGTH_DESCRIPTION) {
-            log.error("Описание фильма занимает более 200 символов");
-            throw new ValidationException("максимальная длина описания — 200 символов");
-        }
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
-            log.error("введённая дата релиза фильма раньше 1895 года");
-            throw new ValidationException("дата релиза — не раньше 28 декабря 1895 года");
-        }
-        if (film.getDuration() <= 0) {
-            log.error("Продолжительность фильма указана, как отрицательное число");
-            throw new ValidationException("продолжительность фильма должна быть положительным числом");
-        }
-        film.setId(getNextId());
-        filmMap.put(film.getId(), film);
+        awaitLoaded();
+        FilmValidator.validateNew(film);
+        store(film);
         log.info("Добавлен фильм {}", film.getName());
         return film;
     }
 
     @Override
-    public Film updateFilm(Film film) {
-        if (film == null) {
-            throw new ValidationException("пустое тело запроса");
-        }
-        if (film.getId() == null) {
-            log.error("Не указан Id фильма");
-            throw new ValidationException("Должен быть указан Id фильма");
-        }
-        if (film.getDescription() == null || film.getDescription().isBlank() ||
-                film.getDescription().length() > MAX_LENGTH_DESCRIPTION) {
-            log.error("Не указано описание фильма");
-            throw new ValidationException("Должно быть указано описание фильма");
-        }
-        if (film.getName() == null || film.getName().isBlank()) {
-            log.error("пустая строка/пробел в названии фильма");
-            throw new ValidationException("название не может быть пустым");
-        }
-        if (film.getDuration() <= 0) {
-            log.error("продолжительность фильма указана, как отрицательное число");
-            throw new ValidationException("продолжительность фильма должна быть положительным числом");
-        }
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
-            log.error("Введённая дата релиза фильма раньше 1895 года");
-            throw new ValidationException("дата релиза — не раньше 28 декабря 1895 года");
+    public List<BatchItemResult> addFilms(List<Film> films) {
+        awaitLoaded();
+        BatchItemResult[] results = BatchValidation.validate(films, FilmValidator::validateNew);
+        int added = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                store(films.get(i));
+                results[i] = BatchItemResult.success(i, films.get(i).getId());
+                added++;
+            }
         }
-        if (filmMap.containsKey(film.getId())) {
-            filmMap.put(film.getId(), film);
-            log.info("Фильм с именем {} и Id {}",
-                    film.getName(), film.getId());
-            return film;
+        log.info("Пакетно добавлено фильмов: {} из {}", added, films.size());
+        return List.of(results);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        awaitLoaded();
+        FilmValidator.validateUpdate(film);
+        locks.lock(film.getId());
+        try {
+            Film storedFilm = filmMap.get(film.getId());
+            if (storedFilm != null) {
+                journal.filmSaved(film);
+                film.setUsersIdLike(storedFilm.getUsersIdLike());
+                filmMap.put(film.getId(), film);
+                boolean topChanged = indexes.replace(storedFilm, film);
+                searchIndex.replace(storedFilm, film);
+                version.increment();
+                if (topChanged) {
+                    popularityVersion.increment();
+                }
+                log.info("Фильм с именем {} и Id {}",
+                        film.getName(), film.getId());
+                return film;
+            }
+        } finally {
+            locks.unlock(film.getId());
         }
         log.error("Фильма с Id {} не был найден", film.getId());
         throw new NotFoundException("Фильм не найден");
@@ -84,29 +114,492 @@ public class InMemoryFilmStorage implements FilmStorage {
 
     @Override
     public Film removeFilm(Film film) {
+        awaitLoaded();
         if (film == null) {
             log.error("");
             throw new ValidationException("");
         }
-        return filmMap.remove(film.getId());
+        return remove(film.getId());
     }
 
     @Override
     public List<Film> getAllFilms() {
-        return new ArrayList<>(filmMap.values());
+        awaitLoaded();
+        return films(filmIds, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        awaitLoaded();
+        return films(filmIds.tailSet(afterId, false), limit);
     }
 
     @Override
     public Film getFilmOnId(Integer id) {
+        SnapshotLoad load = loading;
+        if (load != null) {
+            return load.film(id, () -> {
+                awaitLoaded();
+                return filmMap.get(id);
+            });
+        }
         return filmMap.get(id);
     }
 
-    private int getNextId() {
-        int currentMaxId = filmMap.keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    @Override
+    public Set<Integer> getExistingFilmIds(Collection<Integer> ids) {
+        awaitLoaded();
+        Set<Integer> existing = new HashSet<>();
+        for (Integer id : ids) {
+            if (id != null && filmMap.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public boolean containsFilm(int id) {
+        return getFilmOnId(id) != null;
+    }
+
+    @Override
+    public List<Integer> getFilmLikes(int filmId, int afterId, int limit) {
+        Film film = getFilmOnId(filmId);
+        return film == null ? List.of() : film.likedAfter(afterId, limit);
+    }
+
+    @Override
+    public SortedIntSet getLikingUserIds(int filmId) {
+        Film film = getFilmOnId(filmId);
+        return film == null ? SortedIntSet.EMPTY : film.getUsersIdLike();
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        awaitLoaded();
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId);
+            if (film.hasLikeFrom(userId)) {
+                return false;
+            }
+            journal.likeAdded(filmId, userId);
+            int oldLikes = film.getLikes();
+            film.setUserOnLikeList(userId);
+            likesChanged(film, oldLikes, film.getLikes());
+            likedFilms.add(userId, filmId);
+            return true;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        awaitLoaded();
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId);
+            if (!film.hasLikeFrom(userId)) {
+                return false;
+            }
+            journal.likeRemoved(filmId, userId);
+            int oldLikes = film.getLikes();
+            film.removeUserOnLikeList(userId);
+            likesChanged(film, oldLikes, film.getLikes());
+            likedFilms.remove(userId, filmId);
+            return true;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> addLikes(Collection<FilmLike> likes) {
+        awaitLoaded();
+        Map<Integer, List<Integer>> usersByFilm = new HashMap<>();
+        for (FilmLike like : likes) {
+            usersByFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>()).add(like.getUserId());
+        }
+        Map<Integer, Integer> added = new HashMap<>();
+        usersByFilm.forEach((filmId, userIds) -> {
+            int count = applyLikes(filmId, SortedIntSet.copyOf(userIds));
+            if (count > 0) {
+                added.put(filmId, count);
+            }
+        });
+        return added;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getPopularFilms(count, FilmFilter.NONE);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, FilmFilter filter) {
+        awaitLoaded();
+        List<Film> films = new ArrayList<>();
+        for (Integer id : indexes.top(count, filter, id -> matches(id, filter))) {
+            Film film = filmMap.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public List<Film> getLikedFilms(int userId) {
+        awaitLoaded();
+        List<Film> films = new ArrayList<>();
+        SortedIntSet filmIds = likedFilms.get(userId);
+        for (int i = 0; i < filmIds.size(); i++) {
+            Film film = filmMap.get(filmIds.get(i));
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public SortedIntSet getLikedFilmIds(int userId) {
+        awaitLoaded();
+        return likedFilms.get(userId);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        awaitLoaded();
+        List<Film> films = new ArrayList<>();
+        for (Integer id : searchIndex.search(query, count)) {
+            Film film = filmMap.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public VersionStamp getVersion() {
+        awaitLoaded();
+        return version.current();
+    }
+
+    @Override
+    public VersionStamp getPopularityVersion() {
+        awaitLoaded();
+        return popularityVersion.current();
+    }
+
+    @Override
+    public long countFilms() {
+        return filmCount.sum();
+    }
+
+    @Override
+    public long countLikes() {
+        return likeCount.sum();
+    }
+
+    /**
+     * Хранилище загружается из снимка в фоне: до окончания загрузки фильмы по id читаются из снимка,
+     * остальные операции ждут.
+     */
+    public void loadLazily(SnapshotLoad load) {
+        this.loading = load;
+    }
+
+    /**
+     * Подключает журнал изменений. Вызывается до того, как хранилище начинает принимать запросы.
+     */
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Останавливает изменения фильмов: к возврату начатые изменения записаны в журнал и применены,
+     * новые ждут {@link #resumeWrites()}.
+     */
+    public void pauseWrites() {
+        locks.lockAll();
+    }
+
+    public void resumeWrites() {
+        locks.unlockAll();
+    }
+
+    /**
+     * Журнал, применяющий записи к этому хранилищу при восстановлении: id сохраняются как есть,
+     * записи о несуществующих фильмах пропускаются. Индексы при этом не обновляются — после проигрывания
+     * нужно вызвать {@link #rebuildIndexes()}.
+     */
+    public StorageJournal recovery() {
+        return new Recovery();
+    }
+
+    /**
+     * Строит индексы популярности, лайков пользователей и поиска заново за один проход по фильмам —
+     * это дешевле, чем обновлять их на каждую запись журнала.
+     */
+    public void rebuildIndexes() {
+        indexes.clear();
+        for (Film film : filmMap.values()) {
+            indexes.add(film);
+        }
+        likedFilms.rebuild(filmMap.values());
+        searchIndex.rebuild(filmMap.values());
+        popularityVersion.increment();
+    }
+
+    private void awaitLoaded() {
+        SnapshotLoad load = loading;
+        if (load != null) {
+            load.await();
+            loading = null;
+        }
+    }
+
+    private void store(Film film) {
+        film.setId(idGenerator.nextId());
+        // под блокировкой, чтобы лайк нового фильма не попал в журнал раньше самого фильма
+        locks.lock(film.getId());
+        try {
+            journal.filmSaved(film);
+            if (film.getLikes() > 0) {
+                journal.likesAdded(film.getId(), film.getUsersIdLike().toIntArray());
+            }
+            insert(film);
+        } finally {
+            locks.unlock(film.getId());
+        }
+    }
+
+    // фильм, удалённый во время обхода, пропускается
+    private List<Film> films(Collection<Integer> ids, int limit) {
+        List<Film> films = new ArrayList<>();
+        for (Integer id : ids) {
+            if (films.size() >= limit) {
+                break;
+            }
+            Film film = filmMap.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    private void insert(Film film) {
+        filmMap.put(film.getId(), film);
+        filmIds.add(film.getId());
+        boolean topChanged = indexes.add(film);
+        searchIndex.add(film);
+        SortedIntSet userIds = film.getUsersIdLike();
+        for (int i = 0; i < userIds.size(); i++) {
+            likedFilms.add(userIds.get(i), film.getId());
+        }
+        filmCount.increment();
+        likeCount.add(film.getLikes());
+        version.increment();
+        if (topChanged) {
+            popularityVersion.increment();
+        }
+    }
+
+    private Film remove(int filmId) {
+        locks.lock(filmId);
+        try {
+            if (!filmMap.containsKey(filmId)) {
+                return null;
+            }
+            journal.filmRemoved(filmId);
+            Film removedFilm = filmMap.remove(filmId);
+            if (removedFilm != null) {
+                filmIds.remove(filmId);
+                boolean topChanged = indexes.remove(removedFilm, removedFilm.getLikes());
+                searchIndex.remove(removedFilm);
+                SortedIntSet userIds = removedFilm.getUsersIdLike();
+                for (int i = 0; i < userIds.size(); i++) {
+                    likedFilms.remove(userIds.get(i), filmId);
+                }
+                filmCount.decrement();
+                likeCount.add(-removedFilm.getLikes());
+                version.increment();
+                if (topChanged) {
+                    popularityVersion.increment();
+                }
+            }
+            return removedFilm;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    /**
+     * Пакет лайков и отмен одного фильма применяется под одной блокировкой, а индексы популярности
+     * обновляются один раз на итоговое число лайков.
+     */
+    @Override
+    public int updateLikes(int filmId, SortedIntSet added, SortedIntSet removed) {
+        awaitLoaded();
+        locks.lock(filmId);
+        try {
+            Film film = filmMap.get(filmId);
+            if (film == null) {
+                return 0;
+            }
+            // разница считается точечными проверками: на вирусном фильме копировать всё множество дорого
+            SortedIntSet newLikes = added.filter(userId -> !film.hasLikeFrom(userId));
+            SortedIntSet removedLikes = removed.filter(film::hasLikeFrom);
+            if (newLikes.isEmpty() && removedLikes.isEmpty()) {
+                return 0;
+            }
+            if (!newLikes.isEmpty()) {
+                journal.likesAdded(filmId, newLikes.toIntArray());
+            }
+            for (int i = 0; i < removedLikes.size(); i++) {
+                journal.likeRemoved(filmId, removedLikes.get(i));
+            }
+            int oldLikes = film.getLikes();
+            film.addUsersToLikeList(newLikes);
+            for (int i = 0; i < removedLikes.size(); i++) {
+                film.removeUserOnLikeList(removedLikes.get(i));
+            }
+            if (!likesChanged(film, oldLikes, film.getLikes())) {
+                // число лайков то же, но состав другой
+                version.increment();
+            }
+            for (int i = 0; i < newLikes.size(); i++) {
+                likedFilms.add(newLikes.get(i), filmId);
+            }
+            for (int i = 0; i < removedLikes.size(); i++) {
+                likedFilms.remove(removedLikes.get(i), filmId);
+            }
+            return newLikes.size() - removedLikes.size();
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    private int applyLikes(int filmId, SortedIntSet userIds) {
+        locks.lock(filmId);
+        try {
+            Film film = filmMap.get(filmId);
+            if (film == null) {
+                return 0;
+            }
+            SortedIntSet added = userIds.filter(userId -> !film.hasLikeFrom(userId));
+            if (added.isEmpty()) {
+                return 0;
+            }
+            journal.likesAdded(filmId, added.toIntArray());
+            int oldLikes = film.getLikes();
+            film.addUsersToLikeList(added);
+            likesChanged(film, oldLikes, film.getLikes());
+            for (int i = 0; i < added.size(); i++) {
+                likedFilms.add(added.get(i), filmId);
+            }
+            return added.size();
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    private boolean matches(int filmId, FilmFilter filter) {
+        Film film = filmMap.get(filmId);
+        return film != null && filter.matches(film);
+    }
+
+    private boolean likesChanged(Film film, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return false;
+        }
+        boolean topChanged = indexes.update(film, oldLikes, newLikes);
+        likeCount.add(newLikes - oldLikes);
+        version.increment();
+        if (topChanged) {
+            popularityVersion.increment();
+        }
+        return true;
+    }
+
+    private Film getExistingFilm(Integer filmId) {
+        Film film = filmMap.get(filmId);
+        if (film == null) {
+            log.error("Фильм с Id {} не был найден", filmId);
+            throw new NotFoundException("фильм не найден");
+        }
+        return film;
+    }
+
+    private final class Recovery implements StorageJournal {
+        // индексы популярности, лайков пользователей и поиска здесь не ведутся: их строит rebuildIndexes()
+        @Override
+        public void filmSaved(Film film) {
+            locks.lock(film.getId());
+            try {
+                Film storedFilm = filmMap.get(film.getId());
+                film.setUsersIdLike(storedFilm == null ? SortedIntSet.EMPTY : storedFilm.getUsersIdLike());
+                filmMap.put(film.getId(), film);
+                if (storedFilm == null) {
+                    filmIds.add(film.getId());
+                    filmCount.increment();
+                    idGenerator.advanceTo(film.getId());
+                }
+                version.increment();
+            } finally {
+                locks.unlock(film.getId());
+            }
+        }
+
+        @Override
+        public void filmRemoved(int filmId) {
+            locks.lock(filmId);
+            try {
+                Film removedFilm = filmMap.remove(filmId);
+                if (removedFilm != null) {
+                    filmIds.remove(filmId);
+                    filmCount.decrement();
+                    likeCount.add(-removedFilm.getLikes());
+                    version.increment();
+                }
+            } finally {
+                locks.unlock(filmId);
+            }
+        }
+
+        @Override
+        public void likeAdded(int filmId, int userId) {
+            changeLikes(filmId, film -> film.setUserOnLikeList(userId));
+        }
+
+        @Override
+        public void likesAdded(int filmId, int[] userIds) {
+            changeLikes(filmId, film -> film.addUsersToLikeList(SortedIntSet.of(userIds)));
+        }
+
+        @Override
+        public void likeRemoved(int filmId, int userId) {
+            changeLikes(filmId, film -> film.removeUserOnLikeList(userId));
+        }
+
+        private void changeLikes(int filmId, Consumer<Film> change) {
+            locks.lock(filmId);
+            try {
+                Film film = filmMap.get(filmId);
+                if (film != null) {
+                    int oldLikes = film.getLikes();
+                    change.accept(film);
+                    likeCount.add(film.getLikes() - oldLikes);
+                    version.increment();
+                }
+            } finally {
+                locks.unlock(filmId);
+            }
+        }
     }
 }
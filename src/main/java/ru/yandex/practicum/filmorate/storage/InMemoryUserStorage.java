@@ -1,103 +1,468 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
-import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.id.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotLoad;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionCounter;
+import ru.yandex.practicum.filmorate.util.VersionCounters;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
-@Component
+@Component("userStorage")
+@Profile("!db")
 public class InMemoryUserStorage implements UserStorage {
 
-    private final HashMap<Integer, User> userMap = new HashMap<>();
+    // пользователи по id читаются из хеш-таблицы, а для постраничного обхода по порядку id ведётся отдельный индекс
+    private final Map<Integer, User> userMap = new ConcurrentHashMap<>();
+    private final NavigableSet<Integer> userIds = new ConcurrentSkipListSet<>();
+    private final StripedLock locks = new StripedLock();
+    private final VersionCounter version = new VersionCounter();
+    // версия пользователя меняется вместе с его данными или составом друзей
+    private final VersionCounters userVersions = new VersionCounters();
+    private final LongAdder userCount = new LongAdder();
+    // сумма размеров списков друзей: каждая дружба учтена дважды
+    private final LongAdder friendLinks = new LongAdder();
+    private final IdGenerator idGenerator;
+    private volatile StorageJournal journal = StorageJournal.NONE;
+    private volatile SnapshotLoad loading;
 
+    public InMemoryUserStorage() {
+        this(new AtomicIdGenerator());
+    }
+
+    public InMemoryUserStorage(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
     public List<User> getAllUsers() {
-        return new ArrayList<>(userMap.values());
+        awaitLoaded();
+        return users(userIds, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        awaitLoaded();
+        return users(userIds.tailSet(afterId, false), limit);
     }
 
+    @Override
     public User addUser(User user) {
-        if (user == null) {
-            throw new ValidationException("пустое тело запроса");
+        awaitLoaded();
+        UserValidator.validateNew(user);
+        store(user);
+        log.info("успешно обработан запрос:POST /users, создан пользователь {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public List<BatchItemResult> addUsers(List<User> users) {
+        awaitLoaded();
+        BatchItemResult[] results = BatchValidation.validate(users, UserValidator::validateNew);
+        int added = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                store(users.get(i));
+                results[i] = BatchItemResult.success(i, users.get(i).getId());
+                added++;
+            }
         }
-        if (user.getEmail() == null || user.getEmail().isEmpty()) {
-            log.error("Email пользователя не был указан");
-            throw new ValidationException("email не может быть пустым");
+        log.info("Пакетно добавлено пользователей: {} из {}", added, users.size());
+        return List.of(results);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        awaitLoaded();
+        UserValidator.validateUpdate(user);
+        locks.lock(user.getId());
+        try {
+            User storedUser = userMap.get(user.getId());
+            if (storedUser != null) {
+                journal.userSaved(user);
+                user.replaceFriends(storedUser.getFriends());
+                userMap.put(user.getId(), user);
+                version.increment();
+                userVersions.increment(user.getId());
+                log.info("успешно обработан запрос:PUT /users, успешно обновлён пользователь {}", user.getId());
+                return user;
+            }
+        } finally {
+            locks.unlock(user.getId());
         }
-        if (!(user.getEmail().contains("@"))) {
-            log.error("Email пользователя не содержит @");
-            throw new ValidationException("email не содержит символ: @");
+        log.error("Пользователь с Id {} не был найден", user.getId());
+        throw new NotFoundException("Пользователь не найден");
+    }
+
+    @Override
+    public User removeUser(User user) {
+        awaitLoaded();
+        return remove(user.getId());
+    }
+
+    @Override
+    public User getUserOnId(Integer id) {
+        SnapshotLoad load = loading;
+        if (load != null) {
+            return load.user(id, () -> {
+                awaitLoaded();
+                return userMap.get(id);
+            });
         }
-        if (user.getLogin().isBlank() || user.getLogin().contains(" ")) {
-            log.error("Пользователь не указал логин или он содержит пробелы");
-            throw new ValidationException("логин не может быть пустым и содержать пробелы");
+        return userMap.get(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        awaitLoaded();
+        List<User> users = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            User user = userMap.get(id);
+            if (user != null) {
+                users.add(user);
+            }
         }
-        if (user.getBirthday().isAfter(LocalDate.now()) || user.getBirthday().isEqual(LocalDate.now())) {
-            log.error("Дата рождения пользователя указана в будущем");
-            throw new ValidationException("Дата рождения не может быть в будущем");
+        return users;
+    }
+
+    @Override
+    public void addFriend(Integer userId, Integer friendId) {
+        awaitLoaded();
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = getExistingUser(userId);
+            User friend = getExistingUser(friendId);
+            journal.friendAdded(userId, friendId);
+            journal.friendAdded(friendId, userId);
+            int before = user.getFriendCount() + friend.getFriendCount();
+            user.setFriends(friendId);
+            friend.setFriends(userId);
+            friendLinks.add(user.getFriendCount() + friend.getFriendCount() - before);
+            version.increment();
+            userVersions.increment(userId);
+            userVersions.increment(friendId);
+        } finally {
+            locks.unlockBoth(userId, friendId);
         }
-        if (user.getName() == null || user.getName().isBlank()) {
-            log.debug("Пользователь не указал имя: логин {} будет использоваться как имя", user.getLogin());
-            user.setName(user.getLogin());
+    }
+
+    @Override
+    public void removeFriend(Integer userId, Integer friendId) {
+        awaitLoaded();
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = getExistingUser(userId);
+            User friend = getExistingUser(friendId);
+            journal.friendRemoved(userId, friendId);
+            journal.friendRemoved(friendId, userId);
+            int before = user.getFriendCount() + friend.getFriendCount();
+            user.removeOnFriend(friendId);
+            friend.removeOnFriend(userId);
+            friendLinks.add(user.getFriendCount() + friend.getFriendCount() - before);
+            version.increment();
+            userVersions.increment(userId);
+            userVersions.increment(friendId);
+        } finally {
+            locks.unlockBoth(userId, friendId);
         }
-        user.setId(getNextId());
-        userMap.put(user.getId(), user);
-        log.info("успешно обработан запрос:POST /users, создан пользователь {}", user.getId());
-        return user;
     }
 
-    public User updateUser(User user) {
-        if (user == null) {
-            throw new ValidationException("пустое тело запроса");
+    @Override
+    public void addFriendships(Collection<Friendship> friendships) {
+        awaitLoaded();
+        Map<Integer, List<Integer>> newFriends = new HashMap<>();
+        for (Friendship friendship : friendships) {
+            newFriends.computeIfAbsent(friendship.getUserId(), id -> new ArrayList<>()).add(friendship.getFriendId());
         }
-        if (user.getId() == null) {
-            log.error("Пользователь не указал Id");
-            throw new ValidationException("Должен быть указан Id пользователя");
+        newFriends.forEach((userId, friendIds) -> befriend(userId, SortedIntSet.copyOf(friendIds)));
+        version.increment();
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId) {
+        awaitLoaded();
+        SortedIntSet commonIds = getExistingUser(userId).getFriends()
+                .intersect(getExistingUser(otherId).getFriends());
+        return getUsersByIds(commonIds);
+    }
+
+    @Override
+    public VersionStamp getVersion() {
+        awaitLoaded();
+        return version.current();
+    }
+
+    @Override
+    public VersionStamp getFriendsVersion(int userId) {
+        awaitLoaded();
+        User user = userMap.get(userId);
+        return userVersions.current(userId, user == null ? SortedIntSet.EMPTY : user.getFriends());
+    }
+
+    @Override
+    public long countUsers() {
+        return userCount.sum();
+    }
+
+    @Override
+    public long countFriendships() {
+        return friendLinks.sum() / 2;
+    }
+
+    /**
+     * Хранилище загружается из снимка в фоне: до окончания загрузки пользователи по id читаются из снимка,
+     * остальные операции ждут.
+     */
+    public void loadLazily(SnapshotLoad load) {
+        this.loading = load;
+    }
+
+    /**
+     * Подключает журнал изменений. Вызывается до того, как хранилище начинает принимать запросы.
+     */
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Останавливает изменения пользователей: к возврату начатые изменения записаны в журнал и применены,
+     * новые ждут {@link #resumeWrites()}.
+     */
+    public void pauseWrites() {
+        locks.lockAll();
+    }
+
+    public void resumeWrites() {
+        locks.unlockAll();
+    }
+
+    /**
+     * Журнал, применяющий записи к этому хранилищу при восстановлении: id сохраняются как есть,
+     * записи о несуществующих пользователях пропускаются.
+     */
+    public StorageJournal recovery() {
+        return new Recovery();
+    }
+
+    private void awaitLoaded() {
+        SnapshotLoad load = loading;
+        if (load != null) {
+            load.await();
+            loading = null;
         }
-        if (user.getEmail() == null || user.getEmail().isEmpty()) {
-            log.error("Пользователь не указал email");
-            throw new ValidationException("Должен быть указан email пользователя");
+    }
+
+    private void store(User user) {
+        user.setId(idGenerator.nextId());
+        user.replaceFriends(SortedIntSet.EMPTY);
+        // под блокировкой, чтобы дружба нового пользователя не попала в журнал раньше него самого
+        locks.lock(user.getId());
+        try {
+            journal.userSaved(user);
+            insert(user);
+        } finally {
+            locks.unlock(user.getId());
+        }
+    }
+
+    // пользователь, удалённый во время обхода, пропускается
+    private List<User> users(Collection<Integer> ids, int limit) {
+        List<User> users = new ArrayList<>();
+        for (Integer id : ids) {
+            if (users.size() >= limit) {
+                break;
+            }
+            User user = userMap.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private void insert(User user) {
+        userMap.put(user.getId(), user);
+        userIds.add(user.getId());
+        userCount.increment();
+        version.increment();
+    }
+
+    /**
+     * Удаляет пользователя и обратные ссылки на него из списков его друзей. Новых ссылок на удалённого
+     * пользователя не появится: дружба под блокировками обоих пользователей проверяет, что оба есть
+     * в хранилище.
+     */
+    private User remove(int userId) {
+        User removedUser;
+        locks.lock(userId);
+        try {
+            if (!userMap.containsKey(userId)) {
+                return null;
+            }
+            journal.userRemoved(userId);
+            removedUser = userMap.remove(userId);
+            userIds.remove(userId);
+            userCount.decrement();
+            friendLinks.add(-removedUser.getFriendCount());
+            userVersions.increment(userId);
+        } finally {
+            locks.unlock(userId);
         }
-        if (user.getBirthday() == null) {
-            log.error("Пользователь не указал дату рождения");
-            throw new ValidationException("Должна быть указана дата рождения пользователя");
+        SortedIntSet friendIds = removedUser.getFriends();
+        for (int i = 0; i < friendIds.size(); i++) {
+            unlinkFriend(friendIds.get(i), userId);
         }
-        if (user.getName() == null || user.getName().isEmpty()) {
-            log.error("Пользователь не указал имя");
-            throw new ValidationException("Должно быть указано имя пользователя");
+        version.increment();
+        return removedUser;
+    }
+
+    private void unlinkFriend(int userId, int friendId) {
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = userMap.get(userId);
+            if (user != null && user.hasFriend(friendId)) {
+                user.removeOnFriend(friendId);
+                friendLinks.decrement();
+                userVersions.increment(userId);
+            }
+        } finally {
+            locks.unlockBoth(userId, friendId);
         }
-        if (user.getLogin().isBlank() || user.getLogin().contains(" ")) {
-            log.error("пользователь не указал логин или он содержит пробелы");
-            throw new ValidationException("логин не может быть пустым и содержать пробелы");
+    }
+
+    /**
+     * Добавляет пользователю друзей в обе стороны под блокировками его и всех друзей. Друзья, которых нет
+     * в хранилище, пропускаются: иначе дружба, пересёкшаяся с удалением друга, оставила бы ссылку
+     * на удалённого пользователя.
+     */
+    private void befriend(int userId, SortedIntSet friendIds) {
+        int[] keys = new int[friendIds.size() + 1];
+        keys[0] = userId;
+        for (int i = 0; i < friendIds.size(); i++) {
+            keys[i + 1] = friendIds.get(i);
         }
-        if (userMap.containsKey(user.getId())) {
-            userMap.put(user.getId(), user);
-            log.info("успешно обработан запрос:PUT /users, успешно обновлён пользователь {}", user.getId());
-            return user;
+        int[] stripes = locks.lockKeys(keys);
+        try {
+            User user = userMap.get(userId);
+            if (user == null) {
+                return;
+            }
+            SortedIntSet newFriends = friendIds.filter(friendId -> !user.hasFriend(friendId)
+                    && userMap.containsKey(friendId));
+            if (newFriends.isEmpty()) {
+                return;
+            }
+            journal.friendsAdded(userId, newFriends.toIntArray());
+            for (int i = 0; i < newFriends.size(); i++) {
+                journal.friendAdded(newFriends.get(i), userId);
+            }
+            int before = user.getFriendCount();
+            user.addFriends(newFriends);
+            int added = user.getFriendCount() - before;
+            for (int i = 0; i < newFriends.size(); i++) {
+                User friend = userMap.get(newFriends.get(i));
+                before = friend.getFriendCount();
+                friend.setFriends(userId);
+                added += friend.getFriendCount() - before;
+                userVersions.increment(friend.getId());
+            }
+            friendLinks.add(added);
+            userVersions.increment(userId);
+        } finally {
+            locks.unlockStripes(stripes);
         }
-        log.error("Пользователь с Id {} не был найден", user.getId());
-        throw new NotFoundException("Пользователь не найден");
     }
 
-    public User removeUser(User user) {
-        return userMap.remove(user.getId());
+    /**
+     * Добавляет ссылки на друзей в одну сторону при восстановлении, без проверки друзей: снимок проигрывает
+     * друзей раньше, чем сохранены они сами.
+     */
+    private void linkFriends(int userId, SortedIntSet friendIds) {
+        locks.lock(userId);
+        try {
+            User user = userMap.get(userId);
+            if (user == null) {
+                return;
+            }
+            SortedIntSet newFriends = friendIds.filter(friendId -> !user.hasFriend(friendId));
+            if (newFriends.isEmpty()) {
+                return;
+            }
+            user.addFriends(newFriends);
+            friendLinks.add(newFriends.size());
+            userVersions.increment(userId);
+        } finally {
+            locks.unlock(userId);
+        }
     }
 
-    public User getUserOnId(Integer id) {
-        return userMap.get(id);
+    private User getExistingUser(Integer id) {
+        User user = userMap.get(id);
+        if (user == null) {
+            log.error("Пользователь с Id {} не был найден", id);
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return user;
     }
 
-    private int getNextId() {
-        int currentMaxId = userMap.keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    private final class Recovery implements StorageJournal {
+        @Override
+        public void userSaved(User user) {
+            locks.lock(user.getId());
+            try {
+                User storedUser = userMap.get(user.getId());
+                if (storedUser != null) {
+                    user.replaceFriends(storedUser.getFriends());
+                    userMap.put(user.getId(), user);
+                    version.increment();
+                    userVersions.increment(user.getId());
+                } else {
+                    user.replaceFriends(SortedIntSet.EMPTY);
+                    insert(user);
+                    idGenerator.advanceTo(user.getId());
+                }
+            } finally {
+                locks.unlock(user.getId());
+            }
+        }
+
+        @Override
+        public void userRemoved(int userId) {
+            remove(userId);
+        }
+
+        @Override
+        public void friendAdded(int userId, int friendId) {
+            linkFriends(userId, SortedIntSet.of(friendId));
+        }
+
+        @Override
+        public void friendsAdded(int userId, int[] friendIds) {
+            linkFriends(userId, SortedIntSet.of(friendIds));
+        }
+
+        @Override
+        public void friendRemoved(int userId, int friendId) {
+            unlinkFriend(userId, friendId);
+        }
     }
 }
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Обратный индекс лайков: пользователь → отсортированное множество понравившихся ему фильмов.
+ * Id пользователей плотные, поэтому множества лежат в страницах массива, а не в хеш-таблице:
+ * на пользователя приходится одна ссылка вместо узла с упакованным ключом. Страницы создаются по мере надобности,
+ * множество пользователя заменяется через CAS, так что изменения разных фильмов не требуют общей блокировки.
+ */
+public class LikedFilmsIndex {
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<SortedIntSet>> pages =
+            new AtomicReferenceArray<>(1 << (Integer.SIZE - PAGE_BITS));
+
+    public SortedIntSet get(int userId) {
+        AtomicReferenceArray<SortedIntSet> page = pages.get(userId >>> PAGE_BITS);
+        if (page == null) {
+            return SortedIntSet.EMPTY;
+        }
+        SortedIntSet films = page.get(userId & PAGE_MASK);
+        return films == null ? SortedIntSet.EMPTY : films;
+    }
+
+    public void add(int userId, int filmId) {
+        AtomicReferenceArray<SortedIntSet> page = page(userId);
+        int slot = userId & PAGE_MASK;
+        SortedIntSet current;
+        do {
+            current = page.get(slot);
+        } while (!page.compareAndSet(slot, current, (current == null ? SortedIntSet.EMPTY : current).with(filmId)));
+    }
+
+    public void remove(int userId, int filmId) {
+        AtomicReferenceArray<SortedIntSet> page = pages.get(userId >>> PAGE_BITS);
+        if (page == null) {
+            return;
+        }
+        int slot = userId & PAGE_MASK;
+        SortedIntSet current;
+        SortedIntSet updated;
+        do {
+            current = page.get(slot);
+            if (current == null) {
+                return;
+            }
+            updated = current.without(filmId);
+            // пустое множество не храним, чтобы ушедшие пользователи не держали память
+        } while (!page.compareAndSet(slot, current, updated.isEmpty() ? null : updated));
+    }
+
+    /**
+     * Строит индекс заново по лайкам фильмов: сначала считает лайки каждого пользователя, затем раскладывает
+     * id фильмов по массивам точного размера. Конкурентные изменения во время перестройки не допускаются.
+     */
+    public void rebuild(Collection<Film> films) {
+        int[] counts = new int[0];
+        for (Film film : films) {
+            SortedIntSet userIds = film.getUsersIdLike();
+            if (!userIds.isEmpty() && userIds.get(userIds.size() - 1) >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(userIds.get(userIds.size() - 1) + 1, counts.length * 2));
+            }
+            for (int i = 0; i < userIds.size(); i++) {
+                if (userIds.get(i) >= 0) {
+                    counts[userIds.get(i)]++;
+                }
+            }
+        }
+        int[][] filmIds = new int[counts.length][];
+        for (int i = 0; i < pages.length(); i++) {
+            pages.set(i, null);
+        }
+        for (Film film : films) {
+            SortedIntSet userIds = film.getUsersIdLike();
+            for (int i = 0; i < userIds.size(); i++) {
+                int userId = userIds.get(i);
+                if (userId < 0) {
+                    add(userId, film.getId());
+                    continue;
+                }
+                if (filmIds[userId] == null) {
+                    filmIds[userId] = new int[counts[userId]];
+                    counts[userId] = 0;
+                }
+                filmIds[userId][counts[userId]++] = film.getId();
+            }
+        }
+        for (int userId = 0; userId < filmIds.length; userId++) {
+            if (filmIds[userId] != null) {
+                page(userId).set(userId & PAGE_MASK, SortedIntSet.of(filmIds[userId]));
+            }
+        }
+    }
+
+    private AtomicReferenceArray<SortedIntSet> page(int userId) {
+        int index = userId >>> PAGE_BITS;
+        AtomicReferenceArray<SortedIntSet> page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = pages.get(index);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Фильмы, упорядоченные по убыванию лайков, при равенстве — по возрастанию id.
+ * Обновления одного фильма должны выполняться под его блокировкой в хранилище.
+ * <p>
+ * Изменения сообщают, мог ли измениться топ из {@link #TRACKED_TOP} фильмов. Для этого индекс хранит
+ * нижнюю границу лайков фильма на последнем месте топа — число лайков фильма на месте {@code 2 * TRACKED_TOP}.
+ * Рост лайков вне топа границу не нарушает, а каждое уменьшение или удаление фильма из топа сдвигает
+ * последнее место не больше чем на одну позицию, поэтому граница пересчитывается обходом раз
+ * в {@code TRACKED_TOP / 2} изменений топа.
+ */
+public class PopularityIndex {
+    public static final int TRACKED_TOP = 100;
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::id);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+    // размер ConcurrentSkipListSet считается обходом
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger topChanges = new AtomicInteger();
+    private final ReentrantLock cutoffLock = new ReentrantLock();
+    // фильм с меньшим числом лайков не входит в топ
+    private volatile int cutoff;
+
+    /**
+     * Добавляет фильм и возвращает true, если он мог попасть в топ.
+     */
+    public boolean add(int id, int likes) {
+        if (entries.add(new Entry(likes, id))) {
+            size.incrementAndGet();
+        }
+        return changesTop(likes);
+    }
+
+    /**
+     * Удаляет фильм и возвращает true, если он мог быть в топе.
+     */
+    public boolean remove(int id, int likes) {
+        if (entries.remove(new Entry(likes, id))) {
+            size.decrementAndGet();
+        }
+        return changesTop(likes);
+    }
+
+    public void clear() {
+        entries.clear();
+        size.set(0);
+        cutoff = 0;
+        topChanges.set(0);
+    }
+
+    /**
+     * Число фильмов в индексе, по нему выбирается самый узкий индекс для фильтра.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Переносит фильм на новую позицию и возвращает true, если до или после переноса он мог быть в топе.
+     */
+    public boolean update(int id, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return false;
+        }
+        // сначала добавляем новую позицию, чтобы читатель не пропустил фильм, дубль отсекается в top()
+        entries.add(new Entry(newLikes, id));
+        entries.remove(new Entry(oldLikes, id));
+        return changesTop(Math.max(oldLikes, newLikes));
+    }
+
+    /**
+     * Возвращает true, если изменение фильма с таким числом лайков может изменить топ, и учитывает его
+     * для пересчёта границы.
+     */
+    public boolean changesTop(int likes) {
+        if (likes < cutoff) {
+            return false;
+        }
+        if (topChanges.incrementAndGet() >= TRACKED_TOP / 2 && cutoffLock.tryLock()) {
+            try {
+                topChanges.set(0);
+                cutoff = likesAt(2 * TRACKED_TOP);
+            } finally {
+                cutoffLock.unlock();
+            }
+        }
+        return true;
+    }
+
+    public List<Integer> top(int count) {
+        return top(count, id -> true);
+    }
+
+    /**
+     * Первые {@code count} фильмов по популярности среди тех, что проходят {@code filter}.
+     */
+    public List<Integer> top(int count, IntPredicate filter) {
+        List<Integer> ids = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : entries) {
+            if (ids.size() >= count) {
+                break;
+            }
+            if (seen.add(entry.id()) && filter.test(entry.id())) {
+                ids.add(entry.id());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Обходит фильмы по убыванию популярности, пока {@code visitor} возвращает true. Во время обновления
+     * фильм может встретиться дважды — с прежним и новым числом лайков.
+     */
+    public void forEach(Visitor visitor) {
+        for (Entry entry : entries) {
+            if (!visitor.visit(entry.id(), entry.likes())) {
+                return;
+            }
+        }
+    }
+
+    // лайки фильма на позиции position, считая с единицы, или 0, если фильмов меньше
+    private int likesAt(int position) {
+        int passed = 0;
+        for (Entry entry : entries) {
+            if (++passed == position) {
+                return entry.likes();
+            }
+        }
+        return 0;
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        boolean visit(int id, int likes);
+    }
+
+    private record Entry(int likes, int id) {
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLock {
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public void lock(int key) {
+        locks[index(key)].lock();
+    }
+
+    public void unlock(int key) {
+        locks[index(key)].unlock();
+    }
+
+    public void lockBoth(int first, int second) {
+        int firstIndex = index(first);
+        int secondIndex = index(second);
+        if (firstIndex == secondIndex) {
+            locks[firstIndex].lock();
+            return;
+        }
+        locks[Math.min(firstIndex, secondIndex)].lock();
+        locks[Math.max(firstIndex, secondIndex)].lock();
+    }
+
+    public void unlockBoth(int first, int second) {
+        int firstIndex = index(first);
+        int secondIndex = index(second);
+        locks[firstIndex].unlock();
+        if (firstIndex != secondIndex) {
+            locks[secondIndex].unlock();
+        }
+    }
+
+    /**
+     * Захватывает полосы всех ключей по возрастанию номера, как {@link #lockBoth}. Возвращает захваченные
+     * полосы для {@link #unlockStripes}.
+     */
+    public int[] lockKeys(int[] keys) {
+        int[] stripes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            stripes[i] = index(keys[i]);
+        }
+        stripes = Arrays.stream(stripes).sorted().distinct().toArray();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        return stripes;
+    }
+
+    public void unlockStripes(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    /**
+     * Захватывает все полосы по возрастанию номера — в том же порядке, что и {@link #lockBoth}.
+     */
+    public void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    public void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private int index(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
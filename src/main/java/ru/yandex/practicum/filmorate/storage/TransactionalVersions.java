@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.util.VersionCounter;
+import ru.yandex.practicum.filmorate.util.VersionCounters;
+
+import java.util.Collection;
+
+final class TransactionalVersions {
+    private TransactionalVersions() {
+    }
+
+    /**
+     * Увеличивает версию после завершения текущей транзакции: иначе читатель может увидеть новую
+     * версию раньше, чем закоммиченные данные, и закэшировать под ней старый ответ.
+     */
+    static void incrementAfterCompletion(VersionCounter version) {
+        afterCompletion(version::increment);
+    }
+
+    /**
+     * Увеличивает версии пользователей после завершения текущей транзакции.
+     */
+    static void incrementAfterCompletion(VersionCounters versions, Collection<Integer> ids) {
+        afterCompletion(() -> ids.forEach(versions::increment));
+    }
+
+    private static void afterCompletion(Runnable increment) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                increment.run();
+            }
+        });
+    }
+}
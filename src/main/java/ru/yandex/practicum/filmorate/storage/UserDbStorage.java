@@ -0,0 +1,303 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.id.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionCounter;
+import ru.yandex.practicum.filmorate.util.VersionCounters;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Component("userStorage")
+@Profile("db")
+public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT id, email, login, name, birthday FROM users";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+    private final FilmDbStorage filmStorage;
+    private final VersionCounter version = new VersionCounter();
+    private final IdGenerator idGenerator;
+    // версия пользователя меняется вместе с его данными или составом друзей
+    private final VersionCounters userVersions = new VersionCounters();
+
+    @Autowired
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         FilmDbStorage filmStorage) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.filmStorage = filmStorage;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingColumns("id", "email", "login", "name", "birthday");
+        // id выдаются приложением, а не базой: пакетная вставка обходится без возврата сгенерированных ключей
+        this.idGenerator = new AtomicIdGenerator(
+                jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Integer.class));
+    }
+
+    @Override
+    public User addUser(User user) {
+        UserValidator.validateNew(user);
+        user.setId(idGenerator.nextId());
+        MapSqlParameterSource row = new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", Date.valueOf(user.getBirthday()));
+        userInsert.execute(row);
+        user.replaceFriends(SortedIntSet.EMPTY);
+        changed();
+        log.info("успешно обработан запрос:POST /users, создан пользователь {}", user.getId());
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> addUsers(List<User> users) {
+        BatchItemResult[] results = BatchValidation.validate(users, UserValidator::validateNew);
+        List<User> valid = new ArrayList<>();
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                User user = users.get(i);
+                user.setId(idGenerator.nextId());
+                valid.add(user);
+                rows.add(new MapSqlParameterSource()
+                        .addValue("id", user.getId())
+                        .addValue("email", user.getEmail())
+                        .addValue("login", user.getLogin())
+                        .addValue("name", user.getName())
+                        .addValue("birthday", Date.valueOf(user.getBirthday())));
+            }
+        }
+        if (!valid.isEmpty()) {
+            namedJdbcTemplate.batchUpdate("INSERT INTO users (id, email, login, name, birthday) " +
+                            "VALUES (:id, :email, :login, :name, :birthday)",
+                    rows.toArray(new SqlParameterSource[0]));
+            for (User user : valid) {
+                user.replaceFriends(SortedIntSet.EMPTY);
+            }
+            changed();
+        }
+        int next = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = BatchItemResult.success(i, valid.get(next++).getId());
+            }
+        }
+        log.info("Пакетно добавлено пользователей: {} из {}", valid.size(), users.size());
+        return List.of(results);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        UserValidator.validateUpdate(user);
+        int updated = jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()), user.getId());
+        if (updated == 0) {
+            log.error("Пользователь с Id {} не был найден", user.getId());
+            throw new NotFoundException("Пользователь не найден");
+        }
+        user.replaceFriends(loadFriends(List.of(user.getId())).getOrDefault(user.getId(), SortedIntSet.EMPTY));
+        changed(List.of(user.getId()));
+        log.info("успешно обработан запрос:PUT /users, успешно обновлён пользователь {}", user.getId());
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public User removeUser(User user) {
+        User removedUser = getUserOnId(user.getId());
+        if (removedUser != null) {
+            jdbcTemplate.update("UPDATE films SET likes = likes - 1 " +
+                    "WHERE id IN (SELECT film_id FROM likes_users WHERE user_id = ?)", user.getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+            // дружба удаляется каскадно и меняет списки друзей бывших друзей
+            SortedIntSet friends = removedUser.getFriends();
+            List<Integer> changedIds = new ArrayList<>(friends.size() + 1);
+            changedIds.add(user.getId());
+            for (int i = 0; i < friends.size(); i++) {
+                changedIds.add(friends.get(i));
+            }
+            changed(changedIds);
+            // вместе с пользователем удаляются его лайки
+            filmStorage.changed();
+        }
+        return removedUser;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + " ORDER BY id", this::mapUser));
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + " WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapUser, afterId, limit));
+    }
+
+    @Override
+    public User getUserOnId(Integer id) {
+        List<User> users = withFriends(jdbcTemplate.query(SELECT_USERS + " WHERE id = ?", this::mapUser, id));
+        return users.isEmpty() ? null : users.getFirst();
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (List<Integer> chunk : IdChunks.split(new LinkedHashSet<>(ids))) {
+            users.addAll(namedJdbcTemplate.query(SELECT_USERS + " WHERE id IN (:ids) ORDER BY id",
+                    new MapSqlParameterSource("ids", chunk), this::mapUser));
+        }
+        return withFriends(users);
+    }
+
+    @Override
+    @Transactional
+    public void addFriend(Integer userId, Integer friendId) {
+        try {
+            jdbcTemplate.update("MERGE INTO friendship (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                    userId, friendId);
+            jdbcTemplate.update("MERGE INTO friendship (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                    friendId, userId);
+            changed(List.of(userId, friendId));
+        } catch (DataIntegrityViolationException e) {
+            log.error("Пользователь с Id {} или {} не был найден", userId, friendId);
+            throw new NotFoundException("Пользователь не найден");
+        }
+    }
+
+    @Override
+    public void removeFriend(Integer userId, Integer friendId) {
+        jdbcTemplate.update("DELETE FROM friendship WHERE (user_id = ? AND friend_id = ?) " +
+                "OR (user_id = ? AND friend_id = ?)", userId, friendId, friendId, userId);
+        changed(List.of(userId, friendId));
+    }
+
+    @Override
+    @Transactional
+    public void addFriendships(Collection<Friendship> friendships) {
+        List<Object[]> rows = new ArrayList<>(friendships.size() * 2);
+        Set<Integer> userIds = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            rows.add(new Object[]{friendship.getUserId(), friendship.getFriendId()});
+            rows.add(new Object[]{friendship.getFriendId(), friendship.getUserId()});
+            userIds.add(friendship.getUserId());
+            userIds.add(friendship.getFriendId());
+        }
+        jdbcTemplate.batchUpdate("MERGE INTO friendship (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                rows);
+        changed(userIds);
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId) {
+        return withFriends(jdbcTemplate.query("SELECT u.id, u.email, u.login, u.name, u.birthday " +
+                "FROM friendship AS f1 " +
+                "JOIN friendship AS f2 ON f1.friend_id = f2.friend_id " +
+                "JOIN users AS u ON u.id = f1.friend_id " +
+                "WHERE f1.user_id = ? AND f2.user_id = ? " +
+                "ORDER BY u.id", this::mapUser, userId, otherId));
+    }
+
+    @Override
+    public VersionStamp getVersion() {
+        return version.current();
+    }
+
+    @Override
+    public VersionStamp getFriendsVersion(int userId) {
+        return userVersions.current(userId, loadFriends(List.of(userId)).getOrDefault(userId, SortedIntSet.EMPTY));
+    }
+
+    @Override
+    public long countUsers() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    @Override
+    public long countFriendships() {
+        // дружба хранится в обе стороны
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendship", Long.class) / 2;
+    }
+
+    private void changed() {
+        TransactionalVersions.incrementAfterCompletion(version);
+    }
+
+    private void changed(Collection<Integer> userIds) {
+        changed();
+        TransactionalVersions.incrementAfterCompletion(userVersions, userIds);
+    }
+
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        List<Integer> ids = new ArrayList<>(users.size());
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        Map<Integer, SortedIntSet> friends = loadFriends(ids);
+        for (User user : users) {
+            user.replaceFriends(friends.getOrDefault(user.getId(), SortedIntSet.EMPTY));
+        }
+        return users;
+    }
+
+    private Map<Integer, SortedIntSet> loadFriends(Collection<Integer> userIds) {
+        Map<Integer, List<Integer>> friendIds = new HashMap<>();
+        for (List<Integer> chunk : IdChunks.split(userIds)) {
+            namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendship WHERE user_id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        friendIds.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>())
+                                .add(rs.getInt("friend_id"));
+                    });
+        }
+        Map<Integer, SortedIntSet> friends = new HashMap<>();
+        friendIds.forEach((id, ids) -> friends.put(id, SortedIntSet.copyOf(ids)));
+        return friends;
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        Date birthday = rs.getDate("birthday");
+        user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+        return user;
+    }
+}
@@ -1,17 +1,64 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
+    int EXPORT_BATCH_SIZE = 1000;
+
     User addUser(User user);
 
+    List<BatchItemResult> addUsers(List<User> users);
+
     User updateUser(User user);
 
     User removeUser(User user);
 
     List<User> getAllUsers();
 
+    List<User> getUsersPage(int afterId, int limit);
+
     User getUserOnId(Integer id);
+
+    List<User> getUsersByIds(Collection<Integer> ids);
+
+    void addFriend(Integer userId, Integer friendId);
+
+    void removeFriend(Integer userId, Integer friendId);
+
+    void addFriendships(Collection<Friendship> friendships);
+
+    List<User> getCommonFriends(Integer userId, Integer otherId);
+
+    VersionStamp getVersion();
+
+    /**
+     * Версия списка друзей пользователя: меняется при изменении состава друзей, данных друга или числа
+     * его друзей.
+     */
+    VersionStamp getFriendsVersion(int userId);
+
+    long countUsers();
+
+    long countFriendships();
+
+    default void forEachUser(Consumer<User> action) {
+        int afterId = 0;
+        List<User> batch;
+        do {
+            batch = getUsersPage(afterId, EXPORT_BATCH_SIZE);
+            for (User user : batch) {
+                action.accept(user);
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.getLast().getId();
+            }
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+    }
 }
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+@Slf4j
+final class UserValidator {
+
+    private UserValidator() {
+    }
+
+    static void validateNew(User user) {
+        if (user == null) {
+            throw new ValidationException("пустое тело запроса");
+        }
+        if (user.getEmail() == null || user.getEmail().isEmpty()) {
+            log.error("Email пользователя не был указан");
+            throw new ValidationException("email не может быть пустым");
+        }
+        if (!(user.getEmail().contains("@"))) {
+            log.error("Email пользователя не содержит @");
+            throw new ValidationException("email не содержит символ: @");
+        }
+        if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
+            log.error("Пользователь не указал логин или он содержит пробелы");
+            throw new ValidationException("логин не может быть пустым и содержать пробелы");
+        }
+        if (user.getBirthday() == null) {
+            log.error("Пользователь не указал дату рождения");
+            throw new ValidationException("Должна быть указана дата рождения пользователя");
+        }
+        if (user.getBirthday().isAfter(LocalDate.now()) || user.getBirthday().isEqual(LocalDate.now())) {
+            log.error("Дата рождения пользователя указана в будущем");
+            throw new ValidationException("Дата рождения не может быть в будущем");
+        }
+        if (user.getName() == null || user.getName().isBlank()) {
+            log.debug("Пользователь не указал имя: логин {} будет использоваться как имя", user.getLogin());
+            user.setName(user.getLogin());
+        }
+    }
+
+    static void validateUpdate(User user) {
+        if (user == null) {
+            throw new ValidationException("пустое тело запроса");
+        }
+        if (user.getId() == null) {
+            log.error("Пользователь не указал Id");
+            throw new ValidationException("Должен быть указан Id пользователя");
+        }
+        if (user.getEmail() == null || user.getEmail().isEmpty()) {
+            log.error("Пользователь не указал email");
+            throw new ValidationException("Должен быть указан email пользователя");
+        }
+        if (user.getBirthday() == null) {
+            log.error("Пользователь не указал дату рождения");
+            throw new ValidationException("Должна быть указана дата рождения пользователя");
+        }
+        if (user.getName() == null || user.getName().isEmpty()) {
+            log.error("Пользователь не указал имя");
+            throw new ValidationException("Должно быть указано имя пользователя");
+        }
+        if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
+            log.error("пользователь не указал логин или он содержит пробелы");
+            throw new ValidationException("логин не может быть пустым и содержать пробелы");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomicIdGenerator implements IdGenerator {
+    private final AtomicInteger lastId;
+
+    public AtomicIdGenerator() {
+        this(0);
+    }
+
+    public AtomicIdGenerator(int lastUsedId) {
+        this.lastId = new AtomicInteger(lastUsedId);
+    }
+
+    @Override
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public void advanceTo(int usedId) {
+        lastId.accumulateAndGet(usedId, Math::max);
+    }
+}
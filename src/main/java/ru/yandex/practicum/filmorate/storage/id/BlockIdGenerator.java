@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Резервирует диапазоны id под каждый поток, чтобы потоки не конкурировали за общий счётчик
+ * на каждой вставке. Id уникальны и не переиспользуются, но возрастают только в пределах потока.
+ * Виртуальные потоки живут один запрос, поэтому блок им не резервируется: id берётся из общего
+ * счётчика, иначе каждый запрос съедал бы целый блок.
+ */
+public class BlockIdGenerator implements IdGenerator {
+    private static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final int blockSize;
+    private final AtomicInteger reservedUpTo = new AtomicInteger();
+    // id не больше этого уже заняты: блоки, выданные до advanceTo, отбрасываются
+    private final AtomicInteger reservedFloor = new AtomicInteger();
+    private final ThreadLocal<Block> currentBlock = ThreadLocal.withInitial(Block::new);
+
+    public BlockIdGenerator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockIdGenerator(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("размер блока id должен быть положительным");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId() {
+        if (Thread.currentThread().isVirtual()) {
+            return reservedUpTo.incrementAndGet();
+        }
+        Block block = currentBlock.get();
+        if (block.next > block.last || block.next <= reservedFloor.get()) {
+            int last = reservedUpTo.addAndGet(blockSize);
+            block.next = last - blockSize + 1;
+            block.last = last;
+        }
+        return block.next++;
+    }
+
+    @Override
+    public void advanceTo(int usedId) {
+        reservedUpTo.accumulateAndGet(usedId, Math::max);
+        reservedFloor.accumulateAndGet(usedId, Math::max);
+    }
+
+    private static final class Block {
+        private int next = 1;
+        private int last = 0;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+public interface IdGenerator {
+    int nextId();
+
+    void advanceTo(int usedId);
+}
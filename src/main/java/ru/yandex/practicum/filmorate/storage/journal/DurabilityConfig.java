@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+@Configuration
+@Profile("!db")
+@ConditionalOnProperty(value = "filmorate.durability.enabled", havingValue = "true")
+@EnableConfigurationProperties(DurabilityProperties.class)
+public class DurabilityConfig {
+
+    @Bean
+    public DurableStorage durableStorage(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                                         DurabilityProperties properties) {
+        return new DurableStorage(filmStorage, userStorage, properties);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.durability")
+public class DurabilityProperties {
+    private boolean enabled;
+    private String directory = "data";
+    private Duration fsyncInterval = Duration.ofMillis(10);
+    private DataSize maxBufferedSize = DataSize.ofMegabytes(16);
+    private Duration snapshotInterval = Duration.ofMinutes(10);
+    private DataSize maxSegmentSize = DataSize.ofMegabytes(256);
+    private boolean snapshotOnShutdown = true;
+}
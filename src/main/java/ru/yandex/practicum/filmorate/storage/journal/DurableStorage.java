@@ -0,0 +1,415 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Долговечность in-memory хранилищ: журнал упреждающей записи плюс периодические снимки.
+ * <p>
+ * Снимок N содержит состояние не старше начала сегмента журнала N, поэтому при запуске загружается
+ * последний снимок и поверх него проигрываются сегменты с номерами от N. Запись останавливается только
+ * на смену сегмента, чтобы все изменения из старых сегментов были применены; сам снимок пишется без
+ * остановки записи и может захватить часть изменений из сегмента N, но записи журнала идемпотентны,
+ * и повторное проигрывание приводит к тому же состоянию. После записи снимка старые сегменты и снимки удаляются.
+ * <p>
+ * Снимок отображается в память и загружается в хранилища в фоне, см. {@link SnapshotLoad}.
+ */
+@Slf4j
+public class DurableStorage implements Closeable {
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{16})\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{16})\\.bin");
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final DurabilityProperties properties;
+    private final Path directory;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean();
+    private final Executor loader;
+    private volatile SnapshotLoad load;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile WriteAheadLog wal;
+
+    public DurableStorage(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                          DurabilityProperties properties) {
+        this(filmStorage, userStorage, properties,
+                task -> Thread.ofPlatform().name("filmorate-snapshot-loader").start(task));
+    }
+
+    public DurableStorage(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                          DurabilityProperties properties, Executor loader) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.properties = properties;
+        this.directory = Path.of(properties.getDirectory());
+        this.loader = loader;
+    }
+
+    /**
+     * Отображает последний снимок в память, проверяет хвост журнала и запускает фоновую загрузку хранилищ.
+     * До её окончания хранилища отвечают по id из снимка, остальные операции ждут.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        List<Long> snapshots = list(SNAPSHOT);
+        List<Long> segments = list(SEGMENT);
+        long from = snapshots.isEmpty() ? 0 : snapshots.getLast();
+        MappedSnapshot snapshot = from > 0 ? MappedSnapshot.open(snapshotPath(from)) : null;
+        List<Path> tail = new ArrayList<>();
+        ChangedIds changed = new ChangedIds();
+        for (Long number : segments) {
+            if (number < from) {
+                continue;
+            }
+            Path segment = WriteAheadLog.segmentPath(directory, number);
+            RecordReader.Result result = RecordReader.read(segment, changed);
+            if (!result.complete()) {
+                if (!number.equals(segments.getLast())) {
+                    // сегменты закрываются с fsync, поэтому оборваться может только последний
+                    throw new IllegalStateException("Сегмент журнала повреждён: " + segment);
+                }
+                log.warn("Журнал {} оборван, отброшено {} байт", segment, Files.size(segment) - result.validSize());
+                truncate(segment, result.validSize());
+            }
+            tail.add(segment);
+        }
+        long next = Math.max(from, segments.isEmpty() ? 0 : segments.getLast()) + 1;
+        load = new SnapshotLoad(snapshot, changed.films, changed.users);
+        filmStorage.loadLazily(load);
+        userStorage.loadLazily(load);
+        loader.execute(() -> load(snapshot, tail, next, started));
+    }
+
+    /**
+     * Ждёт окончания загрузки хранилищ.
+     */
+    public void awaitLoaded() {
+        load.await();
+    }
+
+    /**
+     * Пишет снимок текущего состояния и удаляет журнал и снимки, которые он заменяет.
+     */
+    public void snapshot() throws IOException {
+        awaitLoaded();
+        snapshotLock.lock();
+        try {
+            long started = System.nanoTime();
+            long segment = rotate();
+            Path snapshot = snapshotPath(segment);
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // обход списков не блокирует запись: снимок может захватить часть изменений нового сегмента
+                MappedSnapshot.write(channel, filmStorage.getAllFilms(), userStorage.getAllUsers());
+                channel.force(true);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            deleteBefore(segment);
+            log.info("Записан снимок {} за {} мс", snapshot.getFileName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Начинает новый сегмент, пока изменения хранилищ остановлены. Хранилища пишут в журнал до применения
+     * изменения, поэтому без остановки запись из старого сегмента могла бы ещё не быть видна снимку,
+     * а сегмент удаляется вместе с ней.
+     */
+    private long rotate() throws IOException {
+        filmStorage.pauseWrites();
+        userStorage.pauseWrites();
+        try {
+            return wal.rotate();
+        } finally {
+            userStorage.resumeWrites();
+            filmStorage.resumeWrites();
+        }
+    }
+
+    /**
+     * Останавливает снимки по расписанию и закрывает журнал. Если журнал не пуст, сначала пишется снимок,
+     * чтобы следующий запуск не проигрывал хвост.
+     */
+    @Override
+    public void close() throws IOException {
+        if (load == null) {
+            return;
+        }
+        try {
+            load.await();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (properties.isSnapshotOnShutdown() && wal.hasRecords()) {
+            snapshotQuietly();
+        }
+        filmStorage.setJournal(StorageJournal.NONE);
+        userStorage.setJournal(StorageJournal.NONE);
+        wal.close();
+    }
+
+    private void load(MappedSnapshot snapshot, List<Path> tail, long next, long started) {
+        try {
+            StorageJournal replay = new Replay(filmStorage.recovery(), userStorage.recovery());
+            if (snapshot != null) {
+                snapshot.replayInto(replay);
+            }
+            long replayed = 0;
+            for (Path segment : tail) {
+                replayed += RecordReader.read(segment, replay).records();
+            }
+            filmStorage.rebuildIndexes();
+            wal = new WriteAheadLog(directory, next, properties.getFsyncInterval(),
+                    (int) properties.getMaxBufferedSize().toBytes(), properties.getMaxSegmentSize().toBytes(),
+                    this::requestSnapshot);
+            filmStorage.setJournal(wal);
+            userStorage.setJournal(wal);
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("filmorate-snapshot").daemon().factory());
+            long interval = properties.getSnapshotInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(() -> {
+                if (wal.hasRecords()) {
+                    snapshotQuietly();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+            load.complete();
+            log.info("Хранилище загружено за {} мс: фильмов {}, лайков {}, пользователей {}, записей журнала {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), filmStorage.countFilms(),
+                    filmStorage.countLikes(), userStorage.countUsers(), replayed);
+            if (replayed > 0) {
+                requestSnapshot();
+            }
+        } catch (Exception e) {
+            log.error("Не удалось загрузить хранилище из {}", directory, e);
+            load.fail(e);
+        }
+    }
+
+    private void requestSnapshot() {
+        if (!scheduler.isShutdown() && snapshotRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                try {
+                    snapshotQuietly();
+                } finally {
+                    snapshotRequested.set(false);
+                }
+            });
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            // журнал продолжает писаться, следующая попытка — по расписанию
+            log.error("Не удалось записать снимок хранилища", e);
+        }
+    }
+
+    private void deleteBefore(long segment) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                boolean stale = name.endsWith(".tmp")
+                        || number(SEGMENT, name) < segment
+                        || number(SNAPSHOT, name) < segment;
+                if (stale) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        log.warn("Не удалось удалить {}, попытка повторится после следующего снимка", file, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Long> list(Pattern pattern) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                long number = number(pattern, file.getFileName().toString());
+                if (number != Long.MAX_VALUE) {
+                    numbers.add(number);
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private static long number(Pattern pattern, String name) {
+        Matcher matcher = pattern.matcher(name);
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : Long.MAX_VALUE;
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("snapshot-%016d.bin", segment));
+    }
+
+    private void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // не все файловые системы позволяют синхронизировать каталог
+            log.debug("Каталог {} не синхронизирован", directory, e);
+        }
+    }
+
+    /**
+     * Собирает id фильмов и пользователей, которые меняет хвост журнала.
+     */
+    private static final class ChangedIds implements StorageJournal {
+        private final Set<Integer> films = new HashSet<>();
+        private final Set<Integer> users = new HashSet<>();
+
+        @Override
+        public void filmSaved(Film film) {
+            films.add(film.getId());
+        }
+
+        @Override
+        public void filmRemoved(int filmId) {
+            films.add(filmId);
+        }
+
+        @Override
+        public void likesAdded(int filmId, int[] userIds) {
+            films.add(filmId);
+        }
+
+        @Override
+        public void likeAdded(int filmId, int userId) {
+            films.add(filmId);
+        }
+
+        @Override
+        public void likeRemoved(int filmId, int userId) {
+            films.add(filmId);
+        }
+
+        @Override
+        public void userSaved(User user) {
+            users.add(user.getId());
+        }
+
+        @Override
+        public void userRemoved(int userId) {
+            users.add(userId);
+        }
+
+        @Override
+        public void friendsAdded(int userId, int[] friendIds) {
+            users.add(userId);
+        }
+
+        @Override
+        public void friendAdded(int userId, int friendId) {
+            users.add(userId);
+        }
+
+        @Override
+        public void friendRemoved(int userId, int friendId) {
+            users.add(userId);
+        }
+    }
+
+    /**
+     * Направляет записи о фильмах и пользователях в соответствующие хранилища.
+     */
+    private record Replay(StorageJournal films, StorageJournal users) implements StorageJournal {
+        @Override
+        public void filmSaved(Film film) {
+            films.filmSaved(film);
+        }
+
+        @Override
+        public void filmRemoved(int filmId) {
+            films.filmRemoved(filmId);
+        }
+
+        @Override
+        public void likeAdded(int filmId, int userId) {
+            films.likeAdded(filmId, userId);
+        }
+
+        @Override
+        public void likesAdded(int filmId, int[] userIds) {
+            films.likesAdded(filmId, userIds);
+        }
+
+        @Override
+        public void likeRemoved(int filmId, int userId) {
+            films.likeRemoved(filmId, userId);
+        }
+
+        @Override
+        public void userSaved(User user) {
+            users.userSaved(user);
+        }
+
+        @Override
+        public void userRemoved(int userId) {
+            users.userRemoved(userId);
+        }
+
+        @Override
+        public void friendAdded(int userId, int friendId) {
+            users.friendAdded(userId, friendId);
+        }
+
+        @Override
+        public void friendsAdded(int userId, int[] friendIds) {
+            users.friendsAdded(userId, friendIds);
+        }
+
+        @Override
+        public void friendRemoved(int userId, int friendId) {
+            users.friendRemoved(userId, friendId);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимок хранилищ в бинарном формате, который читается прямо из отображённого в память файла.
+ * <pre>
+ * заголовок      magic, версия, число фильмов и пользователей, смещения разделов, длина файла
+ * id фильмов     отсортированные int — по индексу id находится запись фиксированной длины
+ * фильмы         name, description, releaseDate, duration, genres, mpa, likesAt, likesCount — по int
+ * id польз.      отсортированные int
+ * пользователи   email, login, name, birthday, friendsAt, friendsCount — по int
+ * списки id      int: лайки и друзья подряд, списки жанров — число и ссылки на строки
+ * строки         длина и UTF-8, повторяющиеся строки хранятся один раз
+ * </pre>
+ * Строки — это смещения в пуле строк, списки — индексы в разделе списков, отсутствие значения — -1,
+ * дата — день эпохи или {@link Integer#MIN_VALUE}. Файл должен быть меньше 2 ГБ.
+ */
+final class MappedSnapshot {
+    private static final int MAGIC = 0x464C4D53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int FILM_RECORD_SIZE = 8 * Integer.BYTES;
+    private static final int USER_RECORD_SIZE = 6 * Integer.BYTES;
+    private static final int NONE = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_POOLED_STRINGS = 100_000;
+    private static final MPA[] RATINGS = MPA.values();
+
+    private final ByteBuffer file;
+    private final int filmCount;
+    private final int userCount;
+    private final int filmIdsAt;
+    private final int filmsAt;
+    private final int userIdsAt;
+    private final int usersAt;
+    private final int listsAt;
+    private final int stringsAt;
+
+    private MappedSnapshot(ByteBuffer file) {
+        this.file = file;
+        if (file.capacity() < HEADER_SIZE || file.getInt(0) != MAGIC || file.getInt(4) != FORMAT_VERSION
+                || file.getLong(32) != file.capacity()) {
+            throw new IllegalStateException("Файл не является снимком хранилища или обрезан");
+        }
+        filmCount = file.getInt(8);
+        userCount = file.getInt(12);
+        filmIdsAt = HEADER_SIZE;
+        filmsAt = filmIdsAt + filmCount * Integer.BYTES;
+        userIdsAt = filmsAt + filmCount * FILM_RECORD_SIZE;
+        usersAt = userIdsAt + userCount * Integer.BYTES;
+        listsAt = (int) file.getLong(16);
+        stringsAt = (int) file.getLong(24);
+    }
+
+    static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Снимок больше 2 ГБ: " + path);
+            }
+            // отображение остаётся действительным после закрытия канала
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedSnapshot(file);
+        }
+    }
+
+    Film film(int id) {
+        int index = indexOf(filmIdsAt, filmCount, id);
+        return index < 0 ? null : filmAt(index, true);
+    }
+
+    User user(int id) {
+        int index = indexOf(userIdsAt, userCount, id);
+        return index < 0 ? null : userAt(index);
+    }
+
+    /**
+     * Передаёт всё содержимое снимка в журнал, как если бы это были записи журнала.
+     */
+    void replayInto(StorageJournal target) {
+        for (int i = 0; i < filmCount; i++) {
+            Film film = filmAt(i, false);
+            target.filmSaved(film);
+            int record = filmsAt + i * FILM_RECORD_SIZE;
+            int likes = file.getInt(record + 28);
+            if (likes > 0) {
+                target.likesAdded(film.getId(), readInts(file.getInt(record + 24), likes));
+            }
+        }
+        for (int i = 0; i < userCount; i++) {
+            User user = userAt(i);
+            SortedIntSet friends = user.getFriends();
+            target.userSaved(user);
+            if (!friends.isEmpty()) {
+                target.friendsAdded(user.getId(), friends.toIntArray());
+            }
+        }
+    }
+
+    private Film filmAt(int index, boolean withLikes) {
+        int record = filmsAt + index * FILM_RECORD_SIZE;
+        Film film = new Film();
+        film.setId(file.getInt(filmIdsAt + index * Integer.BYTES));
+        film.setName(readString(file.getInt(record)));
+        film.setDescription(readString(file.getInt(record + 4)));
+        film.setReleaseDate(readDate(file.getInt(record + 8)));
+        film.setDuration(file.getInt(record + 12));
+        int genres = file.getInt(record + 16);
+        if (genres != NONE) {
+            HashSet<String> genreOfFilm = new HashSet<>();
+            for (int ref : readInts(genres + 1, file.getInt(listAt(genres)))) {
+                genreOfFilm.add(readString(ref));
+            }
+            film.setGenreOfFilm(genreOfFilm);
+        }
+        int rating = file.getInt(record + 20);
+        film.setRaiting(rating == NONE ? null : RATINGS[rating]);
+        if (withLikes) {
+            film.setUsersIdLike(SortedIntSet.of(readInts(file.getInt(record + 24), file.getInt(record + 28))));
+        }
+        return film;
+    }
+
+    private User userAt(int index) {
+        int record = usersAt + index * USER_RECORD_SIZE;
+        User user = new User();
+        user.setId(file.getInt(userIdsAt + index * Integer.BYTES));
+        user.setEmail(readString(file.getInt(record)));
+        user.setLogin(readString(file.getInt(record + 4)));
+        user.setName(readString(file.getInt(record + 8)));
+        user.setBirthday(readDate(file.getInt(record + 12)));
+        user.replaceFriends(SortedIntSet.of(readInts(file.getInt(record + 16), file.getInt(record + 20))));
+        return user;
+    }
+
+    private int indexOf(int idsAt, int count, int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = file.getInt(idsAt + middle * Integer.BYTES);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int listAt(int index) {
+        return listsAt + index * Integer.BYTES;
+    }
+
+    private int[] readInts(int index, int count) {
+        int[] values = new int[count];
+        file.slice(listAt(index), count * Integer.BYTES).asIntBuffer().get(values);
+        return values;
+    }
+
+    private String readString(int ref) {
+        if (ref == NONE) {
+            return null;
+        }
+        int at = stringsAt + ref;
+        byte[] bytes = new byte[file.getInt(at)];
+        file.get(at + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDate readDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Пишет снимок переданных фильмов и пользователей. Списки должны быть отсортированы по id;
+     * лайки и друзья читаются в момент записи.
+     */
+    static void write(FileChannel channel, List<Film> films, List<User> users) throws IOException {
+        long filmsAt = HEADER_SIZE + (long) films.size() * Integer.BYTES;
+        long userIdsAt = filmsAt + (long) films.size() * FILM_RECORD_SIZE;
+        long usersAt = userIdsAt + (long) users.size() * Integer.BYTES;
+        long listsAt = usersAt + (long) users.size() * USER_RECORD_SIZE;
+        Section filmIds = new Section(channel, HEADER_SIZE);
+        Section filmRecords = new Section(channel, filmsAt);
+        Section userIds = new Section(channel, userIdsAt);
+        Section userRecords = new Section(channel, usersAt);
+        Section lists = new Section(channel, listsAt);
+        StringPool strings = new StringPool();
+
+        for (Film film : films) {
+            filmIds.putInt(film.getId());
+            int genres = NONE;
+            if (film.getGenreOfFilm() != null) {
+                genres = lists.intCount();
+                lists.putInt(film.getGenreOfFilm().size());
+                for (String genre : film.getGenreOfFilm()) {
+                    lists.putInt(strings.ref(genre));
+                }
+            }
+            int[] likes = film.getUsersIdLike().toIntArray();
+            int likesAt = lists.intCount();
+            lists.putInts(likes);
+            filmRecords.putInt(strings.ref(film.getName()));
+            filmRecords.putInt(strings.ref(film.getDescription()));
+            filmRecords.putInt(date(film.getReleaseDate()));
+            filmRecords.putInt(film.getDuration());
+            filmRecords.putInt(genres);
+            filmRecords.putInt(film.getRaiting() == null ? NONE : film.getRaiting().ordinal());
+            filmRecords.putInt(likesAt);
+            filmRecords.putInt(likes.length);
+        }
+        for (User user : users) {
+            userIds.putInt(user.getId());
+            SortedIntSet friends = user.getFriends();
+            int friendsAt = lists.intCount();
+            lists.putInts(friends.toIntArray());
+            userRecords.putInt(strings.ref(user.getEmail()));
+            userRecords.putInt(strings.ref(user.getLogin()));
+            userRecords.putInt(strings.ref(user.getName()));
+            userRecords.putInt(date(user.getBirthday()));
+            userRecords.putInt(friendsAt);
+            userRecords.putInt(friends.size());
+        }
+        long stringsAt = listsAt + (long) lists.intCount() * Integer.BYTES;
+        long length = stringsAt + strings.size();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Снимок не помещается в 2 ГБ");
+        }
+        for (Section section : List.of(filmIds, filmRecords, userIds, userRecords, lists)) {
+            section.flush();
+        }
+        strings.writeTo(channel, stringsAt);
+        if (channel.size() < length) {
+            // последние разделы пусты, но длина файла должна совпасть с заголовком
+            writeFully(channel, ByteBuffer.allocate(1), length - 1);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(films.size()).putInt(users.size())
+                .putLong(listsAt).putLong(stringsAt).putLong(length);
+        header.clear();
+        writeFully(channel, header, 0);
+    }
+
+    private static int date(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Раздел файла, который пишется последовательно со своего смещения через буфер.
+     */
+    private static final class Section {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private long position;
+        private int intCount;
+
+        private Section(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        int intCount() {
+            return intCount;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            buffer.putInt(value);
+            intCount++;
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int value : values) {
+                putInt(value);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            int bytes = buffer.remaining();
+            writeFully(channel, buffer, position);
+            position += bytes;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Пул строк. Повторы находятся по словарю ограниченного размера: этого хватает для жанров
+     * и частых имён, а уникальные email и логины не раздувают словарь.
+     */
+    private static final class StringPool {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private ByteBuffer bytes = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+        int ref(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer known = refs.get(value);
+            if (known != null) {
+                return known;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.remaining() < Integer.BYTES + utf8.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(bytes.capacity() * 2,
+                        bytes.position() + Integer.BYTES + utf8.length));
+                grown.put(bytes.flip());
+                bytes = grown;
+            }
+            int ref = bytes.position();
+            bytes.putInt(utf8.length).put(utf8);
+            if (refs.size() < MAX_POOLED_STRINGS) {
+                refs.put(value, ref);
+            }
+            return ref;
+        }
+
+        int size() {
+            return bytes.position();
+        }
+
+        void writeTo(FileChannel channel, long position) throws IOException {
+            writeFully(channel, bytes.flip(), position);
+        }
+    }
+}
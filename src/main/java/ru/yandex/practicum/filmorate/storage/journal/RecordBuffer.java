@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Кодирует записи журнала в растущий буфер. Запись — это длина тела, CRC32 тела и само тело,
+ * которое начинается с типа записи. Длинные списки id режутся на несколько записей.
+ * Не потокобезопасен.
+ */
+final class RecordBuffer implements StorageJournal {
+    static final int HEADER_SIZE = 8;
+    static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    static final byte FILM_SAVED = 1;
+    static final byte FILM_REMOVED = 2;
+    static final byte LIKE_ADDED = 3;
+    static final byte LIKES_ADDED = 4;
+    static final byte LIKE_REMOVED = 5;
+    static final byte USER_SAVED = 6;
+    static final byte USER_REMOVED = 7;
+    static final byte FRIEND_ADDED = 8;
+    static final byte FRIENDS_ADDED = 9;
+    static final byte FRIEND_REMOVED = 10;
+
+    static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int MAX_IDS_PER_RECORD = 64 * 1024;
+
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer;
+    private int recordStart;
+
+    RecordBuffer(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Дописывает накопленные записи в канал и очищает буфер.
+     */
+    void writeTo(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        begin(FILM_SAVED);
+        putInt(film.getId());
+        putString(film.getName());
+        putString(film.getDescription());
+        putDate(film.getReleaseDate());
+        putInt(film.getDuration());
+        if (film.getGenreOfFilm() == null) {
+            putInt(-1);
+        } else {
+            putInt(film.getGenreOfFilm().size());
+            for (String genre : film.getGenreOfFilm()) {
+                putString(genre);
+            }
+        }
+        ensureCapacity(1);
+        buffer.put(film.getRaiting() == null ? -1 : (byte) film.getRaiting().ordinal());
+        end();
+    }
+
+    @Override
+    public void filmRemoved(int filmId) {
+        idRecord(FILM_REMOVED, filmId);
+    }
+
+    @Override
+    public void likeAdded(int filmId, int userId) {
+        pairRecord(LIKE_ADDED, filmId, userId);
+    }
+
+    @Override
+    public void likesAdded(int filmId, int[] userIds) {
+        idsRecords(LIKES_ADDED, filmId, userIds);
+    }
+
+    @Override
+    public void likeRemoved(int filmId, int userId) {
+        pairRecord(LIKE_REMOVED, filmId, userId);
+    }
+
+    @Override
+    public void userSaved(User user) {
+        begin(USER_SAVED);
+        putInt(user.getId());
+        putString(user.getEmail());
+        putString(user.getLogin());
+        putString(user.getName());
+        putDate(user.getBirthday());
+        end();
+    }
+
+    @Override
+    public void userRemoved(int userId) {
+        idRecord(USER_REMOVED, userId);
+    }
+
+    @Override
+    public void friendAdded(int userId, int friendId) {
+        pairRecord(FRIEND_ADDED, userId, friendId);
+    }
+
+    @Override
+    public void friendsAdded(int userId, int[] friendIds) {
+        idsRecords(FRIENDS_ADDED, userId, friendIds);
+    }
+
+    @Override
+    public void friendRemoved(int userId, int friendId) {
+        pairRecord(FRIEND_REMOVED, userId, friendId);
+    }
+
+    private void idRecord(byte type, int id) {
+        begin(type);
+        putInt(id);
+        end();
+    }
+
+    private void pairRecord(byte type, int first, int second) {
+        begin(type);
+        putInt(first);
+        putInt(second);
+        end();
+    }
+
+    private void idsRecords(byte type, int ownerId, int[] ids) {
+        for (int from = 0; from < ids.length; from += MAX_IDS_PER_RECORD) {
+            int count = Math.min(MAX_IDS_PER_RECORD, ids.length - from);
+            begin(type);
+            putInt(ownerId);
+            putInt(count);
+            ensureCapacity(count * Integer.BYTES);
+            buffer.asIntBuffer().put(ids, from, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            end();
+        }
+    }
+
+    private void begin(byte type) {
+        ensureCapacity(HEADER_SIZE + 1);
+        recordStart = buffer.position();
+        buffer.position(recordStart + HEADER_SIZE);
+        buffer.put(type);
+    }
+
+    private void end() {
+        int length = buffer.position() - recordStart - HEADER_SIZE;
+        crc.reset();
+        crc.update(buffer.array(), recordStart + HEADER_SIZE, length);
+        buffer.putInt(recordStart, length);
+        buffer.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private void putInt(int value) {
+        ensureCapacity(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    private void putDate(LocalDate date) {
+        ensureCapacity(Long.BYTES);
+        buffer.putLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
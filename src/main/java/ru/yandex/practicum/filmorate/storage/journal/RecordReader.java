@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+
+/**
+ * Читает файл записей {@link RecordBuffer} через отображение в память окнами и применяет записи к журналу.
+ * Чтение останавливается на первой неполной или повреждённой записи.
+ */
+final class RecordReader {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final MPA[] RATINGS = MPA.values();
+
+    private RecordReader() {
+    }
+
+    /**
+     * @param records   число применённых записей
+     * @param validSize длина файла до первой неполной или повреждённой записи
+     * @param complete  файл прочитан до конца
+     */
+    record Result(long records, long validSize, boolean complete) {
+    }
+
+    static Result read(Path file, StorageJournal target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long records = 0;
+            CRC32 crc = new CRC32();
+            long windowStart = 0;
+            MappedByteBuffer window = map(channel, windowStart, size);
+            while (position < size) {
+                int offset = (int) (position - windowStart);
+                int available = window.capacity() - offset;
+                boolean lastWindow = windowStart + window.capacity() == size;
+                if (available < RecordBuffer.HEADER_SIZE) {
+                    if (lastWindow) {
+                        break;
+                    }
+                    windowStart = position;
+                    window = map(channel, windowStart, size);
+                    continue;
+                }
+                int length = window.getInt(offset);
+                if (length <= 0 || length > RecordBuffer.MAX_RECORD_SIZE) {
+                    break;
+                }
+                if (available < RecordBuffer.HEADER_SIZE + length) {
+                    if (lastWindow) {
+                        break;
+                    }
+                    // запись пересекает границу окна: следующее окно начинается с неё
+                    windowStart = position;
+                    window = map(channel, windowStart, size);
+                    continue;
+                }
+                ByteBuffer body = window.slice(offset + RecordBuffer.HEADER_SIZE, length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != window.getInt(offset + Integer.BYTES)) {
+                    break;
+                }
+                apply(body, target);
+                records++;
+                position += RecordBuffer.HEADER_SIZE + length;
+            }
+            return new Result(records, position, position == size);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW_SIZE, size - from));
+    }
+
+    private static void apply(ByteBuffer body, StorageJournal target) {
+        byte type = body.get();
+        switch (type) {
+            case RecordBuffer.FILM_SAVED -> target.filmSaved(readFilm(body));
+            case RecordBuffer.FILM_REMOVED -> target.filmRemoved(body.getInt());
+            case RecordBuffer.LIKE_ADDED -> target.likeAdded(body.getInt(), body.getInt());
+            case RecordBuffer.LIKES_ADDED -> target.likesAdded(body.getInt(), readIds(body));
+            case RecordBuffer.LIKE_REMOVED -> target.likeRemoved(body.getInt(), body.getInt());
+            case RecordBuffer.USER_SAVED -> target.userSaved(readUser(body));
+            case RecordBuffer.USER_REMOVED -> target.userRemoved(body.getInt());
+            case RecordBuffer.FRIEND_ADDED -> target.friendAdded(body.getInt(), body.getInt());
+            case RecordBuffer.FRIENDS_ADDED -> target.friendsAdded(body.getInt(), readIds(body));
+            case RecordBuffer.FRIEND_REMOVED -> target.friendRemoved(body.getInt(), body.getInt());
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private static Film readFilm(ByteBuffer body) {
+        Film film = new Film();
+        film.setId(body.getInt());
+        film.setName(readString(body));
+        film.setDescription(readString(body));
+        film.setReleaseDate(readDate(body));
+        film.setDuration(body.getInt());
+        int genres = body.getInt();
+        if (genres >= 0) {
+            HashSet<String> genreOfFilm = new HashSet<>();
+            for (int i = 0; i < genres; i++) {
+                genreOfFilm.add(readString(body));
+            }
+            film.setGenreOfFilm(genreOfFilm);
+        }
+        byte rating = body.get();
+        film.setRaiting(rating < 0 ? null : RATINGS[rating]);
+        return film;
+    }
+
+    private static User readUser(ByteBuffer body) {
+        User user = new User();
+        user.setId(body.getInt());
+        user.setEmail(readString(body));
+        user.setLogin(readString(body));
+        user.setName(readString(body));
+        user.setBirthday(readDate(body));
+        return user;
+    }
+
+    private static int[] readIds(ByteBuffer body) {
+        int[] ids = new int[body.getInt()];
+        body.asIntBuffer().get(ids);
+        return ids;
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDate readDate(ByteBuffer body) {
+        long epochDay = body.getLong();
+        return epochDay == RecordBuffer.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
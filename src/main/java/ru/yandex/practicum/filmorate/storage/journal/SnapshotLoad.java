@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Фоновая загрузка хранилищ из снимка. Пока она идёт, фильм или пользователь по id читается прямо
+ * из отображённого снимка, если хвост журнала его не менял. Остальные операции ждут окончания загрузки.
+ */
+public final class SnapshotLoad {
+    // после загрузки ссылка сбрасывается, чтобы отображение файла освободилось
+    private volatile MappedSnapshot snapshot;
+    private final Set<Integer> changedFilms;
+    private final Set<Integer> changedUsers;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Throwable failure;
+
+    SnapshotLoad(MappedSnapshot snapshot, Set<Integer> changedFilms, Set<Integer> changedUsers) {
+        this.snapshot = snapshot;
+        this.changedFilms = changedFilms;
+        this.changedUsers = changedUsers;
+    }
+
+    /**
+     * Фильм по id. Пока загрузка идёт и хвост журнала фильм не менял, ответ берётся из снимка —
+     * отсутствие фильма в снимке тогда означает, что фильма нет. Иначе вызывается {@code loaded}.
+     */
+    public Film film(int id, Supplier<Film> loaded) {
+        MappedSnapshot current = snapshot;
+        if (current == null || changedFilms.contains(id)) {
+            return loaded.get();
+        }
+        return current.film(id);
+    }
+
+    /**
+     * Пользователь по id, по тем же правилам, что и {@link #film(int, Supplier)}.
+     */
+    public User user(int id, Supplier<User> loaded) {
+        MappedSnapshot current = snapshot;
+        if (current == null || changedUsers.contains(id)) {
+            return loaded.get();
+        }
+        return current.user(id);
+    }
+
+    public void await() {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание загрузки хранилища прервано", e);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Хранилище не загружено", failure);
+        }
+    }
+
+    void complete() {
+        snapshot = null;
+        done.countDown();
+    }
+
+    void fail(Throwable cause) {
+        failure = cause;
+        snapshot = null;
+        done.countDown();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Поток изменений in-memory хранилищ. Хранилища сообщают о каждом изменении до того, как применить его,
+ * под той же блокировкой, поэтому порядок записей по одному ключу совпадает с порядком изменений,
+ * а изменение, которое не удалось записать, не применяется и не видно читателям. Все операции
+ * идемпотентны: повторное применение записи к состоянию, которое её уже содержит, ничего не меняет.
+ * Дружба записывается по направлениям.
+ */
+public interface StorageJournal {
+    StorageJournal NONE = new StorageJournal() {
+    };
+
+    /**
+     * Фильм добавлен или обновлён. Лайки не входят в запись: у существующего фильма они сохраняются.
+     */
+    default void filmSaved(Film film) {
+    }
+
+    default void filmRemoved(int filmId) {
+    }
+
+    default void likeAdded(int filmId, int userId) {
+    }
+
+    default void likesAdded(int filmId, int[] userIds) {
+        for (int userId : userIds) {
+            likeAdded(filmId, userId);
+        }
+    }
+
+    default void likeRemoved(int filmId, int userId) {
+    }
+
+    /**
+     * Пользователь добавлен или обновлён. Друзья не входят в запись: у существующего пользователя они сохраняются.
+     */
+    default void userSaved(User user) {
+    }
+
+    default void userRemoved(int userId) {
+    }
+
+    default void friendAdded(int userId, int friendId) {
+    }
+
+    default void friendsAdded(int userId, int[] friendIds) {
+        for (int friendId : friendIds) {
+            friendAdded(userId, friendId);
+        }
+    }
+
+    default void friendRemoved(int userId, int friendId) {
+    }
+}
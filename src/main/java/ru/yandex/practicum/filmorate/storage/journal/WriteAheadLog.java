@@ -0,0 +1,263 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Журнал упреждающей записи, разбитый на сегменты. Запись только кодируется в буфер под короткой
+ * блокировкой, а фоновый поток раз в {@code fsyncInterval} дописывает буфер в сегмент одним вызовом
+ * и делает fsync — так fsync делится между всеми изменениями интервала. При сбое теряется не больше
+ * последнего интервала. Если буфер вырос до {@code maxBufferedBytes}, его сбрасывает сам пишущий поток.
+ */
+@Slf4j
+final class WriteAheadLog implements StorageJournal, Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long fsyncIntervalNanos;
+    private final int maxBufferedBytes;
+    private final long maxSegmentBytes;
+    private final Runnable segmentFull;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Thread flusher;
+
+    private RecordBuffer active = new RecordBuffer(INITIAL_BUFFER_SIZE);
+    private RecordBuffer spare = new RecordBuffer(INITIAL_BUFFER_SIZE);
+    private FileChannel channel;
+    private long segment;
+    private volatile long segmentBytes;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * @param segmentFull вызывается фоновым потоком, когда текущий сегмент вырос до {@code maxSegmentBytes}
+     */
+    WriteAheadLog(Path directory, long segment, Duration fsyncInterval, int maxBufferedBytes,
+                  long maxSegmentBytes, Runnable segmentFull) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.segmentFull = segmentFull;
+        this.channel = open(segment);
+        this.flusher = Thread.ofPlatform().name("filmorate-wal-flusher").daemon().start(this::flushLoop);
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%016d.log", segment));
+    }
+
+    /**
+     * Есть ли в текущем сегменте записи, в том числе ещё не сброшенные на диск.
+     */
+    boolean hasRecords() {
+        // без flushLock можно попасть между подменой буфера и его записью, когда записей не видно нигде
+        flushLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                return segmentBytes > 0 || active.size() > 0;
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        append(buffer -> buffer.filmSaved(film));
+    }
+
+    @Override
+    public void filmRemoved(int filmId) {
+        append(buffer -> buffer.filmRemoved(filmId));
+    }
+
+    @Override
+    public void likeAdded(int filmId, int userId) {
+        append(buffer -> buffer.likeAdded(filmId, userId));
+    }
+
+    @Override
+    public void likesAdded(int filmId, int[] userIds) {
+        append(buffer -> buffer.likesAdded(filmId, userIds));
+    }
+
+    @Override
+    public void likeRemoved(int filmId, int userId) {
+        append(buffer -> buffer.likeRemoved(filmId, userId));
+    }
+
+    @Override
+    public void userSaved(User user) {
+        append(buffer -> buffer.userSaved(user));
+    }
+
+    @Override
+    public void userRemoved(int userId) {
+        append(buffer -> buffer.userRemoved(userId));
+    }
+
+    @Override
+    public void friendAdded(int userId, int friendId) {
+        append(buffer -> buffer.friendAdded(userId, friendId));
+    }
+
+    @Override
+    public void friendsAdded(int userId, int[] friendIds) {
+        append(buffer -> buffer.friendsAdded(userId, friendIds));
+    }
+
+    @Override
+    public void friendRemoved(int userId, int friendId) {
+        append(buffer -> buffer.friendRemoved(userId, friendId));
+    }
+
+    /**
+     * Сбрасывает накопленные записи в текущий сегмент и делает fsync.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            checkHealthy();
+            RecordBuffer pending;
+            appendLock.lock();
+            try {
+                pending = active;
+                active = spare;
+                spare = pending;
+            } finally {
+                appendLock.unlock();
+            }
+            write(pending);
+        } catch (IOException e) {
+            throw fail(e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает следующий. Все записи, сделанные до вызова, оказываются
+     * в сегментах с меньшими номерами.
+     *
+     * @return номер нового сегмента
+     */
+    long rotate() {
+        flush();
+        flushLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                write(active);
+                channel.close();
+                segment++;
+                channel = open(segment);
+                segmentBytes = 0;
+                return segment;
+            } finally {
+                appendLock.unlock();
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushLock.lock();
+        try {
+            if (failure == null) {
+                flush();
+            }
+            channel.close();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void append(Consumer<RecordBuffer> record) {
+        boolean full;
+        appendLock.lock();
+        try {
+            checkHealthy();
+            record.accept(active);
+            full = active.size() >= maxBufferedBytes;
+        } finally {
+            appendLock.unlock();
+        }
+        if (full) {
+            // фоновый поток не успевает: пишущие потоки сбрасывают буфер сами и тем притормаживают
+            flush();
+        }
+    }
+
+    private void write(RecordBuffer buffer) throws IOException {
+        int bytes = buffer.size();
+        if (bytes == 0) {
+            return;
+        }
+        buffer.writeTo(channel);
+        channel.force(false);
+        segmentBytes += bytes;
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(fsyncIntervalNanos);
+            try {
+                flush();
+            } catch (UncheckedIOException e) {
+                return;
+            }
+            if (segmentBytes >= maxSegmentBytes) {
+                segmentFull.run();
+            }
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private void checkHealthy() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал изменений недоступен", failure);
+        }
+    }
+
+    private UncheckedIOException fail(IOException e) {
+        // после ошибки записи неизвестно, что дошло до диска, поэтому журнал перестаёт принимать записи
+        if (failure == null) {
+            failure = e;
+            log.error("Ошибка записи журнала изменений, сегмент {}", segment, e);
+        }
+        return new UncheckedIOException("Журнал изменений недоступен", e);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неизменяемое множество id для больших множеств с частыми одиночными изменениями. Поверх базового
+ * {@link SortedIntSet} лежат два небольших множества — добавленные и удалённые id, — поэтому изменение копирует
+ * только их. Когда изменений накапливается порядка корня из размера базы, они вливаются в базу одним проходом:
+ * так и одиночное изменение, и его доля в слиянии стоят O(√n) вместо O(n).
+ */
+public final class DeltaIntSet {
+    public static final DeltaIntSet EMPTY = new DeltaIntSet(SortedIntSet.EMPTY, SortedIntSet.EMPTY,
+            SortedIntSet.EMPTY);
+
+    private static final int MIN_DELTA = 16;
+
+    // added не пересекается с base, removed — подмножество base
+    private final SortedIntSet base;
+    private final SortedIntSet added;
+    private final SortedIntSet removed;
+    // слитое множество считается один раз на экземпляр; гонка безопасна: SortedIntSet неизменяем
+    private SortedIntSet merged;
+
+    private DeltaIntSet(SortedIntSet base, SortedIntSet added, SortedIntSet removed) {
+        this.base = base;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    public static DeltaIntSet of(SortedIntSet ids) {
+        return ids.isEmpty() ? EMPTY : new DeltaIntSet(ids, SortedIntSet.EMPTY, SortedIntSet.EMPTY);
+    }
+
+    public int size() {
+        return base.size() + added.size() - removed.size();
+    }
+
+    public boolean contains(int id) {
+        return added.contains(id) || base.contains(id) && !removed.contains(id);
+    }
+
+    public DeltaIntSet with(int id) {
+        if (removed.contains(id)) {
+            return new DeltaIntSet(base, added, removed.without(id));
+        }
+        if (added.contains(id) || base.contains(id)) {
+            return this;
+        }
+        return compactIfLarge(new DeltaIntSet(base, added.with(id), removed));
+    }
+
+    public DeltaIntSet without(int id) {
+        if (added.contains(id)) {
+            return new DeltaIntSet(base, added.without(id), removed);
+        }
+        if (!base.contains(id) || removed.contains(id)) {
+            return this;
+        }
+        return compactIfLarge(new DeltaIntSet(base, added, removed.with(id)));
+    }
+
+    public DeltaIntSet union(SortedIntSet ids) {
+        if (ids.isEmpty()) {
+            return this;
+        }
+        if ((long) ids.size() * ids.size() <= base.size()) {
+            // немного id выгоднее добавить по одному, чем сливать со всей базой
+            DeltaIntSet result = this;
+            for (int i = 0; i < ids.size(); i++) {
+                result = result.with(ids.get(i));
+            }
+            return result;
+        }
+        return of(toSortedSet().union(ids));
+    }
+
+    /**
+     * Не больше {@code limit} id, больших {@code afterId}, по возрастанию. Страница собирается из базы
+     * и изменений на лету, без слияния всего множества.
+     */
+    public List<Integer> after(int afterId, int limit) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return base.after(afterId, limit);
+        }
+        List<Integer> page = new ArrayList<>(Math.min(limit, size()));
+        int i = base.indexAfter(afterId);
+        int j = added.indexAfter(afterId);
+        while (page.size() < limit && (i < base.size() || j < added.size())) {
+            if (j == added.size() || i < base.size() && base.get(i) < added.get(j)) {
+                int id = base.get(i++);
+                if (!removed.contains(id)) {
+                    page.add(id);
+                }
+            } else {
+                page.add(added.get(j++));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Все id одним отсортированным массивом. Пока изменений нет, возвращается сама база без копирования,
+     * иначе слияние выполняется при первом вызове и запоминается.
+     */
+    public SortedIntSet toSortedSet() {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return base;
+        }
+        SortedIntSet result = merged;
+        if (result == null) {
+            result = base.difference(removed).union(added);
+            merged = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DeltaIntSet other && toSortedSet().equals(other.toSortedSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return toSortedSet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toSortedSet().toString();
+    }
+
+    private static DeltaIntSet compactIfLarge(DeltaIntSet set) {
+        int delta = set.added.size() + set.removed.size();
+        if (delta <= MIN_DELTA || (long) delta * delta <= set.base.size()) {
+            return set;
+        }
+        return of(set.toSortedSet());
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Счётчики по id на открытой адресации: ключи и значения лежат в двух массивах int, без упаковки в Integer
+ * и узлов хеш-таблицы. Нулевой счётчик означает пустую ячейку, поэтому прибавлять можно только положительные
+ * числа. Не потокобезопасна.
+ */
+public final class IntCountMap {
+    private static final int MIN_CAPACITY = 16;
+    // 2^32 / φ: перемешивает последовательные id по всей таблице
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntCountMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    public void add(int key, int count) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    public int get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); counts[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Прибавляет к себе все счётчики {@code other}.
+     */
+    public void addAll(IntCountMap other) {
+        other.forEach(this::add);
+    }
+
+    public void forEach(Entry action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = slot(oldKeys[i], mask);
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        return (key * HASH_MULTIPLIER >>> 16 ^ key * HASH_MULTIPLIER) & mask;
+    }
+
+    @FunctionalInterface
+    public interface Entry {
+        void accept(int key, int count);
+    }
+}
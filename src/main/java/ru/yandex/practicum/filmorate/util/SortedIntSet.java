@@ -0,0 +1,318 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+
+/**
+ * Неизменяемое множество id на отсортированном массиве int. Изменения возвращают новый экземпляр,
+ * поэтому читатели всегда видят согласованный снимок без блокировок.
+ */
+public final class SortedIntSet extends AbstractSet<Integer> {
+    public static final SortedIntSet EMPTY = new SortedIntSet(new int[0]);
+
+    private static final int GALLOP_RATIO = 32;
+
+    private final int[] values;
+
+    private SortedIntSet(int[] values) {
+        this.values = values;
+    }
+
+    public static SortedIntSet of(int... ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        return new SortedIntSet(distinct(sorted));
+    }
+
+    @JsonCreator
+    public static SortedIntSet copyOf(Collection<Integer> ids) {
+        if (ids instanceof SortedIntSet sortedIds) {
+            return sortedIds;
+        }
+        if (ids == null || ids.isEmpty()) {
+            return EMPTY;
+        }
+        int[] sorted = new int[ids.size()];
+        int size = 0;
+        for (Integer id : ids) {
+            if (id != null) {
+                // конкурентная коллекция может вырасти во время обхода
+                if (size == sorted.length) {
+                    sorted = Arrays.copyOf(sorted, size * 2 + 1);
+                }
+                sorted[size++] = id;
+            }
+        }
+        sorted = Arrays.copyOf(sorted, size);
+        Arrays.sort(sorted);
+        return new SortedIntSet(distinct(sorted));
+    }
+
+    public SortedIntSet with(int id) {
+        int position = Arrays.binarySearch(values, id);
+        if (position >= 0) {
+            return this;
+        }
+        int insertAt = -position - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = id;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return new SortedIntSet(result);
+    }
+
+    public SortedIntSet without(int id) {
+        int position = Arrays.binarySearch(values, id);
+        if (position < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return new SortedIntSet(result);
+    }
+
+    public SortedIntSet union(SortedIntSet other) {
+        if (other.values.length == 0) {
+            return this;
+        }
+        if (values.length == 0) {
+            return other;
+        }
+        int[] result = new int[values.length + other.values.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < values.length && j < other.values.length) {
+            int x = values[i];
+            int y = other.values[j];
+            if (x == y) {
+                result[size++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                result[size++] = x;
+                i++;
+            } else {
+                result[size++] = y;
+                j++;
+            }
+        }
+        while (i < values.length) {
+            result[size++] = values[i++];
+        }
+        while (j < other.values.length) {
+            result[size++] = other.values[j++];
+        }
+        return new SortedIntSet(size == result.length ? result : Arrays.copyOf(result, size));
+    }
+
+    public SortedIntSet difference(SortedIntSet other) {
+        if (values.length == 0 || other.values.length == 0) {
+            return this;
+        }
+        int[] result = new int[values.length];
+        int j = 0;
+        int size = 0;
+        for (int value : values) {
+            while (j < other.values.length && other.values[j] < value) {
+                j++;
+            }
+            if (j == other.values.length || other.values[j] != value) {
+                result[size++] = value;
+            }
+        }
+        if (size == values.length) {
+            return this;
+        }
+        return size == 0 ? EMPTY : new SortedIntSet(Arrays.copyOf(result, size));
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(values, id) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer id && contains(id.intValue());
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public int[] toIntArray() {
+        return values.clone();
+    }
+
+    /**
+     * Все id, если их не больше {@code limit}, иначе {@code limit} id через равные промежутки.
+     */
+    public int[] sample(int limit) {
+        if (values.length <= limit) {
+            return values.clone();
+        }
+        int[] sample = new int[limit];
+        for (int i = 0; i < limit; i++) {
+            sample[i] = values[(int) ((long) i * values.length / limit)];
+        }
+        return sample;
+    }
+
+    /**
+     * Не больше {@code limit} id, больших {@code afterId}, по возрастанию: страница множества по курсору.
+     */
+    public List<Integer> after(int afterId, int limit) {
+        int from = indexAfter(afterId);
+        int to = (int) Math.min(values.length, (long) from + limit);
+        List<Integer> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            page.add(values[i]);
+        }
+        return page;
+    }
+
+    /**
+     * Id, удовлетворяющие условию. Если подходят все, возвращается само множество.
+     */
+    public SortedIntSet filter(IntPredicate predicate) {
+        int[] result = new int[values.length];
+        int size = 0;
+        for (int value : values) {
+            if (predicate.test(value)) {
+                result[size++] = value;
+            }
+        }
+        return size == values.length ? this : new SortedIntSet(Arrays.copyOf(result, size));
+    }
+
+    // позиция первого id, большего afterId
+    int indexAfter(int afterId) {
+        int position = Arrays.binarySearch(values, afterId);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    public SortedIntSet intersect(SortedIntSet other) {
+        SortedIntSet small = values.length <= other.values.length ? this : other;
+        SortedIntSet large = small == this ? other : this;
+        if (small.values.length == 0) {
+            return EMPTY;
+        }
+        int[] result = new int[small.values.length];
+        int size = (long) small.values.length * GALLOP_RATIO < large.values.length
+                ? gallopIntersect(small.values, large.values, result)
+                : mergeIntersect(small.values, large.values, result);
+        return size == 0 ? EMPTY : new SortedIntSet(size == result.length ? result : Arrays.copyOf(result, size));
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (index >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                return values[index++];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SortedIntSet other) {
+            return Arrays.equals(values, other.values);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int value : values) {
+            hash += value;
+        }
+        return hash;
+    }
+
+    private static int mergeIntersect(int[] a, int[] b, int[] out) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            int x = a[i];
+            int y = b[j];
+            if (x == y) {
+                out[size++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static int gallopIntersect(int[] small, int[] large, int[] out) {
+        int size = 0;
+        int from = 0;
+        for (int value : small) {
+            int bound = 1;
+            while (from + bound < large.length && large[from + bound] < value) {
+                bound <<= 1;
+            }
+            int position = Arrays.binarySearch(large, from, Math.min(from + bound + 1, large.length), value);
+            if (position >= 0) {
+                out[size++] = value;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return size;
+    }
+
+    private static int[] distinct(int[] sorted) {
+        if (sorted.length < 2) {
+            return sorted;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Счётчик изменений хранилища. Увеличивается после того, как изменение стало видно читателям,
+ * поэтому данные, прочитанные после версии, не старше её.
+ */
+public class VersionCounter {
+    private final AtomicReference<VersionStamp> current =
+            new AtomicReference<>(new VersionStamp(0, System.currentTimeMillis()));
+
+    public VersionStamp current() {
+        return current.get();
+    }
+
+    public void increment() {
+        current.updateAndGet(stamp -> new VersionStamp(stamp.version() + 1,
+                Math.max(stamp.lastModified(), System.currentTimeMillis())));
+    }
+}
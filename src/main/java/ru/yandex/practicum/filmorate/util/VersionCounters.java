@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Счётчики изменений по id. Id, который ещё не менялся, имеет версию 0 со временем создания счётчиков.
+ * Как и {@link VersionCounter}, счётчик увеличивается после того, как изменение стало видно читателям.
+ */
+public class VersionCounters {
+    private final VersionStamp initial = new VersionStamp(0, System.currentTimeMillis());
+    private final ConcurrentHashMap<Integer, VersionStamp> versions = new ConcurrentHashMap<>();
+
+    public VersionStamp current(int id) {
+        return versions.getOrDefault(id, initial);
+    }
+
+    public void increment(int id) {
+        versions.compute(id, (key, stamp) -> {
+            VersionStamp previous = stamp == null ? initial : stamp;
+            return new VersionStamp(previous.version() + 1,
+                    Math.max(previous.lastModified(), System.currentTimeMillis()));
+        });
+    }
+
+    /**
+     * Версия данных, собранных из {@code id} и связанных с ним {@code related}: старшие 32 бита — версия
+     * самого id, младшие — сумма версий связанных. Состав связанных меняется только вместе с версией id,
+     * а при неизменном составе сумма только растёт, поэтому пара не повторяется.
+     */
+    public VersionStamp current(int id, SortedIntSet related) {
+        VersionStamp own = current(id);
+        long sum = 0;
+        long lastModified = own.lastModified();
+        for (int i = 0; i < related.size(); i++) {
+            VersionStamp stamp = current(related.get(i));
+            sum += stamp.version();
+            lastModified = Math.max(lastModified, stamp.lastModified());
+        }
+        return new VersionStamp((own.version() << Integer.SIZE) + (sum & 0xFFFFFFFFL), lastModified);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Номер версии данных и время её появления в миллисекундах.
+ */
+public record VersionStamp(long version, long lastModified) {
+}
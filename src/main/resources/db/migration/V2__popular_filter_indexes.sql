@@ -0,0 +1,5 @@
+CREATE INDEX films_mpa_popularity_idx ON films (mpa, likes DESC, id);
+
+CREATE INDEX films_release_date_idx ON films (release_date);
+
+CREATE INDEX film_genre_genre_idx ON film_genre (genre_id, film_id);
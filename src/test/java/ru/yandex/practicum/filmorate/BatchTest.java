@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class BatchTest {
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private FilmService filmService;
+    private UserService userService;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        filmService = new FilmService(filmStorage, userStorage);
+        userService = new UserService(userStorage);
+    }
+
+    @Test
+    public void filmBatchReportsEveryItem() {
+        Film invalid = TestData.film("");
+        List<BatchItemResult> results = filmService.addNewFilms(
+                List.of(TestData.film("A"), invalid, TestData.film("B")));
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertEquals("название не может быть пустым", results.get(1).getError());
+        Assertions.assertTrue(results.get(2).isSuccess());
+        Assertions.assertEquals(2, filmStorage.getAllFilms().size());
+        Assertions.assertEquals("B", filmStorage.getFilmOnId(results.get(2).getId()).getName());
+    }
+
+    @Test
+    public void userBatchFillsNameFromLogin() {
+        List<BatchItemResult> results = userService.createNewUsers(
+                List.of(TestData.user("first"), TestData.user("with space")));
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertEquals("first", userStorage.getUserOnId(results.get(0).getId()).getName());
+    }
+
+    @Test
+    public void userBatchReportsItemsWithMissingFields() {
+        User noLogin = TestData.user("noLogin");
+        noLogin.setLogin(null);
+        User noBirthday = TestData.user("noBirthday");
+        noBirthday.setBirthday(null);
+        List<User> users = new ArrayList<>(List.of(TestData.user("valid"), noLogin, noBirthday));
+        users.add(null);
+
+        List<BatchItemResult> results = userService.createNewUsers(users);
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertEquals("логин не может быть пустым и содержать пробелы", results.get(1).getError());
+        Assertions.assertEquals("Должна быть указана дата рождения пользователя", results.get(2).getError());
+        Assertions.assertEquals("пустое тело запроса", results.get(3).getError());
+        Assertions.assertEquals(1, userStorage.getAllUsers().size());
+    }
+
+    @Test
+    public void likeBatchSkipsUnknownUsersAndFilms() {
+        userService.createNewUsers(List.of(TestData.user("u1"), TestData.user("u2")));
+        filmService.addNewFilms(List.of(TestData.film("A"), TestData.film("B")));
+        List<BatchItemResult> results = filmService.addLikes(List.of(
+                new FilmLike(1, 1), new FilmLike(1, 2), new FilmLike(2, 2),
+                new FilmLike(1, 42), new FilmLike(42, 1), new FilmLike(null, 1), new FilmLike(1, 1)));
+        Assertions.assertEquals(List.of(true, true, true, false, false, false, true),
+                results.stream().map(BatchItemResult::isSuccess).toList());
+        Assertions.assertEquals("Незарегистрированный пользователь не может ставить лайки", results.get(3).getError());
+        Assertions.assertEquals("фильм не найден", results.get(4).getError());
+        Assertions.assertEquals(2, filmStorage.getFilmOnId(1).getLikes());
+        Assertions.assertEquals(Set.of(1, 2), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertEquals(List.of(1, 2), filmService.getMostPopularFilms(2).stream().map(Film::getId).toList());
+        Assertions.assertEquals(3, filmStorage.countLikes());
+        Assertions.assertEquals(2, filmStorage.countFilms());
+    }
+
+    @Test
+    public void friendshipBatchIsMutual() {
+        userService.createNewUsers(List.of(TestData.user("u1"), TestData.user("u2"), TestData.user("u3")));
+        List<BatchItemResult> results = userService.addFriendships(List.of(
+                new Friendship(1, 2), new Friendship(1, 3), new Friendship(2, 2), new Friendship(2, 9)));
+        Assertions.assertEquals(List.of(true, true, false, false),
+                results.stream().map(BatchItemResult::isSuccess).toList());
+        Assertions.assertEquals(Set.of(2, 3), userStorage.getUserOnId(1).getFriends());
+        Assertions.assertEquals(Set.of(1), userStorage.getUserOnId(2).getFriends());
+        Assertions.assertEquals(List.of(1), userService.getMutualFriends(2, 3).stream().map(User::getId).toList());
+        Assertions.assertEquals(2, userStorage.countFriendships());
+        userStorage.removeFriend(1, 3);
+        Assertions.assertEquals(1, userStorage.countFriendships());
+        Assertions.assertEquals(3, userStorage.countUsers());
+    }
+
+    @Test
+    public void oversizedBatchIsRejected() {
+        List<FilmLike> likes = new ArrayList<>();
+        for (int i = 0; i <= FilmService.MAX_BATCH_SIZE; i++) {
+            likes.add(new FilmLike(1, 1));
+        }
+        Assertions.assertThrows(ValidationException.class, () -> filmService.addLikes(likes));
+        Assertions.assertThrows(ValidationException.class, () -> userService.createNewUsers(null));
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.datasource.url=jdbc:h2:mem:filmorate-cache-test;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("db")
+public class CachingStorageTest {
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM film_genre");
+        jdbcTemplate.update("DELETE FROM likes_users");
+        jdbcTemplate.update("DELETE FROM friendship");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    public void servicesUseCachingStorages() {
+        Assertions.assertInstanceOf(CachingFilmStorage.class, filmStorage);
+        Assertions.assertInstanceOf(CachingUserStorage.class, userStorage);
+    }
+
+    @Test
+    public void repeatedLookupsHitCache() {
+        User user = userStorage.addUser(TestData.user("cached"));
+        Film film = filmStorage.addFilm(TestData.film("Cached"));
+        long userHits = ((CachingUserStorage) userStorage).getCacheStats().hitCount();
+        filmService.addLike(film.getId(), user.getId());
+        filmService.removeLike(film.getId(), user.getId());
+        filmService.addLike(film.getId(), user.getId());
+        Assertions.assertTrue(((CachingUserStorage) userStorage).getCacheStats().hitCount() >= userHits + 2);
+        Assertions.assertEquals(1, filmStorage.getFilmOnId(film.getId()).getLikes());
+        long filmHits = ((CachingFilmStorage) filmStorage).getCacheStats().hitCount();
+        filmStorage.getFilmOnId(film.getId());
+        Assertions.assertEquals(filmHits + 1, ((CachingFilmStorage) filmStorage).getCacheStats().hitCount());
+    }
+
+    @Test
+    public void writesEvictStaleEntries() {
+        User first = userStorage.addUser(TestData.user("first"));
+        User second = userStorage.addUser(TestData.user("second"));
+        Film film = filmStorage.addFilm(TestData.film("Film"));
+        Assertions.assertEquals(0, filmStorage.getFilmOnId(film.getId()).getLikes());
+        Assertions.assertEquals(Set.of(), userStorage.getUserOnId(first.getId()).getFriends());
+
+        filmService.addLikes(List.of(new FilmLike(film.getId(), first.getId())));
+        userService.addUserToFriends(first.getId(), second.getId());
+        Assertions.assertEquals(1, filmStorage.getFilmOnId(film.getId()).getLikes());
+        Assertions.assertEquals(Set.of(second.getId()), userStorage.getUserOnId(first.getId()).getFriends());
+
+        film.setName("Renamed");
+        filmStorage.updateFilm(film);
+        Assertions.assertEquals("Renamed", filmStorage.getFilmOnId(film.getId()).getName());
+
+        userService.addFriendships(List.of(new Friendship(second.getId(), first.getId())));
+        userService.removeFriend(first.getId(), second.getId());
+        Assertions.assertEquals(Set.of(), userStorage.getUserOnId(second.getId()).getFriends());
+        Assertions.assertEquals(List.of(), userService.getUsersFriendList(first.getId()));
+    }
+
+    @Test
+    public void bulkLookupKeepsRequestedOrder() {
+        User a = userStorage.addUser(TestData.user("a"));
+        User b = userStorage.addUser(TestData.user("b"));
+        User c = userStorage.addUser(TestData.user("c"));
+        userStorage.getUserOnId(b.getId());
+        List<User> users = userStorage.getUsersByIds(List.of(a.getId(), b.getId(), c.getId(), 999));
+        Assertions.assertEquals(List.of(a.getId(), b.getId(), c.getId()), users.stream().map(User::getId).toList());
+        long hits = ((CachingUserStorage) userStorage).getCacheStats().hitCount();
+        userStorage.getUsersByIds(List.of(a.getId(), c.getId()));
+        Assertions.assertEquals(hits + 2, ((CachingUserStorage) userStorage).getCacheStats().hitCount());
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ConditionalRequestTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @SpyBean
+    private FilmService filmService;
+
+    @Test
+    public void unchangedPopularFilmsAreNotRecomputed() throws Exception {
+        Film film = filmStorage.addFilm(TestData.film("Conditional"));
+        MvcResult first = mockMvc.perform(get("/films/popular?count=3"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(etag);
+        Assertions.assertEquals(1, first.getResponse().getHeaders(HttpHeaders.ETAG).size());
+
+        mockMvc.perform(get("/films/popular?count=3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        verify(filmService, times(1)).getMostPopularFilms(anyInt(), any());
+
+        mockMvc.perform(get("/films/popular?count=4").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        User user = userStorage.addUser(TestData.user("popular"));
+        filmService.addLike(film.getId(), user.getId());
+        String changed = mockMvc.perform(get("/films/popular?count=3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotEquals(etag, changed);
+    }
+
+    @Test
+    public void serializedBodyIsReusedWhileVersionIsUnchanged() throws Exception {
+        filmStorage.addFilm(TestData.film("Conditional"));
+        String first = mockMvc.perform(get("/films/popular?count=2")).andReturn().getResponse().getContentAsString();
+        verify(filmService, times(1)).getMostPopularFilms(2, FilmFilter.NONE);
+        String second = mockMvc.perform(get("/films/popular?count=2")).andReturn().getResponse().getContentAsString();
+        verify(filmService, times(1)).getMostPopularFilms(2, FilmFilter.NONE);
+        Assertions.assertEquals(first, second);
+    }
+
+    @Test
+    public void friendsListFollowsFriendshipChanges() throws Exception {
+        User user = userStorage.addUser(TestData.user("owner"));
+        User friend = userStorage.addUser(TestData.user("friend"));
+        String etag = mockMvc.perform(get("/users/{id}/friends", user.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/users/{id}/friends", user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        userStorage.addFriend(user.getId(), friend.getId());
+        String body = mockMvc.perform(get("/users/{id}/friends", user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(body.contains("\"login\":\"friend\""));
+        verify(filmService, never()).getMostPopularFilms(anyInt(), any());
+    }
+
+    @Test
+    public void friendsListIgnoresUnrelatedUsers() throws Exception {
+        User user = userStorage.addUser(TestData.user("viewer"));
+        User friend = userStorage.addUser(TestData.user("buddy"));
+        User stranger = userStorage.addUser(TestData.user("stranger"));
+        User other = userStorage.addUser(TestData.user("other"));
+        userStorage.addFriend(user.getId(), friend.getId());
+        String etag = mockMvc.perform(get("/users/{id}/friends", user.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        stranger.setName("renamed");
+        userStorage.updateUser(stranger);
+        userStorage.addFriend(stranger.getId(), other.getId());
+        mockMvc.perform(get("/users/{id}/friends", user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // у друга стало больше друзей — в ответе меняется его friendCount
+        userStorage.addFriend(friend.getId(), stranger.getId());
+        etag = mockMvc.perform(get("/users/{id}/friends", user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        friend.setName("renamed");
+        userStorage.updateUser(friend);
+        String body = mockMvc.perform(get("/users/{id}/friends", user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(body.contains("\"name\":\"renamed\""));
+    }
+}
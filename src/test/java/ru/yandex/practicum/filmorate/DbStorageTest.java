@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.datasource.url=jdbc:h2:mem:filmorate-test;DB_CLOSE_DELAY=-1",
+                "filmorate.cache.enabled=false"})
+@ActiveProfiles("db")
+public class DbStorageTest {
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeEach
+    public void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM film_genre");
+        jdbcTemplate.update("DELETE FROM likes_users");
+        jdbcTemplate.update("DELETE FROM friendship");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    public void dbStoragesAreUsedInDbProfile() {
+        Assertions.assertInstanceOf(FilmDbStorage.class, filmStorage);
+        Assertions.assertInstanceOf(UserDbStorage.class, userStorage);
+    }
+
+    @Test
+    public void idsContinueFromStoredMaximum() {
+        jdbcTemplate.update("INSERT INTO films (id, name, description, release_date, duration, likes) " +
+                "VALUES (500, 'Old', 'description', DATE '2000-01-01', 100, 0)");
+        jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday) " +
+                "VALUES (700, 'old@mail.ru', 'old', 'old', DATE '2000-01-01')");
+        FilmDbStorage films = new FilmDbStorage(jdbcTemplate, namedJdbcTemplate);
+        UserDbStorage users = new UserDbStorage(jdbcTemplate, namedJdbcTemplate, films);
+        Assertions.assertEquals(501, films.addFilm(TestData.film("New")).getId());
+        Assertions.assertEquals(701, users.addUser(TestData.user("new")).getId());
+        Assertions.assertEquals(List.of(502, 503),
+                films.addFilms(List.of(TestData.film("A"), TestData.film("B"))).stream()
+                        .map(BatchItemResult::getId).toList());
+    }
+
+    @Test
+    public void filmIsSavedWithGenresAndRating() {
+        Film film = TestData.film("Film");
+        film.setGenreOfFilm(new HashSet<>(Set.of("Комедия", "Драма")));
+        film.setRaiting(MPA.PG_13);
+        Film saved = filmStorage.addFilm(film);
+        Film loaded = filmStorage.getFilmOnId(saved.getId());
+        Assertions.assertEquals("Film", loaded.getName());
+        Assertions.assertEquals(Set.of("Комедия", "Драма"), loaded.getGenreOfFilm());
+        Assertions.assertEquals(MPA.PG_13, loaded.getRaiting());
+        Assertions.assertNull(filmStorage.getFilmOnId(saved.getId() + 1000));
+    }
+
+    @Test
+    public void updateOfMissingFilmThrowsNotFound() {
+        Film film = TestData.film("Film");
+        film.setId(999);
+        Assertions.assertThrows(NotFoundException.class, () -> filmStorage.updateFilm(film));
+    }
+
+    @Test
+    public void likesKeepCounterAndPopularOrder() {
+        User first = userStorage.addUser(TestData.user("first"));
+        User second = userStorage.addUser(TestData.user("second"));
+        Film a = filmStorage.addFilm(TestData.film("A"));
+        Film b = filmStorage.addFilm(TestData.film("B"));
+        Film c = filmStorage.addFilm(TestData.film("C"));
+        filmStorage.addLike(b.getId(), first.getId());
+        filmStorage.addLike(b.getId(), second.getId());
+        filmStorage.addLike(b.getId(), second.getId());
+        filmStorage.addLike(c.getId(), first.getId());
+        Assertions.assertEquals(List.of(b.getId(), c.getId(), a.getId()), ids(filmStorage.getPopularFilms(10)));
+        Assertions.assertEquals(2, filmStorage.getFilmOnId(b.getId()).getLikes());
+        Assertions.assertEquals(Set.of(first.getId(), second.getId()), filmStorage.getLikingUserIds(b.getId()));
+        Assertions.assertEquals(List.of(first.getId()), filmStorage.getFilmLikes(b.getId(), 0, 1));
+        Assertions.assertEquals(List.of(second.getId()), filmStorage.getFilmLikes(b.getId(), first.getId(), 10));
+        Assertions.assertTrue(filmStorage.containsFilm(b.getId()));
+        Assertions.assertFalse(filmStorage.containsFilm(999));
+        Assertions.assertEquals(List.of(b.getId(), c.getId()), ids(filmStorage.getLikedFilms(first.getId())));
+
+        filmStorage.removeLike(b.getId(), first.getId());
+        userStorage.removeUser(second);
+        Assertions.assertEquals(0, filmStorage.getFilmOnId(b.getId()).getLikes());
+        Assertions.assertEquals(List.of(c.getId(), a.getId()), ids(filmStorage.getPopularFilms(2)));
+        Assertions.assertThrows(NotFoundException.class, () -> filmStorage.addLike(999, first.getId()));
+
+        filmStorage.updateLikes(a.getId(), SortedIntSet.of(first.getId()), SortedIntSet.EMPTY);
+        filmStorage.updateLikes(c.getId(), SortedIntSet.EMPTY, SortedIntSet.of(first.getId()));
+        Assertions.assertEquals(List.of(a.getId(), b.getId()), ids(filmStorage.getPopularFilms(2)));
+        Assertions.assertEquals(List.of(a.getId()), ids(filmStorage.getLikedFilms(first.getId())));
+    }
+
+    @Test
+    public void friendshipsAndCommonFriends() {
+        User first = userStorage.addUser(TestData.user("first"));
+        User second = userStorage.addUser(TestData.user("second"));
+        User common = userStorage.addUser(TestData.user("common"));
+        User other = userStorage.addUser(TestData.user("other"));
+        userStorage.addFriend(first.getId(), common.getId());
+        userStorage.addFriend(second.getId(), common.getId());
+        userStorage.addFriend(first.getId(), other.getId());
+        Assertions.assertEquals(Set.of(common.getId(), other.getId()),
+                userStorage.getUserOnId(first.getId()).getFriends());
+        Assertions.assertEquals(List.of(common.getId()),
+                userStorage.getCommonFriends(first.getId(), second.getId()).stream().map(User::getId).toList());
+
+        userStorage.removeFriend(common.getId(), first.getId());
+        Assertions.assertEquals(Set.of(other.getId()), userStorage.getUserOnId(first.getId()).getFriends());
+        Assertions.assertTrue(userStorage.getCommonFriends(first.getId(), second.getId()).isEmpty());
+        Assertions.assertEquals(2, userStorage.getUsersByIds(List.of(first.getId(), other.getId(), 999)).size());
+    }
+
+    @Test
+    public void filmsPageIsOrderedById() {
+        Film a = filmStorage.addFilm(TestData.film("A"));
+        Film b = filmStorage.addFilm(TestData.film("B"));
+        Film c = filmStorage.addFilm(TestData.film("C"));
+        Assertions.assertEquals(List.of(b.getId(), c.getId()), ids(filmStorage.getFilmsPage(a.getId(), 5)));
+        Assertions.assertEquals(List.of(a.getId()), ids(filmStorage.getFilmsPage(0, 1)));
+    }
+
+    @Test
+    public void batchWritesPersistEverything() {
+        List<BatchItemResult> films = filmStorage.addFilms(
+                List.of(TestData.film("A"), TestData.film(""), TestData.film("B")));
+        List<BatchItemResult> users = userStorage.addUsers(List.of(TestData.user("u1"), TestData.user("u2")));
+        Assertions.assertFalse(films.get(1).isSuccess());
+        int filmA = films.get(0).getId();
+        int filmB = films.get(2).getId();
+        int u1 = users.get(0).getId();
+        int u2 = users.get(1).getId();
+        Assertions.assertEquals(Map.of(filmB, 2, filmA, 1), filmStorage.addLikes(List.of(new FilmLike(filmB, u1),
+                new FilmLike(filmB, u2), new FilmLike(filmA, u1), new FilmLike(filmB, u1))));
+        Assertions.assertEquals(Map.of(), filmStorage.addLikes(List.of(new FilmLike(filmA, u1))));
+        userStorage.addFriendships(List.of(new Friendship(u1, u2)));
+        Assertions.assertEquals(2, filmStorage.getFilmOnId(filmB).getLikes());
+        Assertions.assertEquals(List.of(filmB, filmA), ids(filmStorage.getPopularFilms(2)));
+        Assertions.assertEquals(Set.of(u1), userStorage.getUserOnId(u2).getFriends());
+        Assertions.assertEquals(Set.of(filmA, filmB), filmStorage.getExistingFilmIds(List.of(filmA, filmB, 999)));
+    }
+
+    @Test
+    public void popularFilmsAreFilteredByGenreMpaAndYear() {
+        User user = userStorage.addUser(TestData.user("fan"));
+        Film a = TestData.film("A");
+        a.setGenreOfFilm(new HashSet<>(Set.of("Комедия")));
+        a.setRaiting(MPA.PG);
+        a = filmStorage.addFilm(a);
+        Film b = TestData.film("B");
+        b.setGenreOfFilm(new HashSet<>(Set.of("Комедия", "Драма")));
+        b.setReleaseDate(LocalDate.of(1999, 1, 1));
+        b = filmStorage.addFilm(b);
+        filmStorage.addLike(b.getId(), user.getId());
+        Assertions.assertEquals(List.of(b.getId(), a.getId()),
+                ids(filmStorage.getPopularFilms(10, new FilmFilter("Комедия", null, null))));
+        Assertions.assertEquals(List.of(a.getId()),
+                ids(filmStorage.getPopularFilms(10, new FilmFilter("Комедия", MPA.PG, 2002))));
+        Assertions.assertEquals(List.of(b.getId()),
+                ids(filmStorage.getPopularFilms(10, new FilmFilter(null, null, 1999))));
+        Assertions.assertEquals(List.of(), ids(filmStorage.getPopularFilms(10, new FilmFilter("Драма", MPA.PG, null))));
+    }
+
+    @Test
+    public void searchMatchesWordPrefixesAndRanksLikeInMemory() {
+        User user = userStorage.addUser(TestData.user("fan"));
+        Film elki = TestData.film("Ёлки");
+        elki.setDescription("Новогодняя комедия");
+        elki = filmStorage.addFilm(elki);
+        Film party = TestData.film("Новогодний корпоратив");
+        party.setDescription("Комедия про офис и ёлку");
+        party = filmStorage.addFilm(party);
+        Film matrix = filmStorage.addFilm(TestData.film("The Matrix"));
+        Assertions.assertEquals(List.of(party.getId(), elki.getId()), ids(filmStorage.searchFilms("новогод", 10)));
+        Assertions.assertEquals(List.of(elki.getId(), party.getId()), ids(filmStorage.searchFilms("ЁЛК", 10)));
+        Assertions.assertEquals(List.of(matrix.getId()), ids(filmStorage.searchFilms("matr", 10)));
+        Assertions.assertEquals(List.of(), ids(filmStorage.searchFilms("atrix", 10)));
+        Assertions.assertEquals(List.of(elki.getId(), party.getId()), ids(filmStorage.searchFilms("комедия", 10)));
+        filmStorage.addLike(party.getId(), user.getId());
+        Assertions.assertEquals(List.of(party.getId()), ids(filmStorage.searchFilms("комедия", 1)));
+    }
+
+    @Test
+    public void writesAdvanceStorageVersions() {
+        long films = filmStorage.getVersion().version();
+        long users = userStorage.getVersion().version();
+        Film film = filmStorage.addFilm(TestData.film("Versioned"));
+        User user = userStorage.addUser(TestData.user("versioned"));
+        filmStorage.addLike(film.getId(), user.getId());
+        Assertions.assertEquals(films + 2, filmStorage.getVersion().version());
+        Assertions.assertEquals(users + 1, userStorage.getVersion().version());
+        userStorage.removeUser(user);
+        Assertions.assertEquals(films + 3, filmStorage.getVersion().version());
+        Assertions.assertEquals(0, filmStorage.getFilmOnId(film.getId()).getLikes());
+    }
+
+    @Test
+    public void friendsVersionFollowsFriendsOnly() {
+        User user = userStorage.addUser(TestData.user("owner"));
+        User friend = userStorage.addUser(TestData.user("friend"));
+        User stranger = userStorage.addUser(TestData.user("stranger"));
+        userStorage.addFriend(user.getId(), friend.getId());
+        VersionStamp version = userStorage.getFriendsVersion(user.getId());
+
+        userStorage.updateUser(stranger);
+        Assertions.assertEquals(version, userStorage.getFriendsVersion(user.getId()));
+        userStorage.updateUser(friend);
+        Assertions.assertNotEquals(version, userStorage.getFriendsVersion(user.getId()));
+        version = userStorage.getFriendsVersion(user.getId());
+        userStorage.removeUser(friend);
+        Assertions.assertNotEquals(version, userStorage.getFriendsVersion(user.getId()));
+    }
+
+    private List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
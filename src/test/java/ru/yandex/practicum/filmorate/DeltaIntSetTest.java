@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.DeltaIntSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+public class DeltaIntSetTest {
+    private static final int IDS = 50_000;
+    private static final int CHANGES = 20_000;
+    private static final int PAGE = 100;
+
+    @Test
+    public void changesOverBaseMatchPlainSet() {
+        DeltaIntSet set = DeltaIntSet.of(SortedIntSet.of(1, 3, 5));
+        Assertions.assertSame(set, set.with(3));
+        Assertions.assertSame(set, set.without(4));
+        DeltaIntSet changed = set.without(3).with(4).with(3).without(4).with(7);
+        Assertions.assertArrayEquals(new int[]{1, 3, 5, 7}, changed.toSortedSet().toIntArray());
+        Assertions.assertEquals(4, changed.size());
+        Assertions.assertTrue(changed.contains(7));
+        Assertions.assertFalse(changed.contains(4));
+        Assertions.assertEquals(DeltaIntSet.of(SortedIntSet.of(1, 3, 5, 7)), changed);
+        Assertions.assertArrayEquals(new int[]{1, 2, 3, 5, 7},
+                changed.union(SortedIntSet.of(2, 7)).toSortedSet().toIntArray());
+    }
+
+    @Test
+    public void randomChangesKeepSizeAndContentInSync() {
+        Random random = new Random(42);
+        TreeSet<Integer> expected = new TreeSet<>();
+        int[] initial = new int[IDS / 2];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = random.nextInt(IDS);
+            expected.add(initial[i]);
+        }
+        DeltaIntSet set = DeltaIntSet.of(SortedIntSet.of(initial));
+        for (int i = 0; i < CHANGES; i++) {
+            int id = random.nextInt(IDS);
+            if (random.nextBoolean()) {
+                set = set.with(id);
+                expected.add(id);
+            } else {
+                set = set.without(id);
+                expected.remove(id);
+            }
+            Assertions.assertEquals(expected.size(), set.size());
+            if (i % 1000 == 0) {
+                int afterId = random.nextInt(IDS);
+                Assertions.assertEquals(set.toSortedSet().after(afterId, PAGE), set.after(afterId, PAGE));
+            }
+        }
+        Assertions.assertEquals(expected, set.toSortedSet());
+    }
+
+    @Test
+    public void mergedSetIsBuiltOncePerVersion() {
+        DeltaIntSet set = DeltaIntSet.EMPTY;
+        for (int id = CHANGES; id > 0; id--) {
+            set = set.with(id);
+        }
+        SortedIntSet merged = set.toSortedSet();
+        Assertions.assertSame(merged, set.toSortedSet());
+        Assertions.assertEquals(CHANGES, merged.size());
+        Assertions.assertEquals(1, merged.get(0));
+        Assertions.assertNotSame(merged, set.without(1).toSortedSet());
+    }
+}
@@ -0,0 +1,391 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurabilityProperties;
+import ru.yandex.practicum.filmorate.storage.journal.DurableStorage;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class DurableStorageTest {
+    private static final StorageJournal FAILING = new StorageJournal() {
+        @Override
+        public void filmSaved(Film film) {
+            throw diskFull();
+        }
+
+        @Override
+        public void filmRemoved(int filmId) {
+            throw diskFull();
+        }
+
+        @Override
+        public void likeAdded(int filmId, int userId) {
+            throw diskFull();
+        }
+
+        @Override
+        public void likeRemoved(int filmId, int userId) {
+            throw diskFull();
+        }
+
+        @Override
+        public void userSaved(User user) {
+            throw diskFull();
+        }
+
+        @Override
+        public void userRemoved(int userId) {
+            throw diskFull();
+        }
+
+        @Override
+        public void friendAdded(int userId, int friendId) {
+            throw diskFull();
+        }
+
+        @Override
+        public void friendRemoved(int userId, int friendId) {
+            throw diskFull();
+        }
+    };
+
+    @TempDir
+    private Path directory;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private DurableStorage durableStorage;
+
+    @BeforeEach
+    public void start() throws IOException {
+        restart();
+    }
+
+    @AfterEach
+    public void stop() throws IOException {
+        durableStorage.close();
+    }
+
+    @Test
+    public void replaysLogAfterRestart() throws IOException {
+        fill();
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        List<Film> popular = filmStorage.getPopularFilms(10);
+
+        restart();
+
+        Assertions.assertEquals(films, filmStorage.getAllFilms());
+        Assertions.assertEquals(users, userStorage.getAllUsers());
+        Assertions.assertEquals(popular, filmStorage.getPopularFilms(10));
+        Assertions.assertEquals(5, filmStorage.countLikes());
+        Assertions.assertEquals(2, userStorage.countFriendships());
+        Assertions.assertTrue(filmStorage.addFilm(TestData.film("new")).getId() > films.getLast().getId());
+        Assertions.assertTrue(userStorage.addUser(TestData.user("new")).getId() > users.getLast().getId());
+    }
+
+    @Test
+    public void loadsSnapshotAndReplaysTail() throws IOException {
+        fill();
+        durableStorage.snapshot();
+        filmStorage.removeLike(1, 1);
+        userStorage.removeFriend(1, 2);
+        Film film = filmStorage.addFilm(TestData.film("after snapshot"));
+        filmStorage.addLike(film.getId(), 2);
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        List<Film> popular = filmStorage.getPopularFilms(10);
+        List<Film> likedBySecond = filmStorage.getLikedFilms(2);
+
+        restart();
+
+        Assertions.assertEquals(films, filmStorage.getAllFilms());
+        Assertions.assertEquals(users, userStorage.getAllUsers());
+        Assertions.assertEquals(popular, filmStorage.getPopularFilms(10));
+        Assertions.assertEquals(likedBySecond, filmStorage.getLikedFilms(2));
+        Assertions.assertTrue(filmStorage.getLikedFilms(2).contains(film));
+        Assertions.assertEquals(List.of(film), filmStorage.searchFilms("after snap", 10));
+    }
+
+    @Test
+    public void snapshotReplacesOldLog() throws IOException {
+        fill();
+        durableStorage.snapshot();
+        durableStorage.snapshot();
+
+        Assertions.assertEquals(1, files("snapshot-").size());
+        Assertions.assertEquals(1, files("wal-").size());
+    }
+
+    @Test
+    public void dropsTornTailOfLog() throws IOException {
+        fill();
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        durableStorage.close();
+        Path lastSegment = files("wal-").getLast();
+        // запись, оборванная на середине: заголовок обещает больше байт, чем есть в файле
+        Files.write(lastSegment, new byte[]{0, 0, 0, 64, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        restart();
+
+        Assertions.assertEquals(films, filmStorage.getAllFilms());
+        Assertions.assertEquals(users, userStorage.getAllUsers());
+
+        // оборванный хвост отрезан, и сегмент больше не мешает проигрывать следующие за ним
+        filmStorage.addFilm(TestData.film("after restart"));
+        films = filmStorage.getAllFilms();
+        restart();
+
+        Assertions.assertEquals(films, filmStorage.getAllFilms());
+    }
+
+    @Test
+    public void answersLookupsFromSnapshotWhileLoading() throws Exception {
+        fill();
+        durableStorage.snapshot();
+        filmStorage.addLike(1, 4);
+        Film untouchedFilm = filmStorage.getFilmOnId(2);
+        User user = userStorage.getUserOnId(1);
+        List<Film> films = filmStorage.getAllFilms();
+        List<Runnable> loading = new ArrayList<>();
+
+        restart(false, loading::add);
+
+        Assertions.assertEquals(untouchedFilm, filmStorage.getFilmOnId(2));
+        Assertions.assertEquals(user, userStorage.getUserOnId(1));
+        Assertions.assertNull(filmStorage.getFilmOnId(100));
+        // фильм 1 менялся после снимка, поэтому ответ ждёт загрузки
+        CompletableFuture<Film> changedFilm = new CompletableFuture<>();
+        CompletableFuture<List<Film>> allFilms = new CompletableFuture<>();
+        Thread filmReader = Thread.ofPlatform().start(() -> changedFilm.complete(filmStorage.getFilmOnId(1)));
+        Thread listReader = Thread.ofPlatform().start(() -> allFilms.complete(filmStorage.getAllFilms()));
+        Assertions.assertEquals(Thread.State.WAITING, awaitBlockedOrDone(filmReader));
+        Assertions.assertEquals(Thread.State.WAITING, awaitBlockedOrDone(listReader));
+        Assertions.assertFalse(changedFilm.isDone());
+        Assertions.assertFalse(allFilms.isDone());
+
+        loading.forEach(Runnable::run);
+
+        Assertions.assertEquals(Set.of(1, 2, 4), changedFilm.get(5, TimeUnit.SECONDS).getUsersIdLike());
+        Assertions.assertEquals(films, allFilms.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void writesSnapshotOnShutdown() throws IOException {
+        restart(true, Runnable::run);
+        fill();
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+
+        restart(true, Runnable::run);
+
+        Assertions.assertEquals(1, files("snapshot-").size());
+        Assertions.assertEquals(0, Files.size(files("wal-").getFirst()));
+        Assertions.assertEquals(films, filmStorage.getAllFilms());
+        Assertions.assertEquals(users, userStorage.getAllUsers());
+    }
+
+    @Test
+    public void snapshotKeepsChangeLoggedButNotYetApplied() throws Exception {
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        restart(false, Runnable::run, new InMemoryFilmStorage() {
+            @Override
+            public void setJournal(StorageJournal journal) {
+                super.setJournal(new PausingJournal(journal, logged, proceed));
+            }
+        });
+        fill();
+        // лайк записан в журнал, но ещё не применён, когда начинается снимок
+        Thread writer = Thread.ofPlatform().start(() -> filmStorage.addLike(1, 5));
+        logged.await();
+        CompletableFuture<Void> snapshot = new CompletableFuture<>();
+        Thread snapshotter = Thread.ofPlatform().start(() -> {
+            try {
+                durableStorage.snapshot();
+                snapshot.complete(null);
+            } catch (Throwable e) {
+                snapshot.completeExceptionally(e);
+            }
+        });
+        awaitBlockedOrDone(snapshotter);
+        proceed.countDown();
+        writer.join();
+        snapshot.get(5, TimeUnit.SECONDS);
+
+        restart();
+
+        Assertions.assertEquals(Set.of(1, 2, 5), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertEquals(6, filmStorage.countLikes());
+    }
+
+    @Test
+    public void changesThatFailToReachLogAreNotApplied() {
+        fill();
+        filmStorage.setJournal(FAILING);
+        userStorage.setJournal(FAILING);
+        Film renamed = TestData.film("renamed");
+        renamed.setId(1);
+
+        Assertions.assertThrows(UncheckedIOException.class, () -> filmStorage.addLike(1, 4));
+        Assertions.assertThrows(UncheckedIOException.class, () -> filmStorage.addLikes(List.of(new FilmLike(1, 4))));
+        Assertions.assertThrows(UncheckedIOException.class, () -> filmStorage.removeLike(2, 3));
+        Assertions.assertThrows(UncheckedIOException.class, () -> filmStorage.updateFilm(renamed));
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> filmStorage.removeFilm(filmStorage.getFilmOnId(2)));
+        Assertions.assertThrows(UncheckedIOException.class, () -> filmStorage.addFilm(TestData.film("new")));
+        Assertions.assertEquals(Set.of(1, 2), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertEquals(Set.of(1, 3, 4), filmStorage.getFilmOnId(2).getUsersIdLike());
+        Assertions.assertEquals("first", filmStorage.getFilmOnId(1).getName());
+        Assertions.assertEquals(2, filmStorage.countFilms());
+        Assertions.assertEquals(5, filmStorage.countLikes());
+        Assertions.assertEquals(Set.of(1, 2), filmStorage.getLikedFilmIds(1));
+
+        Assertions.assertThrows(UncheckedIOException.class, () -> userStorage.addFriend(1, 4));
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> userStorage.addFriendships(List.of(new Friendship(1, 4))));
+        Assertions.assertThrows(UncheckedIOException.class, () -> userStorage.removeFriend(1, 2));
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> userStorage.removeUser(userStorage.getUserOnId(4)));
+        Assertions.assertThrows(UncheckedIOException.class, () -> userStorage.addUser(TestData.user("new")));
+        Assertions.assertEquals(Set.of(2), userStorage.getUserOnId(1).getFriends());
+        Assertions.assertNotNull(userStorage.getUserOnId(4));
+        Assertions.assertEquals(3, userStorage.countUsers());
+        Assertions.assertEquals(2, userStorage.countFriendships());
+    }
+
+    private void fill() {
+        for (int i = 0; i < 4; i++) {
+            userStorage.addUser(TestData.user("user" + i));
+        }
+        Film first = TestData.film("first");
+        first.setGenreOfFilm(new HashSet<>(List.of("Комедия", "Драма")));
+        first.setRaiting(MPA.PG_13);
+        filmStorage.addFilm(first);
+        filmStorage.addFilms(List.of(TestData.film("second"), TestData.film("third")));
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(2, 3);
+        filmStorage.addLikes(List.of(new FilmLike(3, 1), new FilmLike(3, 2), new FilmLike(3, 3)));
+        filmStorage.removeLike(3, 2);
+        Film updated = TestData.film("second, updated");
+        updated.setId(2);
+        filmStorage.updateFilm(updated);
+        filmStorage.removeFilm(filmStorage.getFilmOnId(3));
+        filmStorage.addLike(2, 4);
+        filmStorage.addLike(2, 1);
+
+        userStorage.addFriend(1, 2);
+        userStorage.addFriendships(List.of(new Friendship(1, 3), new Friendship(2, 4)));
+        userStorage.removeFriend(1, 3);
+        User updatedUser = TestData.user("renamed");
+        updatedUser.setId(4);
+        updatedUser.setName("renamed");
+        userStorage.updateUser(updatedUser);
+        userStorage.removeUser(userStorage.getUserOnId(3));
+    }
+
+    private void restart() throws IOException {
+        restart(false, Runnable::run);
+    }
+
+    private void restart(boolean snapshotOnShutdown, Executor loader) throws IOException {
+        restart(snapshotOnShutdown, loader, new InMemoryFilmStorage());
+    }
+
+    private void restart(boolean snapshotOnShutdown, Executor loader, InMemoryFilmStorage films) throws IOException {
+        if (durableStorage != null) {
+            durableStorage.close();
+        }
+        DurabilityProperties properties = new DurabilityProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSnapshotOnShutdown(snapshotOnShutdown);
+        filmStorage = films;
+        userStorage = new InMemoryUserStorage();
+        durableStorage = new DurableStorage(filmStorage, userStorage, properties, loader);
+        durableStorage.start();
+    }
+
+    private static Thread.State awaitBlockedOrDone(Thread thread) {
+        Thread.State state = thread.getState();
+        while (state != Thread.State.WAITING && state != Thread.State.TERMINATED) {
+            Thread.onSpinWait();
+            state = thread.getState();
+        }
+        return state;
+    }
+
+    private static UncheckedIOException diskFull() {
+        return new UncheckedIOException(new IOException("Нет места на диске"));
+    }
+
+    /**
+     * Передаёт записи о фильмах дальше и останавливает поток после записи лайка пользователя 5 фильму 1.
+     */
+    private record PausingJournal(StorageJournal journal, CountDownLatch logged, CountDownLatch proceed)
+            implements StorageJournal {
+        @Override
+        public void filmSaved(Film film) {
+            journal.filmSaved(film);
+        }
+
+        @Override
+        public void filmRemoved(int filmId) {
+            journal.filmRemoved(filmId);
+        }
+
+        @Override
+        public void likeAdded(int filmId, int userId) {
+            journal.likeAdded(filmId, userId);
+            if (filmId == 1 && userId == 5) {
+                logged.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void likesAdded(int filmId, int[] userIds) {
+            journal.likesAdded(filmId, userIds);
+        }
+
+        @Override
+        public void likeRemoved(int filmId, int userId) {
+            journal.likeRemoved(filmId, userId);
+        }
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ExportService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ExportTest {
+    private static final int FILMS = 2_500;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void filmsAreExportedAsNdjsonAcrossBatches() throws Exception {
+        int before = filmStorage.getAllFilms().size();
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addFilm(TestData.film("Film " + i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportFilms(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(before + FILMS, lines.length);
+        int previousId = 0;
+        for (String line : lines) {
+            JsonNode film = objectMapper.readTree(line);
+            Assertions.assertTrue(film.get("id").asInt() > previousId);
+            previousId = film.get("id").asInt();
+        }
+    }
+
+    @Test
+    public void exportEndpointsGetLongAsyncTimeout() throws Exception {
+        MvcResult export = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Assertions.assertEquals(Duration.ofHours(1).toMillis(), export.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void usersExportEndpointStreamsNdjson() throws Exception {
+        userStorage.addUser(TestData.user("export"));
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(body.endsWith("\n"));
+        Assertions.assertTrue(body.contains("\"login\":\"export\""));
+    }
+}
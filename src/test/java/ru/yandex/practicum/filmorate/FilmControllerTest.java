@@ -1,11 +1,17 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.JsonSnapshots;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmDetails;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
@@ -15,7 +21,7 @@ import java.util.List;
 
 public class FilmControllerTest {
     FilmController controller = new FilmController(new FilmService(new InMemoryFilmStorage(),
-            new InMemoryUserStorage()));
+            new InMemoryUserStorage()), new JsonSnapshots(new ObjectMapper().findAndRegisterModules()));
     Film film;
     ValidationException exception;
 
@@ -31,7 +37,7 @@ public class FilmControllerTest {
 
     @Test
     public void postRequestTest() {
-        Film film1 = controller.createFilm(film);
+        FilmDetails film1 = controller.createFilm(film);
         Assertions.assertNotNull(film1.getId());
     }
 
@@ -88,8 +94,30 @@ public class FilmControllerTest {
     @Test
     public void getRequestUsers() {
         controller.createFilm(film);
-        List<Film> filmList = controller.getAllFilms();
-        Assertions.assertEquals(film, filmList.getFirst());
+        List<FilmSummary> filmList = controller.getAllFilms(null, null).getBody();
+        Assertions.assertEquals(FilmSummary.of(film), filmList.getFirst());
         System.out.println(film.getId());
     }
+
+    @Test
+    public void getFilmsPageByCursor() {
+        for (int i = 0; i < 5; i++) {
+            createFilm();
+            controller.createFilm(film);
+        }
+        ResponseEntity<List<FilmSummary>> firstPage = controller.getAllFilms(null, 2);
+        Assertions.assertEquals(List.of(1, 2), firstPage.getBody().stream().map(FilmSummary::getId).toList());
+        Assertions.assertEquals("</films?after=2&limit=2>; rel=\"next\"",
+                firstPage.getHeaders().getFirst(HttpHeaders.LINK));
+        ResponseEntity<List<FilmSummary>> lastPage = controller.getAllFilms(4, 2);
+        Assertions.assertEquals(List.of(5), lastPage.getBody().stream().map(FilmSummary::getId).toList());
+        Assertions.assertNull(lastPage.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    public void getFilmsPageWithIncorrectLimit() {
+        exception = Assertions.assertThrows(ValidationException.class, () -> controller.getAllFilms(null, 0));
+        Assertions.assertEquals("Параметр limit должен быть от 1 до 10000", exception.getMessage());
+        Assertions.assertThrows(ValidationException.class, () -> controller.getAllFilms(-1, 10));
+    }
 }
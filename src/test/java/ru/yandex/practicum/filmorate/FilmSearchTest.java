@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class FilmSearchTest {
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        filmService = new FilmService(filmStorage, new InMemoryUserStorage());
+        filmStorage.addFilm(film("Ёлки", "Новогодняя комедия о чуде"));
+        filmStorage.addFilm(film("The Matrix", "Hacker Neo learns the truth about reality"));
+        filmStorage.addFilm(film("Matrix Reloaded", "Neo returns"));
+        filmStorage.addFilm(film("Новогодний корпоратив", "Комедия про офис и ёлку"));
+    }
+
+    @Test
+    public void tokensAreLowercasedWordsWithoutYo() {
+        Assertions.assertEquals(List.of("елки", "и", "the", "matrix", "2"),
+                List.copyOf(FilmSearchIndex.tokens("Ёлки и The-Matrix 2, ёлки!")));
+    }
+
+    @Test
+    public void everyQueryWordMustMatchWordOrPrefix() {
+        Assertions.assertEquals(List.of(2, 3), ids(filmStorage.searchFilms("matr", 10)));
+        Assertions.assertEquals(List.of(2), ids(filmStorage.searchFilms("matrix HACK", 10)));
+        Assertions.assertEquals(List.of(), ids(filmStorage.searchFilms("matrix комедия", 10)));
+        Assertions.assertEquals(List.of(1, 4), ids(filmStorage.searchFilms("ёлк", 10)));
+        Assertions.assertEquals(List.of(), ids(filmStorage.searchFilms("?!", 10)));
+    }
+
+    @Test
+    public void nameMatchesRankAboveDescriptionMatchesAndLikesBreakTies() {
+        // «комедия» есть только в описаниях, «новогод» — в названии фильма 4 и в описании фильма 1
+        Assertions.assertEquals(List.of(4, 1), ids(filmStorage.searchFilms("новогод", 10)));
+        Assertions.assertEquals(List.of(1, 4), ids(filmStorage.searchFilms("комедия", 10)));
+        for (int userId = 1; userId <= 3; userId++) {
+            filmStorage.addLike(4, userId);
+        }
+        Assertions.assertEquals(List.of(4, 1), ids(filmStorage.searchFilms("комедия", 10)));
+        Assertions.assertEquals(List.of(4), ids(filmStorage.searchFilms("комедия", 1)));
+    }
+
+    @Test
+    public void indexFollowsUpdatesRemovalsAndRebuild() {
+        Film renamed = film("Matrix Resurrections", "Neo again");
+        renamed.setId(3);
+        filmStorage.updateFilm(renamed);
+        Assertions.assertEquals(List.of(), ids(filmStorage.searchFilms("reloaded", 10)));
+        Assertions.assertEquals(List.of(3), ids(filmStorage.searchFilms("resurrect", 10)));
+        filmStorage.removeFilm(filmStorage.getFilmOnId(2));
+        Assertions.assertEquals(List.of(3), ids(filmStorage.searchFilms("matrix", 10)));
+        filmStorage.rebuildIndexes();
+        Assertions.assertEquals(List.of(3), ids(filmStorage.searchFilms("matrix neo", 10)));
+    }
+
+    @Test
+    public void manyCandidatesAreRankedLikeFullScan() {
+        Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            Film film = filmStorage.addFilm(film(i % 3 == 0 ? "Saga " + i : "Story " + i,
+                    i % 2 == 0 ? "saga" : "sagas and stories"));
+            for (int like = random.nextInt(8) - 4; like > 0; like--) {
+                filmStorage.addLike(film.getId(), random.nextInt(1000));
+            }
+        }
+        Comparator<Film> byScore = Comparator.comparingDouble(this::sagaScore).reversed()
+                .thenComparingInt(Film::getId);
+        // малые count проходят обходом по популярности, большие — перебором кандидатов
+        for (int count : new int[]{1, 5, 20, 500}) {
+            List<Integer> expected = filmStorage.getAllFilms().stream()
+                    .sorted(byScore)
+                    .limit(count)
+                    .map(Film::getId)
+                    .toList();
+            Assertions.assertEquals(expected, ids(filmStorage.searchFilms("saga", count)));
+        }
+    }
+
+    @Test
+    public void invalidSearchIsRejected() {
+        Assertions.assertThrows(ValidationException.class, () -> filmService.searchFilms(" ", 10));
+        Assertions.assertThrows(ValidationException.class, () -> filmService.searchFilms(null, 10));
+        Assertions.assertThrows(ValidationException.class, () -> filmService.searchFilms("matrix", 0));
+        Assertions.assertEquals(List.of(2, 3), ids(filmService.searchFilms("matrix", 10)));
+    }
+
+    private double sagaScore(Film film) {
+        String name = film.getName().toLowerCase();
+        String description = film.getDescription().toLowerCase();
+        double relevance = name.startsWith("saga ") ? FilmSearchIndex.NAME_WEIGHT
+                : description.equals("saga") ? FilmSearchIndex.DESCRIPTION_WEIGHT
+                : description.startsWith("sagas") ? FilmSearchIndex.DESCRIPTION_WEIGHT * FilmSearchIndex.PREFIX_WEIGHT
+                : 0;
+        return relevance == 0 ? 0 : relevance + FilmSearchIndex.LIKES_WEIGHT * Math.log1p(film.getLikes());
+    }
+
+    private Film film(String name, String description) {
+        Film film = TestData.film(name);
+        film.setDescription(description);
+        return film;
+    }
+
+    private List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarities;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FilmSimilaritiesTest {
+    private static final int FILMS = 60;
+    private static final int USERS = 200;
+    private static final int ROUNDS = 5;
+    private static final int LIKES_PER_ROUND = 300;
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FilmSimilarities similarities = new FilmSimilarities(filmStorage);
+    private final FilmService service = new FilmService(filmStorage, userStorage, similarities);
+
+    @Test
+    public void filmsLikedBySameUsersAreRecommendedFirst() {
+        fill(4, 6);
+        // фильм 2 лайкали все, кто лайкал 1, фильм 3 — только один из них; 4 с 1 не пересекается
+        for (int userId = 1; userId <= 3; userId++) {
+            service.addLike(1, userId);
+            service.addLike(2, userId);
+        }
+        service.addLike(3, 3);
+        service.addLike(4, 5);
+        service.addLike(1, 6);
+        similarities.rebuild();
+
+        Assertions.assertEquals(List.of(2, 3), ids(service.getRecommendedFilms(6, 10)));
+        Assertions.assertEquals(List.of(2), ids(service.getRecommendedFilms(6, 1)));
+        Assertions.assertEquals(List.of(), ids(service.getRecommendedFilms(5, 10)));
+        Assertions.assertEquals(List.of(), ids(service.getRecommendedFilms(4, 10)));
+    }
+
+    @Test
+    public void likesAreAppliedOnRefreshToChangedFilmsAndTheirNeighbours() {
+        fill(3, 4);
+        service.addLike(1, 1);
+        service.addLike(2, 1);
+        service.addLike(3, 2);
+        service.addLike(1, 3);
+        service.addLike(2, 4);
+        similarities.refresh();
+        Assertions.assertEquals(List.of(2), ids(service.getRecommendedFilms(3, 10)));
+        Assertions.assertEquals(List.of(1), ids(service.getRecommendedFilms(4, 10)));
+
+        // до обновления матрица прежняя
+        service.addLike(3, 1);
+        Assertions.assertEquals(List.of(2), ids(service.getRecommendedFilms(3, 10)));
+        similarities.refresh();
+        Assertions.assertEquals(List.of(2, 3), ids(service.getRecommendedFilms(3, 10)));
+        // лайки фильма 2 не менялись, но фильм 3 попал в его строку как сосед пересчитанного фильма
+        Assertions.assertEquals(List.of(1, 3), ids(service.getRecommendedFilms(4, 10)));
+
+        service.removeLike(3, 1);
+        similarities.refresh();
+        Assertions.assertEquals(List.of(2), ids(service.getRecommendedFilms(3, 10)));
+        Assertions.assertEquals(List.of(1), ids(service.getRecommendedFilms(4, 10)));
+    }
+
+    @Test
+    public void incrementalRefreshMatchesFullRebuild() {
+        fill(FILMS, USERS);
+        // соседей не меньше, чем фильмов: тогда в строках хранятся все похожести и обновление точное
+        FilmSimilarities full = new FilmSimilarities(filmStorage, FILMS, FilmSimilarities.DEFAULT_MAX_DEGREE);
+        FilmSimilarities incremental = new FilmSimilarities(filmStorage, FILMS, FilmSimilarities.DEFAULT_MAX_DEGREE);
+        FilmService incrementalService = new FilmService(filmStorage, userStorage, incremental);
+        incremental.rebuild();
+        Random random = new Random(7);
+        for (int round = 0; round < ROUNDS; round++) {
+            List<FilmLike> likes = new ArrayList<>();
+            for (int i = 0; i < LIKES_PER_ROUND; i++) {
+                likes.add(new FilmLike(random.nextInt(FILMS) + 1, random.nextInt(USERS) + 1));
+            }
+            incrementalService.addLikes(likes);
+            for (int i = 0; i < LIKES_PER_ROUND / 10; i++) {
+                incrementalService.removeLike(random.nextInt(FILMS) + 1, random.nextInt(USERS) + 1);
+            }
+            incremental.refresh();
+        }
+        full.rebuild();
+        for (int userId = 1; userId <= USERS; userId++) {
+            Assertions.assertEquals(full.recommend(userId, FilmSimilarities.MAX_RECOMMENDATIONS),
+                    incremental.recommend(userId, FilmSimilarities.MAX_RECOMMENDATIONS), "пользователь " + userId);
+        }
+    }
+
+    @Test
+    public void invalidRequestsAreRejected() {
+        fill(1, 1);
+        Assertions.assertThrows(ValidationException.class, () -> service.getRecommendedFilms(1, 0));
+        Assertions.assertThrows(ValidationException.class,
+                () -> service.getRecommendedFilms(1, FilmSimilarities.MAX_RECOMMENDATIONS + 1));
+        Assertions.assertThrows(NotFoundException.class, () -> service.getRecommendedFilms(42, 10));
+    }
+
+    @Test
+    public void rowsAreComputedInDedicatedBoundedPool() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        InMemoryFilmStorage recording = new InMemoryFilmStorage() {
+            @Override
+            public SortedIntSet getLikedFilmIds(int userId) {
+                threads.add(Thread.currentThread().getName());
+                return super.getLikedFilmIds(userId);
+            }
+        };
+        for (int i = 0; i < FILMS; i++) {
+            recording.addFilm(TestData.film("film" + i));
+        }
+        FilmSimilarities pooled = new FilmSimilarities(recording, FilmSimilarities.DEFAULT_NEIGHBOURS,
+                FilmSimilarities.DEFAULT_MAX_DEGREE, Duration.ofSeconds(1), Duration.ofHours(1), 2);
+        try {
+            pooled.rebuild();
+            Random random = new Random(7);
+            for (int i = 0; i < LIKES_PER_ROUND; i++) {
+                int filmId = random.nextInt(FILMS) + 1;
+                recording.addLike(filmId, random.nextInt(USERS) + 1);
+                pooled.likesChanged(filmId);
+            }
+            pooled.refresh();
+        } finally {
+            pooled.stop();
+        }
+        // задачу может выполнить и вызывающий поток, но не общий пул JVM
+        threads.remove(Thread.currentThread().getName());
+        Assertions.assertTrue(threads.size() <= 2, threads.toString());
+        Assertions.assertTrue(threads.stream().allMatch(name -> name.startsWith("filmorate-film-similarities-")),
+                threads.toString());
+    }
+
+    private List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private void fill(int films, int users) {
+        for (int i = 0; i < films; i++) {
+            filmStorage.addFilm(TestData.film("film" + i));
+        }
+        for (int i = 0; i < users; i++) {
+            userStorage.addUser(TestData.user("user" + i));
+        }
+    }
+}
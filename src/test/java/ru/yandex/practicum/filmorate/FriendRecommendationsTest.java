@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserRecommendation;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FriendRecommendationsTest {
+    private static final int USERS = 3_000;
+    private static final int FRIENDS_OF_OWNER = 500;
+    private static final int FRIENDSHIPS = 30_000;
+
+    private final InMemoryUserStorage storage = new InMemoryUserStorage();
+    private final UserService service = new UserService(storage);
+
+    @Test
+    public void rankedByMutualFriendsWithoutSelfAndFriends() {
+        fill(7);
+        // у 1 друзья 2 и 3; 4 дружит с обоими, 5 — только с 2, 6 — с 3
+        service.addUserToFriends(1, 2);
+        service.addUserToFriends(1, 3);
+        service.addUserToFriends(4, 2);
+        service.addUserToFriends(4, 3);
+        service.addUserToFriends(5, 2);
+        service.addUserToFriends(6, 3);
+        Assertions.assertEquals(List.of("4:2", "5:1", "6:1"), describe(service.getRecommendations(1, 10)));
+        Assertions.assertEquals(List.of("4:2"), describe(service.getRecommendations(1, 1)));
+        Assertions.assertEquals(List.of(), describe(service.getRecommendations(7, 10)));
+    }
+
+    @Test
+    public void friendshipChangesInvalidateParticipantsAndTheirFriends() {
+        fill(6);
+        service.addUserToFriends(1, 2);
+        service.addUserToFriends(2, 3);
+        Assertions.assertEquals(List.of("3:1"), describe(service.getRecommendations(1, 10)));
+        Assertions.assertEquals(List.of("1:1"), describe(service.getRecommendations(3, 10)));
+
+        // 1 — друг участника дружбы 2–4: его рекомендации тоже пересчитываются
+        service.addUserToFriends(2, 4);
+        Assertions.assertEquals(List.of("3:1", "4:1"), describe(service.getRecommendations(1, 10)));
+        service.addUserToFriends(1, 3);
+        Assertions.assertEquals(List.of("4:1"), describe(service.getRecommendations(1, 10)));
+        Assertions.assertEquals(List.of("4:1"), describe(service.getRecommendations(3, 10)));
+
+        service.removeFriend(2, 4);
+        Assertions.assertEquals(List.of(), describe(service.getRecommendations(1, 10)));
+        service.addFriendships(List.of(new Friendship(4, 5), new Friendship(5, 3)));
+        Assertions.assertEquals(List.of("5:1"), describe(service.getRecommendations(1, 10)));
+        Assertions.assertEquals(List.of("1:1", "2:1"), describe(service.getRecommendations(5, 10)));
+    }
+
+    @Test
+    public void parallelExpansionMatchesBruteForce() {
+        fill(USERS);
+        Random random = new Random(3);
+        List<Friendship> friendships = new ArrayList<>();
+        for (int friendId = 2; friendId < 2 + FRIENDS_OF_OWNER; friendId++) {
+            friendships.add(new Friendship(1, friendId));
+        }
+        for (int i = 0; i < FRIENDSHIPS; i++) {
+            int userId = random.nextInt(USERS - 1) + 2;
+            int friendId = random.nextInt(USERS - 1) + 2;
+            if (userId != friendId) {
+                friendships.add(new Friendship(userId, friendId));
+            }
+        }
+        storage.addFriendships(friendships);
+
+        User owner = storage.getUserOnId(1);
+        Map<Integer, Integer> mutual = new HashMap<>();
+        for (int friendId : owner.getFriends()) {
+            for (int candidate : storage.getUserOnId(friendId).getFriends()) {
+                if (candidate != 1 && !owner.getFriends().contains(candidate)) {
+                    mutual.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> expected = mutual.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(FriendRecommendations.MAX_RECOMMENDATIONS)
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .toList();
+        Assertions.assertEquals(expected,
+                describe(service.getRecommendations(1, FriendRecommendations.MAX_RECOMMENDATIONS)));
+    }
+
+    @Test
+    public void hubsAreSampledToMaxDegree() {
+        fill(40);
+        FriendRecommendations recommendations = new FriendRecommendations(storage, 10, 100);
+        // друг 2 — хаб с 30 друзьями, из них учитываются 10 через равные промежутки
+        storage.addFriend(1, 2);
+        for (int friendId = 3; friendId <= 32; friendId++) {
+            storage.addFriend(2, friendId);
+        }
+        List<FriendRecommendations.Recommendation> top = recommendations.recommend(1);
+        Assertions.assertEquals(9, top.size());
+        Assertions.assertTrue(top.stream().allMatch(recommendation -> recommendation.mutualFriends() == 1));
+        Assertions.assertEquals(top.stream().sorted(Comparator.comparingInt(
+                FriendRecommendations.Recommendation::userId)).toList(), top);
+    }
+
+    @Test
+    public void expansionRunsInDedicatedBoundedPool() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        InMemoryUserStorage recording = new InMemoryUserStorage() {
+            @Override
+            public List<User> getUsersByIds(Collection<Integer> ids) {
+                threads.add(Thread.currentThread().getName());
+                return super.getUsersByIds(ids);
+            }
+        };
+        for (int i = 0; i < 300; i++) {
+            recording.addUser(TestData.user("user" + i));
+        }
+        for (int friendId = 2; friendId <= 300; friendId++) {
+            recording.addFriend(1, friendId);
+        }
+        FriendRecommendations recommendations = new FriendRecommendations(recording, 1000, 100, 2);
+        try {
+            recommendations.recommend(1);
+        } finally {
+            recommendations.stop();
+        }
+        // корневая задача может выполниться в вызывающем потоке, остальные — только в двух потоках пула
+        threads.remove(Thread.currentThread().getName());
+        Assertions.assertTrue(threads.size() <= 2);
+        Assertions.assertTrue(threads.stream().allMatch(name -> name.startsWith("filmorate-friend-recommendations-")),
+                threads.toString());
+    }
+
+    @Test
+    public void invalidRequestsAreRejected() {
+        fill(1);
+        Assertions.assertThrows(ValidationException.class, () -> service.getRecommendations(1, 0));
+        Assertions.assertThrows(ValidationException.class,
+                () -> service.getRecommendations(1, FriendRecommendations.MAX_RECOMMENDATIONS + 1));
+        Assertions.assertThrows(NotFoundException.class, () -> service.getRecommendations(42, 10));
+    }
+
+    private List<String> describe(List<UserRecommendation> recommendations) {
+        return recommendations.stream()
+                .map(recommendation -> recommendation.getUser().getId() + ":" + recommendation.getMutualFriends())
+                .toList();
+    }
+
+    private void fill(int count) {
+        for (int i = 0; i < count; i++) {
+            storage.addUser(TestData.user("user" + i));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.id.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.id.BlockIdGenerator;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class IdGeneratorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+    private static final int FILMS_PER_THREAD = 1000;
+
+    @Test
+    public void atomicGeneratorGivesUniqueIdsConcurrently() throws Exception {
+        assertUniqueUnderConcurrency(new AtomicIdGenerator());
+    }
+
+    @Test
+    public void blockGeneratorGivesUniqueIdsConcurrently() throws Exception {
+        assertUniqueUnderConcurrency(new BlockIdGenerator(128));
+    }
+
+    @Test
+    public void idsAreNotReusedAfterRemoval() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film first = storage.addFilm(TestData.film("Film"));
+        Film second = storage.addFilm(TestData.film("Film"));
+        storage.removeFilm(second);
+        Film third = storage.addFilm(TestData.film("Film"));
+        Assertions.assertEquals(1, first.getId());
+        Assertions.assertEquals(3, third.getId());
+    }
+
+    @Test
+    public void generatorsContinueAfterSeed() {
+        IdGenerator atomic = new AtomicIdGenerator(41);
+        Assertions.assertEquals(42, atomic.nextId());
+        atomic.advanceTo(100);
+        Assertions.assertEquals(101, atomic.nextId());
+        atomic.advanceTo(50);
+        Assertions.assertEquals(102, atomic.nextId());
+
+        IdGenerator block = new BlockIdGenerator(16);
+        int beforeSeed = block.nextId();
+        block.advanceTo(1000);
+        int afterSeed = block.nextId();
+        Assertions.assertEquals(1, beforeSeed);
+        Assertions.assertTrue(afterSeed > 1000);
+    }
+
+    @Test
+    public void blockGeneratorDoesNotReserveBlocksForVirtualThreads() throws Exception {
+        IdGenerator generator = new BlockIdGenerator(1024);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executor.submit(() -> ids.add(generator.nextId()));
+            }
+        }
+        Assertions.assertEquals(1000, ids.size());
+        Assertions.assertEquals(1000, ids.stream().mapToInt(Integer::intValue).max().orElseThrow());
+    }
+
+    @Test
+    public void concurrentInsertsGetDistinctIds() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(new BlockIdGenerator(16));
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < FILMS_PER_THREAD; i++) {
+                        ids.add(storage.addFilm(TestData.film("Film")).getId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(THREADS * FILMS_PER_THREAD, ids.size());
+        Assertions.assertEquals(THREADS * FILMS_PER_THREAD, storage.countFilms());
+        for (int id : ids) {
+            Assertions.assertEquals(id, storage.getFilmOnId(id).getId());
+        }
+    }
+
+    @Test
+    public void concurrentSeedsKeepTheMaximum() throws Exception {
+        BlockIdGenerator generator = new BlockIdGenerator(16);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = offset; i < 10_000; i += THREADS) {
+                        generator.advanceTo(i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(generator.nextId() > 9_999);
+    }
+
+    private void assertUniqueUnderConcurrency(IdGenerator generator) throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+}
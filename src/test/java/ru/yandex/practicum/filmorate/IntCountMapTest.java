@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IntCountMapTest {
+    private static final int INCREMENTS = 200_000;
+    private static final int KEYS = 30_000;
+
+    @Test
+    public void countsMatchHashMapThroughResizes() {
+        Random random = new Random(7);
+        IntCountMap counts = new IntCountMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < INCREMENTS; i++) {
+            // отрицательные и нулевой ключи не отличаются от остальных
+            int key = random.nextInt(KEYS) - KEYS / 2;
+            counts.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+        Assertions.assertEquals(expected.size(), counts.size());
+        Map<Integer, Integer> actual = new HashMap<>();
+        counts.forEach(actual::put);
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(expected.get(0), counts.get(0));
+        Assertions.assertEquals(0, counts.get(KEYS));
+    }
+
+    @Test
+    public void addAllSumsCounts() {
+        IntCountMap left = new IntCountMap();
+        left.add(1, 2);
+        left.increment(5);
+        IntCountMap right = new IntCountMap(1_000);
+        right.add(5, 3);
+        right.increment(9);
+        left.addAll(right);
+        Assertions.assertEquals(3, left.size());
+        Assertions.assertEquals(2, left.get(1));
+        Assertions.assertEquals(4, left.get(5));
+        Assertions.assertEquals(1, left.get(9));
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarities;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LikeIngestionTest {
+    private static final int FILMS = 20;
+    private static final int USERS = 50;
+    private static final int OPERATIONS = 20_000;
+
+    private final AtomicInteger updates = new AtomicInteger();
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage() {
+        @Override
+        public int updateLikes(int filmId, SortedIntSet added, SortedIntSet removed) {
+            updates.incrementAndGet();
+            return super.updateLikes(filmId, added, removed);
+        }
+    };
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FilmSimilarities similarities = new FilmSimilarities(filmStorage);
+    private final TrendingFilms trending = new TrendingFilms(Clock.systemUTC());
+    private LikeIngestion ingestion;
+
+    @AfterEach
+    public void stop() throws InterruptedException {
+        if (ingestion != null) {
+            ingestion.stop();
+        }
+    }
+
+    @Test
+    public void duplicateAndCancellingOperationsAreCoalescedPerFilm() {
+        fill(2, 3);
+        ingestion = new LikeIngestion(filmStorage, similarities, trending, 1, 100, 100, Duration.ofMillis(10), false);
+        // потоки записи ещё не запущены: все операции попадут в один пакет
+        List<CompletableFuture<Void>> applied = List.of(
+                ingestion.submit(1, 1, true),
+                ingestion.submit(1, 1, false),
+                ingestion.submit(1, 2, true),
+                ingestion.submit(1, 2, true),
+                ingestion.submit(1, 3, false),
+                ingestion.submit(1, 3, true),
+                ingestion.submit(2, 1, true));
+        ingestion.start();
+        applied.forEach(CompletableFuture::join);
+
+        Assertions.assertEquals(Set.of(2, 3), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertEquals(Set.of(1), filmStorage.getFilmOnId(2).getUsersIdLike());
+        Assertions.assertEquals(2, updates.get());
+        Assertions.assertEquals(List.of(1, 2), filmStorage.getPopularFilms(2).stream().map(Film::getId).toList());
+        Assertions.assertEquals(Set.of(2), filmStorage.getLikedFilmIds(1));
+    }
+
+    @Test
+    public void finalLikesMatchSequentialApplicationOfEveryOperation() {
+        fill(FILMS, USERS);
+        ingestion = new LikeIngestion(filmStorage, similarities, trending, 3, 64, 16, Duration.ofSeconds(5), false);
+        ingestion.start();
+        boolean[][] expected = new boolean[FILMS + 1][USERS + 1];
+        Random random = new Random(11);
+        List<CompletableFuture<Void>> applied = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int filmId = random.nextInt(FILMS) + 1;
+            int userId = random.nextInt(USERS) + 1;
+            boolean liked = random.nextInt(3) > 0;
+            expected[filmId][userId] = liked;
+            applied.add(ingestion.submit(filmId, userId, liked));
+        }
+        applied.forEach(CompletableFuture::join);
+
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            SortedIntSet likes = filmStorage.getFilmOnId(filmId).getUsersIdLike();
+            for (int userId = 1; userId <= USERS; userId++) {
+                Assertions.assertEquals(expected[filmId][userId], likes.contains(userId),
+                        "фильм " + filmId + ", пользователь " + userId);
+            }
+        }
+        Assertions.assertTrue(updates.get() < OPERATIONS);
+    }
+
+    @Test
+    public void fullQueueRejectsNewOperations() {
+        fill(1, 3);
+        ingestion = new LikeIngestion(filmStorage, similarities, trending, 1, 2, 100, Duration.ofMillis(10), false);
+        ingestion.submit(1, 1, true);
+        ingestion.submit(1, 2, true);
+        Assertions.assertThrows(OverloadedException.class, () -> ingestion.submit(1, 3, true));
+        Assertions.assertEquals(2, ingestion.queued());
+    }
+
+    @Test
+    public void stopCompletesOperationsLeftInQueues() throws InterruptedException {
+        fill(1, 2);
+        ingestion = new LikeIngestion(filmStorage, similarities, trending, 1, 100, 100, Duration.ofMillis(10), false);
+        // потоки записи не запущены: операция остаётся в очереди до остановки
+        CompletableFuture<Void> queued = ingestion.submit(1, 1, true);
+        ingestion.stop();
+
+        CompletionException error = Assertions.assertThrows(CompletionException.class, queued::join);
+        Assertions.assertInstanceOf(OverloadedException.class, error.getCause());
+        Assertions.assertThrows(OverloadedException.class, () -> ingestion.submit(1, 2, true));
+        Assertions.assertEquals(0, ingestion.queued());
+        Assertions.assertEquals(Set.of(), filmStorage.getFilmOnId(1).getUsersIdLike());
+    }
+
+    @Test
+    public void readYourWritesWaitsUntilLikeIsApplied() {
+        fill(1, 2);
+        ingestion = new LikeIngestion(filmStorage, similarities, trending, 2, 100, 100, Duration.ofMillis(10), true);
+        ingestion.start();
+        FilmService service = new FilmService(filmStorage, userStorage, similarities, ingestion, trending);
+
+        Assertions.assertTrue(service.addLike(1, 1, null));
+        Assertions.assertEquals(Set.of(1), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertTrue(service.removeLike(1, 1, null));
+        Assertions.assertEquals(Set.of(), filmStorage.getFilmOnId(1).getUsersIdLike());
+
+        // без ожидания лайк только принят, но тоже применяется
+        Assertions.assertFalse(service.addLike(1, 2, false));
+        Assertions.assertTrue(service.removeLike(1, 1, true));
+        Assertions.assertEquals(Set.of(2), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertThrows(NotFoundException.class, () -> service.addLike(2, 1, true));
+    }
+
+    @Test
+    public void trendingCountsOnlyLikesThatChangedStorage() {
+        fill(1, 3);
+        ingestion = new LikeIngestion(filmStorage, similarities, trending, 1, 100, 100, Duration.ofMillis(10), false);
+        ingestion.start();
+        // повторы и отмены в разных пакетах: каждый join дожидается применения своего пакета
+        ingestion.submit(1, 1, true).join();
+        ingestion.submit(1, 1, true).join();
+        ingestion.submit(1, 2, true).join();
+        ingestion.submit(1, 2, false).join();
+        ingestion.submit(1, 2, true).join();
+        ingestion.submit(1, 3, false).join();
+
+        Assertions.assertEquals(Set.of(1, 2), filmStorage.getFilmOnId(1).getUsersIdLike());
+        Assertions.assertEquals(2, trending.likes(TrendingWindow.HOUR, 1));
+    }
+
+    private void fill(int films, int users) {
+        for (int i = 0; i < films; i++) {
+            filmStorage.addFilm(TestData.film("film" + i));
+        }
+        for (int i = 0; i < users; i++) {
+            userStorage.addUser(TestData.user("user" + i));
+        }
+    }
+}
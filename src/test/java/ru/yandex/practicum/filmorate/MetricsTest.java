@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Test
+    public void serviceCallsAndErrorsAreMeasured() throws Exception {
+        mockMvc.perform(get("/films/popular?count=5")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", 999_999, 999_999)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/popular?count=-1")).andExpect(status().isBadRequest());
+
+        Assertions.assertTrue(registry.get("filmorate.service")
+                .tag("class", "ru.yandex.practicum.filmorate.service.FilmService")
+                .tag("method", "getMostPopularFilms")
+                .timer().count() >= 1);
+        Assertions.assertTrue(registry.get("filmorate.errors").tag("type", "not_found").counter().count() >= 1);
+        Assertions.assertTrue(registry.get("filmorate.errors").tag("type", "validation").counter().count() >= 1);
+        Assertions.assertTrue(registry.get("http.server.requests").tag("uri", "/films/popular").timer().count() >= 1);
+    }
+
+    @Test
+    public void storageSizesAreExposedToPrometheus() throws Exception {
+        filmStorage.addFilm(TestData.film("Measured"));
+        Assertions.assertEquals(filmStorage.countFilms(), registry.get("filmorate.films").gauge().value());
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(scrape.contains("filmorate_films "));
+        Assertions.assertTrue(scrape.contains("filmorate_likes "));
+        Assertions.assertTrue(scrape.contains("filmorate_users "));
+        Assertions.assertTrue(scrape.contains("filmorate_friendships "));
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+import ru.yandex.practicum.filmorate.util.VersionStamp;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class PopularFilmsTest {
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmService = new FilmService(filmStorage, userStorage);
+        for (int i = 1; i <= 3; i++) {
+            userStorage.addUser(TestData.user("user" + i));
+        }
+        for (int i = 1; i <= 4; i++) {
+            filmStorage.addFilm(TestData.film("Film " + i));
+        }
+    }
+
+    @Test
+    public void popularFilmsAreOrderedByLikesThenById() {
+        filmService.addLike(3, 1);
+        filmService.addLike(3, 2);
+        filmService.addLike(2, 1);
+        filmService.addLike(4, 3);
+        Assertions.assertEquals(List.of(3, 2, 4, 1), ids(filmService.getMostPopularFilms(10)));
+        Assertions.assertEquals(List.of(3, 2), ids(filmService.getMostPopularFilms(2)));
+    }
+
+    @Test
+    public void popularFilmsFollowLikeRemovalAndFilmRemoval() {
+        filmService.addLike(1, 1);
+        filmService.addLike(2, 1);
+        filmService.addLike(2, 2);
+        filmService.removeLike(2, 1);
+        filmService.removeLike(2, 2);
+        Assertions.assertEquals(List.of(1, 2, 3, 4), ids(filmService.getMostPopularFilms(10)));
+        filmStorage.removeFilm(filmStorage.getFilmOnId(1));
+        Assertions.assertEquals(List.of(2, 3), ids(filmService.getMostPopularFilms(2)));
+    }
+
+    @Test
+    public void repeatedLikeDoesNotChangeRanking() {
+        filmService.addLike(4, 1);
+        filmService.addLike(4, 1);
+        Assertions.assertEquals(1, filmStorage.getFilmOnId(4).getLikes());
+        Assertions.assertEquals(List.of(4, 1), ids(filmService.getMostPopularFilms(2)));
+    }
+
+    @Test
+    public void likedFilmsFollowLikesAndFilmRemoval() {
+        filmService.addLike(3, 1);
+        filmService.addLike(1, 1);
+        filmService.addLikes(List.of(new FilmLike(4, 1), new FilmLike(2, 2)));
+        Assertions.assertEquals(List.of(1, 3, 4), ids(filmService.getLikedFilms(1)));
+        filmService.removeLike(3, 1);
+        filmStorage.removeFilm(filmStorage.getFilmOnId(4));
+        Assertions.assertEquals(List.of(1), ids(filmService.getLikedFilms(1)));
+        Assertions.assertEquals(List.of(2), ids(filmService.getLikedFilms(2)));
+        Assertions.assertEquals(List.of(), ids(filmService.getLikedFilms(3)));
+        Assertions.assertThrows(NotFoundException.class, () -> filmService.getLikedFilms(99));
+    }
+
+    @Test
+    public void popularFilmsAreFilteredByGenreMpaAndYear() {
+        Film comedy = filmStorage.updateFilm(film(1, Set.of("Комедия", "Драма"), MPA.PG, LocalDate.of(2002, 2, 2)));
+        filmStorage.updateFilm(film(2, Set.of("Драма"), MPA.PG, LocalDate.of(1999, 5, 5)));
+        filmService.addLike(2, 1);
+        filmService.addLike(2, 2);
+        filmService.addLike(1, 1);
+
+        Assertions.assertEquals(List.of(2, 1), ids(filmService.getMostPopularFilms(10, filter("Драма", null, null))));
+        Assertions.assertEquals(List.of(1), ids(filmService.getMostPopularFilms(10, filter("Комедия", "PG", 2002))));
+        Assertions.assertEquals(List.of(2), ids(filmService.getMostPopularFilms(1, filter(null, "PG", null))));
+        Assertions.assertEquals(List.of(1, 3, 4), ids(filmService.getMostPopularFilms(10, filter(null, null, 2002))));
+        Assertions.assertEquals(List.of(), ids(filmService.getMostPopularFilms(10, filter("Ужасы", null, null))));
+
+        filmStorage.updateFilm(film(2, Set.of("Ужасы"), MPA.PG, LocalDate.of(1999, 5, 5)));
+        Assertions.assertEquals(List.of(1), ids(filmService.getMostPopularFilms(10, filter("Драма", null, null))));
+        Assertions.assertEquals(List.of(2), ids(filmService.getMostPopularFilms(10, filter("Ужасы", "PG", null))));
+        filmStorage.removeFilm(comedy);
+        Assertions.assertEquals(List.of(), ids(filmService.getMostPopularFilms(10, filter("Драма", null, null))));
+    }
+
+    @Test
+    public void popularityVersionChangesOnlyWithTrackedTop() {
+        int liked = 2 * PopularityIndex.TRACKED_TOP + 10;
+        for (int i = 5; i <= liked + 10; i++) {
+            filmStorage.addFilm(TestData.film("Film " + i));
+        }
+        for (int filmId = 1; filmId <= liked; filmId++) {
+            filmService.addLike(filmId, 1);
+            filmService.addLike(filmId, 2);
+        }
+        // изменения топа после того, как лайки расставлены, пересчитывают границу топа
+        for (int i = 0; i < PopularityIndex.TRACKED_TOP; i++) {
+            filmService.addLike(1, 3);
+            filmService.removeLike(1, 3);
+        }
+
+        VersionStamp version = filmStorage.getPopularityVersion();
+        VersionStamp filmsVersion = filmStorage.getVersion();
+        filmService.addLike(liked + 10, 3);
+        Film renamed = filmStorage.getFilmOnId(liked + 9);
+        renamed.setName("Renamed");
+        filmStorage.updateFilm(renamed);
+        Assertions.assertNotEquals(filmsVersion, filmStorage.getVersion());
+        Assertions.assertEquals(version, filmStorage.getPopularityVersion());
+
+        filmService.addLike(liked, 3);
+        Assertions.assertNotEquals(version, filmStorage.getPopularityVersion());
+        version = filmStorage.getPopularityVersion();
+        filmStorage.updateFilm(film(1, Set.of("Драма"), MPA.PG, LocalDate.of(2002, 2, 2)));
+        Assertions.assertNotEquals(version, filmStorage.getPopularityVersion());
+    }
+
+    @Test
+    public void invalidFilterIsRejected() {
+        Assertions.assertThrows(ValidationException.class, () -> filmService.popularFilter(null, "PG13", null));
+        Assertions.assertThrows(ValidationException.class, () -> filmService.popularFilter(null, null, 0));
+    }
+
+    @Test
+    public void negativeCountIsRejected() {
+        Assertions.assertThrows(ValidationException.class, () -> filmService.getMostPopularFilms(-1));
+    }
+
+    private Film film(int id, Set<String> genres, MPA mpa, LocalDate releaseDate) {
+        Film film = TestData.film("Film " + id);
+        film.setId(id);
+        film.setReleaseDate(releaseDate);
+        film.setGenreOfFilm(new HashSet<>(genres));
+        film.setRaiting(mpa);
+        return film;
+    }
+
+    private FilmFilter filter(String genre, String mpa, Integer year) {
+        return filmService.popularFilter(genre, mpa, year);
+    }
+
+    private List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+import ru.yandex.practicum.filmorate.logging.PolicyStrategy;
+import ru.yandex.practicum.filmorate.logging.RequestLogPolicy;
+import ru.yandex.practicum.filmorate.logging.RequestLoggingProperties;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestLoggingTest {
+    private final Correlation correlation = mock(Correlation.class);
+
+    @Test
+    public void errorsPolicySkipsSuccessfulRequests() throws Exception {
+        PolicyStrategy strategy = strategy(RequestLogPolicy.ERRORS, 1.0);
+        Sink sink = mock(Sink.class);
+        strategy.write(correlation, request("/films"), response(200), sink);
+        verify(sink, never()).writeBoth(any(), any(), any());
+
+        HttpRequest request = request("/films");
+        HttpResponse response = response(404);
+        strategy.write(correlation, request, response, sink);
+        verify(sink).writeBoth(correlation, request, response);
+    }
+
+    @Test
+    public void sampledPolicyDropsBodiesOfSuccessfulRequests() throws Exception {
+        HttpRequest request = request("/films");
+        HttpResponse response = response(200);
+        HttpRequest withoutBody = mock(HttpRequest.class);
+        HttpResponse responseWithoutBody = mock(HttpResponse.class);
+        when(request.withoutBody()).thenReturn(withoutBody);
+        when(response.withoutBody()).thenReturn(responseWithoutBody);
+
+        Sink sink = mock(Sink.class);
+        strategy(RequestLogPolicy.SAMPLED, 1.0).write(correlation, request, response, sink);
+        verify(sink).writeBoth(correlation, withoutBody, responseWithoutBody);
+
+        Sink unsampled = mock(Sink.class);
+        strategy(RequestLogPolicy.SAMPLED, 0.0).write(correlation, request, response, unsampled);
+        verify(unsampled, never()).writeBoth(any(), any(), any());
+
+        HttpResponse error = response(500);
+        strategy(RequestLogPolicy.SAMPLED, 0.0).write(correlation, request, error, unsampled);
+        verify(unsampled).writeBoth(correlation, request, error);
+    }
+
+    @Test
+    public void endpointPolicyOverridesDefault() throws Exception {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setDefaultPolicy(RequestLogPolicy.FULL);
+        RequestLoggingProperties.Endpoint friends = new RequestLoggingProperties.Endpoint();
+        friends.setPath("/users/*/friends");
+        friends.setPolicy(RequestLogPolicy.OFF);
+        properties.setEndpoints(List.of(friends));
+        PolicyStrategy strategy = new PolicyStrategy(properties);
+
+        HttpRequest friendsRequest = request("/users/7/friends");
+        strategy.process(friendsRequest);
+        verify(friendsRequest).withoutBody();
+        Sink sink = mock(Sink.class);
+        strategy.write(correlation, friendsRequest, response(500), sink);
+        verify(sink, never()).writeBoth(any(), any(), any());
+
+        HttpRequest filmsRequest = request("/films");
+        HttpResponse filmsResponse = response(200);
+        strategy.process(filmsRequest);
+        verify(filmsRequest).withBody();
+        strategy.write(correlation, filmsRequest, filmsResponse, sink);
+        verify(sink).writeBoth(correlation, filmsRequest, filmsResponse);
+    }
+
+    private PolicyStrategy strategy(RequestLogPolicy policy, double sampleRate) {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setDefaultPolicy(policy);
+        properties.setSampleRate(sampleRate);
+        return new PolicyStrategy(properties);
+    }
+
+    private HttpRequest request(String path) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getPath()).thenReturn(path);
+        return request;
+    }
+
+    private HttpResponse response(int status) {
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class SortedIntSetTest {
+    private static final int FRIENDS = 10_000;
+
+    @Test
+    public void withAndWithoutKeepValuesSortedAndDistinct() {
+        SortedIntSet set = SortedIntSet.EMPTY.with(5).with(1).with(3).with(5);
+        Assertions.assertArrayEquals(new int[]{1, 3, 5}, set.toIntArray());
+        Assertions.assertSame(set, set.with(3));
+        Assertions.assertArrayEquals(new int[]{1, 5}, set.without(3).toIntArray());
+        Assertions.assertSame(set, set.without(4));
+        Assertions.assertSame(SortedIntSet.EMPTY, SortedIntSet.of(7).without(7));
+    }
+
+    @Test
+    public void behavesAsSetOfIntegers() {
+        SortedIntSet set = SortedIntSet.copyOf(List.of(4, 2, 2, 9));
+        Assertions.assertEquals(Set.of(2, 4, 9), set);
+        Assertions.assertEquals(Set.of(2, 4, 9).hashCode(), set.hashCode());
+        Assertions.assertTrue(set.contains(Integer.valueOf(4)));
+        Assertions.assertFalse(set.contains("4"));
+        Assertions.assertEquals(List.of(2, 4, 9), List.copyOf(set));
+    }
+
+    @Test
+    public void mergeIntersectionMatchesRetainAll() {
+        SortedIntSet evens = range(0, 2_000, 2);
+        SortedIntSet triples = range(0, 2_000, 3);
+        assertIntersection(evens, triples);
+    }
+
+    @Test
+    public void gallopingIntersectionMatchesRetainAll() {
+        SortedIntSet small = SortedIntSet.of(3, 500, 7_777, 19_998, 40_000);
+        SortedIntSet large = range(0, 20_000, 1);
+        assertIntersection(small, large);
+        assertIntersection(large, small);
+        Assertions.assertEquals(SortedIntSet.EMPTY, SortedIntSet.EMPTY.intersect(large));
+    }
+
+    @Test
+    public void sampleTakesEvenlySpacedIds() {
+        SortedIntSet ids = range(0, 100, 1);
+        Assertions.assertArrayEquals(new int[]{0, 25, 50, 75}, ids.sample(4));
+        Assertions.assertArrayEquals(ids.toIntArray(), ids.sample(100));
+        Assertions.assertArrayEquals(new int[0], SortedIntSet.EMPTY.sample(4));
+    }
+
+    @Test
+    public void intersectionOfTenThousandFriends() {
+        SortedIntSet first = range(0, FRIENDS * 2, 2);
+        SortedIntSet second = range(FRIENDS, FRIENDS * 3, 2);
+        SortedIntSet common = first.intersect(second);
+        Assertions.assertEquals(FRIENDS / 2, common.size());
+        Assertions.assertEquals(range(FRIENDS, FRIENDS * 2, 2), common);
+    }
+
+    private void assertIntersection(SortedIntSet first, SortedIntSet second) {
+        Set<Integer> expected = new HashSet<>(first);
+        expected.retainAll(second);
+        Assertions.assertEquals(expected, first.intersect(second));
+    }
+
+    private SortedIntSet range(int from, int to, int step) {
+        int[] values = new int[(to - from + step - 1) / step];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        return SortedIntSet.of(values);
+    }
+}
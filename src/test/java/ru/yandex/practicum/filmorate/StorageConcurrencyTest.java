@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class StorageConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int USERS = 400;
+    private static final int FILMS = 20;
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FilmService filmService = new FilmService(filmStorage, userStorage);
+    private final UserService userService = new UserService(userStorage);
+
+    @Test
+    public void concurrentLikesAreNotLost() throws Exception {
+        createUsers();
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addFilm(TestData.film("Film"));
+        }
+        runConcurrently(thread -> {
+            for (int userId = thread + 1; userId <= USERS; userId += THREADS) {
+                for (int filmId = 1; filmId <= FILMS; filmId++) {
+                    filmService.addLike(filmId, userId);
+                    if (filmId % 2 == 0) {
+                        filmStorage.updateFilm(filmStorage.getFilmOnId(filmId));
+                    }
+                }
+            }
+        });
+        for (Film film : filmStorage.getAllFilms()) {
+            Assertions.assertEquals(USERS, film.getUsersIdLike().size());
+            Assertions.assertEquals(USERS, film.getLikes());
+        }
+    }
+
+    @Test
+    public void concurrentLikesAndUnlikesKeepCounterInSync() throws Exception {
+        createUsers();
+        Film film = filmStorage.addFilm(TestData.film("Film"));
+        runConcurrently(thread -> {
+            for (int round = 0; round < 50; round++) {
+                for (int userId = thread + 1; userId <= USERS; userId += THREADS) {
+                    filmService.addLike(film.getId(), userId);
+                    if (userId % 3 == 0) {
+                        filmService.removeLike(film.getId(), userId);
+                    }
+                }
+            }
+        });
+        int expected = USERS - USERS / 3;
+        Assertions.assertEquals(expected, film.getUsersIdLike().size());
+        Assertions.assertEquals(expected, film.getLikes());
+    }
+
+    @Test
+    public void concurrentFriendshipsAreNotLost() throws Exception {
+        createUsers();
+        runConcurrently(thread -> {
+            for (int userId = 1; userId <= USERS; userId++) {
+                for (int friendId = userId + 1 + thread; friendId <= USERS; friendId += THREADS) {
+                    if (friendId % 2 == 0) {
+                        userStorage.addFriend(friendId, userId);
+                    } else {
+                        userStorage.addFriend(userId, friendId);
+                    }
+                }
+            }
+        });
+        for (User user : userStorage.getAllUsers()) {
+            Assertions.assertEquals(USERS - 1, user.getFriends().size());
+        }
+    }
+
+    @Test
+    public void concurrentPutsAndLikesOfSameFilmKeepConsistentState() throws Exception {
+        createUsers();
+        int filmId = filmStorage.addFilm(TestData.film("Film")).getId();
+        // все потоки одновременно ставят и снимают лайки одному фильму и заменяют его через PUT
+        runConcurrently(thread -> {
+            for (int userId = thread + 1; userId <= USERS; userId += THREADS) {
+                filmService.addLike(filmId, userId);
+                if (userId % 3 == 0) {
+                    filmService.removeLike(filmId, userId);
+                }
+                Film update = TestData.film("Film");
+                update.setId(filmId);
+                update.setName("Film " + thread);
+                filmStorage.updateFilm(update);
+            }
+        });
+        int expected = USERS - USERS / 3;
+        Film film = filmStorage.getFilmOnId(filmId);
+        Assertions.assertTrue(film.getName().startsWith("Film "));
+        Assertions.assertEquals(expected, film.getUsersIdLike().size());
+        Assertions.assertEquals(expected, film.getLikes());
+        Assertions.assertEquals(expected, filmStorage.countLikes());
+        Film popular = filmStorage.getPopularFilms(1).getFirst();
+        Assertions.assertSame(film, popular);
+        for (int userId = 1; userId <= USERS; userId++) {
+            Assertions.assertEquals(userId % 3 != 0, film.getUsersIdLike().contains(userId));
+        }
+    }
+
+    @Test
+    public void concurrentPutsAndFriendshipsOfSameUserKeepConsistentState() throws Exception {
+        createUsers();
+        // все потоки одновременно добавляют друзей одному пользователю с обеих сторон и заменяют его через PUT
+        runConcurrently(thread -> {
+            for (int friendId = thread + 2; friendId <= USERS; friendId += THREADS) {
+                if (friendId % 2 == 0) {
+                    userStorage.addFriend(friendId, 1);
+                } else {
+                    userStorage.addFriend(1, friendId);
+                }
+                if (friendId % 5 == 0) {
+                    userStorage.removeFriend(1, friendId);
+                }
+                User update = TestData.user("hub" + thread);
+                update.setId(1);
+                update.setEmail("hub@mail.ru");
+                update.setName("hub" + thread);
+                userStorage.updateUser(update);
+            }
+        });
+        User hub = userStorage.getUserOnId(1);
+        Assertions.assertTrue(hub.getLogin().startsWith("hub"));
+        int expected = USERS - 1 - USERS / 5;
+        Assertions.assertEquals(expected, hub.getFriendCount());
+        Assertions.assertEquals(expected, userStorage.countFriendships());
+        for (int friendId = 2; friendId <= USERS; friendId++) {
+            boolean friends = friendId % 5 != 0;
+            Assertions.assertEquals(friends, hub.hasFriend(friendId));
+            Assertions.assertEquals(friends, userStorage.getUserOnId(friendId).hasFriend(1));
+        }
+    }
+
+    @Test
+    public void batchFriendshipsRacingRemovalsLeaveNoLinksToRemovedUsers() throws Exception {
+        createUsers();
+        int kept = USERS / 2;
+        // чётные потоки удаляют вторую половину пользователей, нечётные дружат с ними первую половину пакетами
+        runConcurrently(thread -> {
+            int part = thread / 2;
+            int parts = THREADS / 2;
+            if (thread % 2 == 0) {
+                for (int userId = kept + 1 + part; userId <= USERS; userId += parts) {
+                    userStorage.removeUser(userStorage.getUserOnId(userId));
+                }
+                return;
+            }
+            for (int userId = 1 + part; userId <= kept; userId += parts) {
+                List<Friendship> batch = new ArrayList<>();
+                for (int friendId = kept + 1; friendId <= USERS; friendId++) {
+                    batch.add(new Friendship(userId, friendId));
+                }
+                userStorage.addFriendships(batch);
+            }
+        });
+        Assertions.assertEquals(kept, userStorage.countUsers());
+        for (User user : userStorage.getAllUsers()) {
+            Assertions.assertEquals(0, user.getFriendCount(), "друзья пользователя " + user.getId());
+        }
+        Assertions.assertEquals(0, userStorage.countFriendships());
+    }
+
+    private void createUsers() {
+        for (int i = 0; i < USERS; i++) {
+            userStorage.addUser(TestData.user("user" + i));
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
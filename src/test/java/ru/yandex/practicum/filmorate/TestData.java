@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Корректные фильмы и пользователи для тестов. Имя пользователю не задаётся: хранилище берёт его из логина.
+ */
+public final class TestData {
+    private TestData() {
+    }
+
+    public static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setDuration(120);
+        film.setReleaseDate(LocalDate.of(2002, 2, 2));
+        return film;
+    }
+
+    public static User user(String login) {
+        User user = new User();
+        user.setEmail(login.replace(' ', '_') + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
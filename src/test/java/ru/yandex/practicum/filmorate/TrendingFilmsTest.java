@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarities;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+public class TrendingFilmsTest {
+    private static final int FILMS = 300;
+    private static final int LIKES = 20_000;
+    private static final int THREADS = 4;
+
+    private final SimulatedClock clock = new SimulatedClock();
+    private final TrendingFilms trending = new TrendingFilms(clock);
+
+    @Test
+    public void likesLeaveWindowAfterItsLength() {
+        trending.likeAdded(1);
+        trending.likeAdded(1);
+        clock.advance(Duration.ofMinutes(30));
+        trending.likeAdded(2);
+        Assertions.assertEquals(List.of(1, 2), trending.top(TrendingWindow.HOUR, 10));
+
+        clock.advance(Duration.ofMinutes(31));
+        Assertions.assertEquals(List.of(2), trending.top(TrendingWindow.HOUR, 10));
+        Assertions.assertEquals(List.of(1, 2), trending.top(TrendingWindow.DAY, 10));
+
+        clock.advance(Duration.ofHours(24));
+        Assertions.assertEquals(List.of(), trending.top(TrendingWindow.DAY, 10));
+        Assertions.assertEquals(List.of(1, 2), trending.top(TrendingWindow.WEEK, 10));
+        Assertions.assertEquals(0, trending.trackedFilms(TrendingWindow.HOUR));
+
+        clock.advance(Duration.ofDays(7));
+        Assertions.assertEquals(List.of(), trending.top(TrendingWindow.WEEK, 10));
+        Assertions.assertEquals(0, trending.trackedFilms(TrendingWindow.WEEK));
+    }
+
+    @Test
+    public void removedLikesLowerFilmInTop() {
+        for (int i = 0; i < 3; i++) {
+            trending.likeAdded(1);
+        }
+        trending.likeAdded(2);
+        trending.likeAdded(2);
+        trending.likeAdded(3);
+        Assertions.assertEquals(List.of(1, 2), trending.top(TrendingWindow.HOUR, 2));
+
+        trending.likeRemoved(1);
+        trending.likeRemoved(1);
+        Assertions.assertEquals(List.of(2, 1, 3), trending.top(TrendingWindow.HOUR, 10));
+        trending.likeRemoved(1);
+        Assertions.assertEquals(List.of(2, 3), trending.top(TrendingWindow.HOUR, 10));
+    }
+
+    @Test
+    public void incrementalTopMatchesRecount() {
+        // лайки за двое суток с шагом до минуты; топ сверяется с пересчётом по журналу лайков
+        Random random = new Random(3);
+        List<long[]> history = new ArrayList<>();
+        for (int i = 0; i < LIKES; i++) {
+            clock.advance(Duration.ofSeconds(random.nextInt(17)));
+            int filmId = (int) Math.min(FILMS, Math.abs(random.nextGaussian()) * FILMS / 3) + 1;
+            int delta = random.nextInt(10) == 0 ? -1 : 1;
+            if (delta > 0) {
+                trending.likeAdded(filmId);
+            } else {
+                trending.likeRemoved(filmId);
+            }
+            history.add(new long[]{clock.millis(), filmId, delta});
+            if (i % 1000 == 0) {
+                for (TrendingWindow window : TrendingWindow.values()) {
+                    Assertions.assertEquals(recount(history, window, TrendingFilms.MAX_TRENDING),
+                            trending.top(window, TrendingFilms.MAX_TRENDING), window + " после " + i + " лайков");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void concurrentLikesAreNotLost() throws InterruptedException {
+        // фильм k получает k * 100 лайков из разных потоков, пока часы переходят через границы корзин
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int round = 0; round < 100 / THREADS; round++) {
+                    for (int filmId = 1; filmId <= 10; filmId++) {
+                        for (int i = 0; i < filmId; i++) {
+                            trending.likeAdded(filmId);
+                        }
+                    }
+                    clock.advance(Duration.ofSeconds(1));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(List.of(10, 9, 8, 7, 6, 5, 4, 3, 2, 1), trending.top(TrendingWindow.HOUR, 10));
+        Assertions.assertEquals(10, trending.trackedFilms(TrendingWindow.HOUR));
+    }
+
+    @Test
+    public void serviceCountsOnlyNewLikes() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FilmService service = new FilmService(filmStorage, userStorage, new FilmSimilarities(filmStorage), null,
+                trending);
+        fill(filmStorage, userStorage, 3, 3);
+        service.addLike(1, 1);
+        service.addLike(2, 1);
+        service.addLike(2, 2);
+        service.addLike(1, 1);
+        service.addLike(1, 1);
+        service.removeLike(3, 1);
+        Assertions.assertEquals(List.of(2, 1), ids(service.getTrendingFilms("1h", 10)));
+
+        clock.advance(Duration.ofHours(2));
+        service.addLike(3, 1);
+        Assertions.assertEquals(List.of(3), ids(service.getTrendingFilms("1h", 10)));
+        Assertions.assertEquals(List.of(2, 1, 3), ids(service.getTrendingFilms("24h", 10)));
+        Assertions.assertThrows(ValidationException.class, () -> service.getTrendingFilms("2h", 10));
+        Assertions.assertThrows(ValidationException.class, () -> service.getTrendingFilms("1h", 0));
+        Assertions.assertThrows(ValidationException.class,
+                () -> service.getTrendingFilms("1h", TrendingFilms.MAX_TRENDING + 1));
+    }
+
+    @Test
+    public void batchLikesReachTrending() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FilmService service = new FilmService(filmStorage, userStorage, new FilmSimilarities(filmStorage), null,
+                trending);
+        fill(filmStorage, userStorage, 3, 3);
+        service.addLike(3, 1);
+        // повторный лайк в пакете и лайк уже лайкнутому фильму не считаются
+        service.addLikes(List.of(new FilmLike(2, 1), new FilmLike(2, 2), new FilmLike(2, 2), new FilmLike(1, 3),
+                new FilmLike(3, 1)));
+
+        Assertions.assertEquals(ids(service.getMostPopularFilms(10)), ids(service.getTrendingFilms("1h", 10)));
+        Assertions.assertEquals(List.of(2, 1, 3), ids(service.getTrendingFilms("1h", 10)));
+    }
+
+    @Test
+    public void concurrentDuplicateLikesAreCountedOnce() throws InterruptedException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FilmService service = new FilmService(filmStorage, userStorage, new FilmSimilarities(filmStorage), null,
+                trending);
+        fill(filmStorage, userStorage, 1, 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS * 4; t++) {
+            int userId = t % 2 + 1;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                service.addLike(1, userId);
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(2, trending.likes(TrendingWindow.HOUR, 1));
+        Assertions.assertEquals(2, filmStorage.getFilmOnId(1).getLikes());
+    }
+
+    private void fill(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage, int films, int users) {
+        for (int i = 0; i < films; i++) {
+            filmStorage.addFilm(TestData.film("film" + i));
+        }
+        for (int i = 0; i < users; i++) {
+            userStorage.addUser(TestData.user("user" + i));
+        }
+    }
+
+    // окно — текущая корзина и предыдущие, всего buckets корзин
+    private List<Integer> recount(List<long[]> history, TrendingWindow window, int count) {
+        long bucket = window.getBucket().toMillis();
+        long first = Math.floorDiv(clock.millis(), bucket) - window.getBuckets() + 1;
+        Map<Integer, Integer> likes = new HashMap<>();
+        for (long[] like : history) {
+            if (Math.floorDiv(like[0], bucket) >= first) {
+                likes.merge((int) like[1], (int) like[2], Integer::sum);
+            }
+        }
+        return likes.entrySet().stream()
+                .filter(film -> film.getValue() > 0)
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private static final class SimulatedClock extends Clock {
+        private volatile Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        synchronized void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.controller.JsonSnapshots;
 import ru.yandex.practicum.filmorate.controller.UserController;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDetails;
+import ru.yandex.practicum.filmorate.model.UserSummary;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
@@ -16,7 +21,8 @@ import java.util.List;
 
 public class UserControllerTest {
 
-    UserController controller = new UserController(new UserService(new InMemoryUserStorage()));
+    UserController controller = new UserController(new UserService(new InMemoryUserStorage()),
+            new JsonSnapshots(new ObjectMapper().findAndRegisterModules()));
     User user;
     ValidationException exception;
 
@@ -32,7 +38,7 @@ public class UserControllerTest {
 
     @Test
     public void postRequestTest() {
-        User user1 = controller.createNewUser(user);
+        UserDetails user1 = controller.createNewUser(user);
         System.out.println(user1.getId());
         Assertions.assertNotNull(user1.getId());
     }
@@ -124,7 +130,18 @@ public class UserControllerTest {
     @Test
     public void getRequestUsers() {
         controller.createNewUser(user);
-        List<User> userList = controller.getAllUsers();
-        Assertions.assertEquals(user, userList.getFirst());
+        List<UserSummary> userList = controller.getAllUsers(null, null).getBody();
+        Assertions.assertEquals(UserSummary.of(user), userList.getFirst());
+    }
+
+    @Test
+    public void getUsersPageByCursor() {
+        controller.createNewUser(user);
+        createUserTest();
+        controller.createNewUser(user);
+        ResponseEntity<List<UserSummary>> page = controller.getAllUsers(1, 1);
+        Assertions.assertEquals(2, page.getBody().getFirst().getId());
+        Assertions.assertNull(page.getHeaders().getFirst("X-Next-Cursor"));
+        Assertions.assertEquals("1", controller.getAllUsers(0, 1).getHeaders().getFirst("X-Next-Cursor"));
     }
 }
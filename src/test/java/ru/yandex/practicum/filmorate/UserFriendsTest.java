@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class UserFriendsTest {
+    private static final int FRIENDS = 100;
+    private static final int STORE = 10_000;
+
+    @Test
+    public void friendListContainsOnlyExistingFriends() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        UserService service = new UserService(storage);
+        fill(storage, 5);
+        service.addUserToFriends(1, 2);
+        service.addUserToFriends(1, 3);
+        storage.removeUser(storage.getUserOnId(3));
+        Assertions.assertEquals(Set.of(2), ids(service.getUsersFriendList(1)));
+        Assertions.assertEquals(Set.of(1), ids(service.getUsersFriendList(2)));
+        // обратная ссылка удалена из списка друга, а не только скрыта при чтении
+        Assertions.assertFalse(storage.getUserOnId(1).hasFriend(3));
+        Assertions.assertEquals(1, storage.getUserOnId(1).getFriendCount());
+        Assertions.assertEquals(1, storage.countFriendships());
+    }
+
+    @Test
+    public void mutualFriendsAreIntersectionOfFriendSets() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        UserService service = new UserService(storage);
+        fill(storage, 6);
+        service.addUserToFriends(1, 3);
+        service.addUserToFriends(1, 4);
+        service.addUserToFriends(1, 5);
+        service.addUserToFriends(2, 4);
+        service.addUserToFriends(2, 5);
+        service.addUserToFriends(2, 6);
+        Assertions.assertEquals(Set.of(4, 5), ids(service.getMutualFriends(1, 2)));
+        service.removeFriend(4, 1);
+        Assertions.assertEquals(Set.of(5), ids(service.getMutualFriends(2, 1)));
+    }
+
+    @Test
+    public void usersByIdsSkipsUnknownIds() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        fill(storage, 3);
+        Assertions.assertEquals(Set.of(1, 3), ids(storage.getUsersByIds(List.of(1, 3, 42))));
+    }
+
+    @Test
+    public void friendListReadsOnlyFriendsInIdOrder() {
+        // список друзей собирается по id друзей: обход всех пользователей здесь — ошибка
+        InMemoryUserStorage storage = new InMemoryUserStorage() {
+            @Override
+            public List<User> getAllUsers() {
+                throw new AssertionError("список друзей не должен обходить всех пользователей");
+            }
+
+            @Override
+            public List<User> getUsersPage(int afterId, int limit) {
+                throw new AssertionError("список друзей не должен обходить всех пользователей");
+            }
+        };
+        UserService service = new UserService(storage);
+        fill(storage, STORE);
+        List<Integer> expected = new ArrayList<>();
+        for (int friendId = STORE; friendId > 1; friendId -= STORE / FRIENDS) {
+            storage.addFriend(1, friendId);
+            expected.add(friendId);
+        }
+        Collections.sort(expected);
+
+        Assertions.assertEquals(expected, service.getUsersFriendList(1).stream().map(User::getId).toList());
+        storage.removeFriend(1, expected.getFirst());
+        Assertions.assertEquals(expected.subList(1, expected.size()),
+                service.getUsersFriendList(1).stream().map(User::getId).toList());
+    }
+
+    private void fill(InMemoryUserStorage storage, int count) {
+        for (int i = 0; i < count; i++) {
+            storage.addUser(TestData.user("user" + i));
+        }
+    }
+
+    private Set<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toSet());
+    }
+}
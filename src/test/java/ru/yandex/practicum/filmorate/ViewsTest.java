@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmDetails;
+import ru.yandex.practicum.filmorate.model.UserDetails;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ViewsTest {
+    private static final int LIKES = 150;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    public void listsCarryLikeCountsInsteadOfIds() throws Exception {
+        Film film = filmStorage.addFilm(TestData.film("Summary"));
+        List<Integer> userIds = addUsers(3);
+        for (int userId : userIds) {
+            filmStorage.addLike(film.getId(), userId);
+        }
+        JsonNode item = find(json("/films?after=" + (film.getId() - 1) + "&limit=1"), film.getId());
+        Assertions.assertEquals(3, item.get("likes").asInt());
+        Assertions.assertFalse(item.has("usersIdLike"));
+        Assertions.assertEquals("Summary", item.get("name").asText());
+        Assertions.assertEquals("2002-02-02", item.get("releaseDate").asText());
+
+        // закэшированный фрагмент не переживает изменения фильма
+        filmStorage.removeLike(film.getId(), userIds.getFirst());
+        Assertions.assertEquals(2, find(json("/films/popular?count=10000"), film.getId()).get("likes").asInt());
+        Film renamed = TestData.film("Summary renamed");
+        renamed.setId(film.getId());
+        filmStorage.updateFilm(renamed);
+        JsonNode found = find(json("/films/search?q=renamed&count=10"), film.getId());
+        Assertions.assertEquals("Summary renamed", found.get("name").asText());
+        Assertions.assertEquals(2, found.get("likes").asInt());
+    }
+
+    @Test
+    public void filmDetailsShowFirstLikesAndPageTheRest() throws Exception {
+        Film film = filmStorage.addFilm(TestData.film("Details"));
+        List<Integer> userIds = addUsers(LIKES);
+        for (int userId : userIds) {
+            filmStorage.addLike(film.getId(), userId);
+        }
+        JsonNode details = json("/films/" + film.getId());
+        Assertions.assertEquals(LIKES, details.get("likes").asInt());
+        Assertions.assertEquals(FilmDetails.LIKES_SHOWN, details.get("likedBy").size());
+        int cursor = details.get("nextLikeCursor").asInt();
+        Assertions.assertEquals(userIds.get(FilmDetails.LIKES_SHOWN - 1), cursor);
+
+        List<Integer> rest = ids(json("/films/" + film.getId() + "/likes?after=" + cursor));
+        Assertions.assertEquals(userIds.subList(FilmDetails.LIKES_SHOWN, LIKES), rest);
+        mockMvc.perform(get("/films/{id}/likes?limit=10", film.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(userIds.get(9))));
+        mockMvc.perform(get("/films/{id}/likes?limit=0", film.getId())).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/{id}", Integer.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void userDetailsShowFirstFriendsAndPageTheRest() throws Exception {
+        List<Integer> userIds = addUsers(UserDetails.FRIENDS_SHOWN + 2);
+        int owner = userIds.getFirst();
+        List<Integer> friends = userIds.subList(1, userIds.size());
+        for (int friendId : friends) {
+            userStorage.addFriend(owner, friendId);
+        }
+        JsonNode details = json("/users/" + owner);
+        Assertions.assertEquals(friends.size(), details.get("friendCount").asInt());
+        Assertions.assertEquals(friends.subList(0, UserDetails.FRIENDS_SHOWN), ids(details.get("friendIds")));
+        int cursor = details.get("nextFriendCursor").asInt();
+        Assertions.assertEquals(friends.subList(UserDetails.FRIENDS_SHOWN, friends.size()),
+                ids(json("/users/" + owner + "/friends/ids?after=" + cursor)));
+
+        JsonNode friendList = json("/users/" + owner + "/friends");
+        Assertions.assertEquals(friends.size(), friendList.size());
+        Assertions.assertFalse(friendList.get(0).has("friends"));
+        Assertions.assertTrue(friendList.get(0).has("friendCount"));
+    }
+
+    private JsonNode json(String url) throws Exception {
+        String body = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private JsonNode find(JsonNode films, int id) {
+        for (JsonNode film : films) {
+            if (film.get("id").asInt() == id) {
+                return film;
+            }
+        }
+        throw new AssertionError("Фильм " + id + " не найден в ответе");
+    }
+
+    private List<Integer> ids(JsonNode array) {
+        List<Integer> ids = new ArrayList<>();
+        array.forEach(id -> ids.add(id.asInt()));
+        return ids;
+    }
+
+    private List<Integer> addUsers(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(userStorage.addUser(TestData.user("views" + i)).getId());
+        }
+        return ids;
+    }
+}
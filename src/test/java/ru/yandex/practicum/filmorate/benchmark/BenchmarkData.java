@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+public final class BenchmarkData {
+    public static final long SEED = 42;
+    public static final double POWER_LAW_EXPONENT = 1.1;
+    public static final int LIKES_PER_FILM = 2;
+    public static final int FRIENDS_PER_USER = 10;
+
+    private BenchmarkData() {
+    }
+
+    public static int usersFor(int films) {
+        return Math.max(100, films / 10);
+    }
+
+    public static InMemoryUserStorage users(int count) {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 0; i < count; i++) {
+            storage.addUser(newUser(i));
+        }
+        return storage;
+    }
+
+    public static InMemoryFilmStorage films(int count) {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 0; i < count; i++) {
+            storage.addFilm(newFilm(i));
+        }
+        return storage;
+    }
+
+    public static void likes(InMemoryFilmStorage films, int filmCount, int userCount, Random random) {
+        ZipfSampler filmSampler = new ZipfSampler(filmCount, POWER_LAW_EXPONENT);
+        long total = (long) filmCount * LIKES_PER_FILM;
+        for (long i = 0; i < total; i++) {
+            films.addLike(filmSampler.next(random), random.nextInt(userCount) + 1);
+        }
+    }
+
+    public static void friendships(InMemoryUserStorage users, int userCount, Random random) {
+        ZipfSampler hubSampler = new ZipfSampler(userCount, POWER_LAW_EXPONENT);
+        long total = (long) userCount * FRIENDS_PER_USER / 2;
+        for (long i = 0; i < total; i++) {
+            int userId = random.nextInt(userCount) + 1;
+            int friendId = hubSampler.next(random);
+            if (userId != friendId) {
+                users.addFriend(userId, friendId);
+            }
+        }
+    }
+
+    public static Film newFilm(int number) {
+        Film film = new Film();
+        film.setName("Film " + number);
+        film.setDescription("description " + number);
+        film.setDuration(90 + number % 60);
+        film.setReleaseDate(LocalDate.of(1950 + number % 70, 1 + number % 12, 1 + number % 28));
+        return film;
+    }
+
+    public static User newUser(int number) {
+        User user = new User();
+        user.setEmail("user" + number + "@mail.ru");
+        user.setLogin("user" + number);
+        user.setBirthday(LocalDate.of(1970 + number % 40, 1 + number % 12, 1 + number % 28));
+        return user;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.FilmSimilarities;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время полной перестройки матрицы похожести фильмов, инкрементального обновления после пакета лайков
+ * и задержка выдачи рекомендаций. Фильмы выбираются по закону Ципфа, пользователи — равномерно.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class FilmRecommendationsBenchmark {
+    private static final int BATCH_SIZE = 100_000;
+    private static final int COUNT = 10;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"10000000"})
+    public long likes;
+
+    // лайков в пакете перед инкрементальным обновлением
+    @Param({"10000"})
+    public int changes;
+
+    private InMemoryFilmStorage storage;
+    private FilmSimilarities similarities;
+    private ZipfSampler sampler;
+    private final Random random = new Random(BenchmarkData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = BenchmarkData.films(films);
+        sampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+        List<FilmLike> batch = new ArrayList<>(BATCH_SIZE);
+        for (long i = 0; i < likes; i++) {
+            batch.add(new FilmLike(sampler.next(random), random.nextInt(users) + 1));
+            if (batch.size() == BATCH_SIZE) {
+                storage.addLikes(batch);
+                batch.clear();
+            }
+        }
+        storage.addLikes(batch);
+        similarities = new FilmSimilarities(storage);
+        similarities.rebuild();
+    }
+
+    @Benchmark
+    public List<Integer> recommend() {
+        return similarities.recommend(ThreadLocalRandom.current().nextInt(users) + 1, COUNT);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void rebuild() {
+        similarities.rebuild();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void refresh(ChangedLikes changed) {
+        similarities.refresh();
+    }
+
+    /**
+     * Перед каждым обновлением добавляет пакет из {@code changes} лайков и помечает их фильмы изменёнными.
+     */
+    @State(Scope.Thread)
+    public static class ChangedLikes {
+        @Setup(Level.Invocation)
+        public void setUp(FilmRecommendationsBenchmark benchmark) {
+            List<FilmLike> batch = new ArrayList<>(benchmark.changes);
+            Set<Integer> filmIds = new HashSet<>();
+            for (int i = 0; i < benchmark.changes; i++) {
+                FilmLike like = new FilmLike(benchmark.sampler.next(benchmark.random),
+                        benchmark.random.nextInt(benchmark.users) + 1);
+                batch.add(like);
+                filmIds.add(like.getFilmId());
+            }
+            benchmark.storage.addLikes(batch);
+            benchmark.similarities.likesChanged(filmIds);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class FilmServiceBenchmark {
+    private static final int POPULAR_COUNT = 10;
+
+    @Param({"1000", "100000", "1000000"})
+    public int films;
+
+    private int users;
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+    private ZipfSampler filmSampler;
+    private final AtomicInteger filmNumber = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = BenchmarkData.usersFor(films);
+        InMemoryUserStorage userStorage = BenchmarkData.users(users);
+        filmStorage = BenchmarkData.films(films);
+        BenchmarkData.likes(filmStorage, films, users, new Random(BenchmarkData.SEED));
+        filmService = new FilmService(filmStorage, userStorage);
+        filmSampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Film> mostPopularFilms() {
+        return filmService.getMostPopularFilms(POPULAR_COUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Film> mostPopularFilmsConcurrent() {
+        return filmService.getMostPopularFilms(POPULAR_COUNT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addLike() {
+        like();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addLikeConcurrent() {
+        like();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Film addFilm() {
+        return filmStorage.addFilm(BenchmarkData.newFilm(filmNumber.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Film addFilmConcurrent() {
+        return filmStorage.addFilm(BenchmarkData.newFilm(filmNumber.incrementAndGet()));
+    }
+
+    private void like() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        filmService.addLike(filmSampler.next(random), random.nextInt(users) + 1);
+    }
+}
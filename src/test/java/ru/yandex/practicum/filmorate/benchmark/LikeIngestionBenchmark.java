@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import ru.yandex.practicum.filmorate.service.FilmSimilarities;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность лайков и отмен при синхронной записи в хранилище из потоков запросов и при
+ * асинхронном приёме со схлопыванием. Фильмы выбираются по закону Ципфа, поэтому горячие фильмы
+ * получают большую часть операций. Асинхронный приём ограничен очередями, поэтому в установившемся
+ * режиме приём идёт со скоростью применения; в конце итерации очереди дочищаются.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class LikeIngestionBenchmark {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH = 1000;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"1000000"})
+    public int users;
+
+    // 0 — по числу ядер
+    @Param({"0"})
+    public int shards;
+
+    private InMemoryFilmStorage syncStorage;
+    private LikeIngestion ingestion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        syncStorage = BenchmarkData.films(films);
+        InMemoryFilmStorage asyncStorage = BenchmarkData.films(films);
+        ingestion = new LikeIngestion(asyncStorage, new FilmSimilarities(asyncStorage),
+                new TrendingFilms(Clock.systemUTC()), shards,
+                QUEUE_CAPACITY, MAX_BATCH, Duration.ofSeconds(30), false);
+        ingestion.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        ingestion.stop();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean synchronous(Operations operations) {
+        operations.next();
+        return operations.liked
+                ? syncStorage.addLike(operations.filmId, operations.userId)
+                : syncStorage.removeLike(operations.filmId, operations.userId);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public CompletableFuture<Void> asynchronous(Operations operations) {
+        operations.next();
+        operations.last = ingestion.submit(operations.filmId, operations.userId, operations.liked);
+        return operations.last;
+    }
+
+    /**
+     * Операции одного потока: одинаковые зёрна в обоих режимах, поэтому операции и их порядок совпадают.
+     */
+    @State(Scope.Thread)
+    public static class Operations {
+        private Random random;
+        private ZipfSampler sampler;
+        private int users;
+        private int filmId;
+        private int userId;
+        private boolean liked;
+        private CompletableFuture<Void> last;
+
+        @Setup(Level.Trial)
+        public void setUp(LikeIngestionBenchmark benchmark, ThreadParams thread) {
+            random = new Random(BenchmarkData.SEED + thread.getThreadIndex());
+            sampler = new ZipfSampler(benchmark.films, BenchmarkData.POWER_LAW_EXPONENT);
+            users = benchmark.users;
+        }
+
+        @TearDown(Level.Iteration)
+        public void drain(LikeIngestionBenchmark benchmark) {
+            while (benchmark.ingestion.queued() > 0) {
+                Thread.onSpinWait();
+            }
+            if (last != null) {
+                last.join();
+            }
+        }
+
+        private void next() {
+            filmId = sampler.next(random);
+            userId = random.nextInt(users) + 1;
+            // каждая пятая операция — отмена лайка
+            liked = random.nextInt(5) > 0;
+        }
+    }
+}
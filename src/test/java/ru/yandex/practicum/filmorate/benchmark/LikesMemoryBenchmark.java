@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Память под лайки в хранилище фильмов в сравнении с прежним представлением — множеством
+ * {@code ConcurrentHashMap.newKeySet()} на фильм, а также время запроса «фильмы, которые понравились
+ * пользователю» и одиночного лайка самому популярному фильму. Память на лайк выводится счётчиком
+ * {@code bytesPerLike} у бенчмарков {@code footprint*}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class LikesMemoryBenchmark {
+    private static final int BATCH_SIZE = 100_000;
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"10000000"})
+    public long likes;
+
+    private InMemoryFilmStorage storage;
+    private int hottestFilmId;
+    private final AtomicInteger userNumber = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = sortedArrays();
+        hottestFilmId = storage.getPopularFilms(1).getFirst().getId();
+        userNumber.set(users);
+    }
+
+    @Benchmark
+    public List<Film> likedFilms() {
+        return storage.getLikedFilms(ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+
+    @Benchmark
+    public boolean likeHottestFilm() {
+        return storage.addLike(hottestFilmId, userNumber.incrementAndGet());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public InMemoryFilmStorage footprintSortedArrays(Footprint footprint) {
+        long empty = usedHeap();
+        InMemoryFilmStorage loaded = sortedArrays();
+        footprint.bytesPerLike = (double) (usedHeap() - empty) / loaded.countLikes();
+        return loaded;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Set<Integer>[] footprintConcurrentSets(Footprint footprint) {
+        long empty = usedHeap();
+        Set<Integer>[] loaded = concurrentSets();
+        long count = 0;
+        for (int i = 1; i <= films; i++) {
+            count += loaded[i].size();
+        }
+        footprint.bytesPerLike = (double) (usedHeap() - empty) / count;
+        return loaded;
+    }
+
+    private InMemoryFilmStorage sortedArrays() {
+        InMemoryFilmStorage loaded = new InMemoryFilmStorage();
+        for (int i = 0; i < films; i++) {
+            loaded.addFilm(BenchmarkData.newFilm(i));
+        }
+        Random random = new Random(BenchmarkData.SEED);
+        ZipfSampler sampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+        List<FilmLike> batch = new ArrayList<>(BATCH_SIZE);
+        for (long i = 0; i < likes; i++) {
+            batch.add(new FilmLike(sampler.next(random), random.nextInt(users) + 1));
+            if (batch.size() == BATCH_SIZE) {
+                loaded.addLikes(batch);
+                batch.clear();
+            }
+        }
+        loaded.addLikes(batch);
+        return loaded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Integer>[] concurrentSets() {
+        Set<Integer>[] sets = new Set[films + 1];
+        for (int i = 1; i <= films; i++) {
+            sets[i] = ConcurrentHashMap.newKeySet();
+        }
+        Random random = new Random(BenchmarkData.SEED);
+        ZipfSampler sampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+        for (long i = 0; i < likes; i++) {
+            sets[sampler.next(random)].add(random.nextInt(users) + 1);
+        }
+        return sets;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double bytesPerLike;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerLike = 0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Нагрузочный тест HTTP-слоя: поднимает приложение на случайном порту сначала на пуле
+ * платформенных потоков Tomcat, затем на виртуальных потоках, и сравнивает пропускную
+ * способность и p99 для {@code /films/popular} и {@code /users/{id}/friends}.
+ * Параметры передаются как {@code ключ=значение}: concurrency, requests, users, films, profile.
+ */
+public final class LoadTest {
+    private static final int BATCH_SIZE = 10_000;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = parse(args);
+        int concurrency = Integer.parseInt(params.getOrDefault("concurrency", "400"));
+        int requests = Integer.parseInt(params.getOrDefault("requests", "40000"));
+        int users = Integer.parseInt(params.getOrDefault("users", "10000"));
+        int films = Integer.parseInt(params.getOrDefault("films", "10000"));
+        String profile = params.getOrDefault("profile", "default");
+
+        System.out.printf("%-9s %-22s %10s %9s %9s%n", "mode", "endpoint", "req/s", "p50, ms", "p99, ms");
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (var context = start(profile, virtual)) {
+                seed(context.getBean(UserStorage.class), context.getBean(FilmStorage.class), users, films);
+                String base = "http://localhost:" + context.getWebServer().getPort();
+                String mode = virtual ? "virtual" : "platform";
+                run(mode, "/films/popular", concurrency, requests, n -> base + "/films/popular?count=10");
+                ZipfSampler userSampler = new ZipfSampler(users, BenchmarkData.POWER_LAW_EXPONENT);
+                run(mode, "/users/{id}/friends", concurrency, requests,
+                        n -> base + "/users/" + userSampler.next(ThreadLocalRandom.current()) + "/friends");
+            }
+        }
+    }
+
+    private static ServletWebServerApplicationContext start(String profile, boolean virtual) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=WARN"));
+        if ("db".equals(profile)) {
+            arguments.add("--spring.datasource.url=jdbc:h2:mem:load-" + virtual + ";DB_CLOSE_DELAY=-1");
+        }
+        return (ServletWebServerApplicationContext) new SpringApplicationBuilder(FilmorateApplication.class)
+                .profiles(profile)
+                .run(arguments.toArray(new String[0]));
+    }
+
+    private static void seed(UserStorage userStorage, FilmStorage filmStorage, int users, int films) {
+        Random random = new Random(BenchmarkData.SEED);
+        for (int from = 0; from < users; from += BATCH_SIZE) {
+            List<User> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(users, from + BATCH_SIZE); i++) {
+                batch.add(BenchmarkData.newUser(i));
+            }
+            userStorage.addUsers(batch);
+        }
+        for (int from = 0; from < films; from += BATCH_SIZE) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(films, from + BATCH_SIZE); i++) {
+                batch.add(BenchmarkData.newFilm(i));
+            }
+            filmStorage.addFilms(batch);
+        }
+        ZipfSampler hubSampler = new ZipfSampler(users, BenchmarkData.POWER_LAW_EXPONENT);
+        List<Friendship> friendships = new ArrayList<>();
+        for (long i = 0; i < (long) users * BenchmarkData.FRIENDS_PER_USER / 2; i++) {
+            int userId = random.nextInt(users) + 1;
+            int friendId = hubSampler.next(random);
+            if (userId != friendId) {
+                friendships.add(new Friendship(userId, friendId));
+            }
+        }
+        userStorage.addFriendships(friendships);
+        ZipfSampler filmSampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+        List<FilmLike> likes = new ArrayList<>();
+        for (long i = 0; i < (long) films * BenchmarkData.LIKES_PER_FILM; i++) {
+            likes.add(new FilmLike(filmSampler.next(random), random.nextInt(users) + 1));
+        }
+        filmStorage.addLikes(likes);
+    }
+
+    private static void run(String mode, String endpoint, int concurrency, int requests,
+                            IntFunction<String> uri) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        fire(client, concurrency, requests / 5, uri);
+        long start = System.nanoTime();
+        long[] latencies = fire(client, concurrency, requests, uri);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("%-9s %-22s %10.0f %9.2f %9.2f%n", mode, endpoint, requests / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long[] fire(HttpClient client, int concurrency, int requests,
+                               IntFunction<String> uri) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                workers.submit(() -> {
+                    for (int n = next.getAndIncrement(); n < requests; n = next.getAndIncrement()) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(uri.apply(n))).GET().build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[n] = System.nanoTime() - sent;
+                    }
+                });
+            }
+        }
+        if (failures.get() > 0) {
+            System.out.println("Неуспешных запросов: " + failures.get());
+        }
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                params.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurabilityProperties;
+import ru.yandex.practicum.filmorate.storage.journal.DurableStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время восстановления хранилищ из снимка и хвоста журнала: до первого ответа по id и до полной загрузки.
+ * Снимок и хвост готовятся один раз, а каждый запуск восстанавливается из их копии: после загрузки
+ * хранилище само пишет новый снимок и удаляет проигранный хвост.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class RecoveryBenchmark {
+    private static final int BATCH_SIZE = 100_000;
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"10000000"})
+    public long likes;
+
+    // изменений после снимка
+    @Param({"1000000"})
+    public int tail;
+
+    private Path prepared;
+    private Path directory;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private DurableStorage durableStorage;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        prepared = Files.createTempDirectory("filmorate-recovery");
+        InMemoryFilmStorage sourceFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage sourceUsers = new InMemoryUserStorage();
+        DurableStorage storage = new DurableStorage(sourceFilms, sourceUsers, properties(prepared));
+        storage.start();
+        Random random = new Random(BenchmarkData.SEED);
+        seed(sourceFilms, sourceUsers, random);
+        storage.snapshot();
+        for (int i = 0; i < tail; i++) {
+            sourceFilms.addLike(random.nextInt(films) + 1, random.nextInt(users) + 1);
+        }
+        storage.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() throws IOException {
+        directory = Files.createTempDirectory("filmorate-recovery");
+        try (Stream<Path> files = Files.list(prepared)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, directory.resolve(file.getFileName()));
+            }
+        }
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        durableStorage = new DurableStorage(filmStorage, userStorage, properties(directory));
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        durableStorage.close();
+        delete(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        delete(prepared);
+    }
+
+    @Benchmark
+    public User firstResponse() throws IOException {
+        durableStorage.start();
+        // хвост журнала меняет только лайки, поэтому пользователь отдаётся прямо из снимка
+        return userStorage.getUserOnId(users);
+    }
+
+    @Benchmark
+    public long fullRecovery() throws IOException {
+        durableStorage.start();
+        durableStorage.awaitLoaded();
+        return filmStorage.countLikes();
+    }
+
+    private DurabilityProperties properties(Path directory) {
+        DurabilityProperties properties = new DurabilityProperties();
+        properties.setDirectory(directory.toString());
+        // хвост журнала должен остаться до перезапуска
+        properties.setSnapshotOnShutdown(false);
+        return properties;
+    }
+
+    private void seed(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage, Random random) {
+        for (int from = 0; from < users; from += BATCH_SIZE) {
+            List<User> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(users, from + BATCH_SIZE); i++) {
+                batch.add(BenchmarkData.newUser(i));
+            }
+            userStorage.addUsers(batch);
+        }
+        for (int from = 0; from < films; from += BATCH_SIZE) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(films, from + BATCH_SIZE); i++) {
+                batch.add(BenchmarkData.newFilm(i));
+            }
+            filmStorage.addFilms(batch);
+        }
+        ZipfSampler hubSampler = new ZipfSampler(users, BenchmarkData.POWER_LAW_EXPONENT);
+        List<Friendship> friendships = new ArrayList<>();
+        for (long i = 0; i < (long) users * BenchmarkData.FRIENDS_PER_USER / 2; i++) {
+            int userId = random.nextInt(users) + 1;
+            int friendId = hubSampler.next(random);
+            if (userId != friendId) {
+                friendships.add(new Friendship(userId, friendId));
+            }
+            if (friendships.size() == BATCH_SIZE) {
+                userStorage.addFriendships(friendships);
+                friendships.clear();
+            }
+        }
+        userStorage.addFriendships(friendships);
+        ZipfSampler filmSampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+        List<FilmLike> batch = new ArrayList<>();
+        for (long i = 0; i < likes; i++) {
+            batch.add(new FilmLike(filmSampler.next(random), random.nextInt(users) + 1));
+            if (batch.size() == BATCH_SIZE) {
+                filmStorage.addLikes(batch);
+                batch.clear();
+            }
+        }
+        filmStorage.addLikes(batch);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.core.DefaultHttpLogWriter;
+import org.zalando.logbook.core.DefaultSink;
+import org.zalando.logbook.json.JsonHttpLogFormatter;
+import org.zalando.logbook.servlet.LogbookFilter;
+import ru.yandex.practicum.filmorate.logging.PolicyStrategy;
+import ru.yandex.practicum.filmorate.logging.RequestLogPolicy;
+import ru.yandex.practicum.filmorate.logging.RequestLoggingProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы журнала запросов на один запрос при каждой политике. Ответ — список из
+ * десяти фильмов, как у {@code /films/popular}. Журнал Logbook включён на уровне TRACE и пишет
+ * в пустой аппендер, поэтому измеряется буферизация и форматирование без ввода-вывода.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class RequestLoggingBenchmark {
+    private static final double SAMPLE_RATE = 0.01;
+
+    @Param({"NONE", "OFF", "ERRORS", "SAMPLED", "SAMPLED_WITH_BODY", "FULL"})
+    public String policy;
+
+    @Param({"200", "404"})
+    public int status;
+
+    private final MockServletContext servletContext = new MockServletContext();
+    private LogbookFilter filter;
+    private FilterChain chain;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Film film = BenchmarkData.newFilm(i);
+            film.setId(i + 1);
+            films.add(film);
+        }
+        byte[] body = new ObjectMapper().findAndRegisterModules().writeValueAsBytes(films);
+        chain = (request, response) -> {
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType("application/json");
+            response.getOutputStream().write(body);
+        };
+        if (!"NONE".equals(policy)) {
+            RequestLoggingProperties properties = new RequestLoggingProperties();
+            properties.setSampleRate(SAMPLE_RATE);
+            properties.setDefaultPolicy(RequestLogPolicy.valueOf(policy));
+            Logbook logbook = Logbook.builder()
+                    .strategy(new PolicyStrategy(properties))
+                    .sink(new DefaultSink(new JsonHttpLogFormatter(), new DefaultHttpLogWriter()))
+                    .build();
+            filter = new LogbookFilter(logbook);
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse popularFilmsRequest() throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/films/popular");
+        request.setQueryString("count=10");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (filter == null) {
+            chain.doFilter(request, response);
+        } else {
+            filter.doFilter(request, response, chain);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка поиска фильмов по обратному индексу в сравнении с обходом всех фильмов с приведением текста
+ * к нижнему регистру, а также время индексации и перестройки индексов. Названия и описания собираются
+ * из русских и английских слов, частоты слов распределены по закону Ципфа. Запросы — одно-два слова,
+ * последнее обрезано до префикса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class SearchBenchmark {
+    private static final String[] RU_SYLLABLES = {"ка", "ро", "ми", "ле", "то", "на", "ва", "го", "ри", "до",
+            "жи", "зу", "пе", "ос", "ён", "ти"};
+    private static final String[] EN_SYLLABLES = {"ka", "ro", "mi", "le", "to", "na", "va", "go", "ri", "do",
+            "st", "er", "th", "an", "ou", "ix"};
+    private static final int NAME_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 12;
+    private static final int QUERIES = 100_000;
+    private static final int RESULTS = 10;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000000"})
+    public int films;
+
+    @Param({"100000"})
+    public int words;
+
+    private String[] vocabulary;
+    private ZipfSampler sampler;
+    private InMemoryFilmStorage storage;
+    private List<Film> all;
+    private final String[] workload = new String[QUERIES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        vocabulary = vocabulary(words, random);
+        sampler = new ZipfSampler(words, BenchmarkData.POWER_LAW_EXPONENT);
+        storage = new InMemoryFilmStorage();
+        addFilms(storage, newFilms(random));
+        BenchmarkData.likes(storage, films, BenchmarkData.usersFor(films), random);
+        storage.rebuildIndexes();
+        all = storage.getAllFilms();
+        for (int i = 0; i < QUERIES; i++) {
+            workload[i] = query(random);
+        }
+    }
+
+    @Benchmark
+    public List<Film> search() {
+        return storage.searchFilms(workload[ThreadLocalRandom.current().nextInt(QUERIES)], RESULTS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> scan() {
+        return scan(all, workload[ThreadLocalRandom.current().nextInt(QUERIES)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void rebuildIndexes() {
+        storage.rebuildIndexes();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public InMemoryFilmStorage addFilmsWithIndexing(NewFilms newFilms) {
+        InMemoryFilmStorage indexed = new InMemoryFilmStorage();
+        addFilms(indexed, newFilms.films);
+        return indexed;
+    }
+
+    @State(Scope.Thread)
+    public static class NewFilms {
+        private List<Film> films;
+
+        @Setup(Level.Invocation)
+        public void setUp(SearchBenchmark benchmark) {
+            films = benchmark.newFilms(new Random(BenchmarkData.SEED));
+        }
+    }
+
+    private List<Film> newFilms(Random random) {
+        List<Film> result = new ArrayList<>(films);
+        for (int i = 0; i < films; i++) {
+            Film film = BenchmarkData.newFilm(i);
+            film.setName(text(random, 1 + random.nextInt(NAME_WORDS)));
+            film.setDescription(text(random, DESCRIPTION_WORDS));
+            result.add(film);
+        }
+        return result;
+    }
+
+    private static void addFilms(InMemoryFilmStorage storage, List<Film> films) {
+        for (int from = 0; from < films.size(); from += BATCH_SIZE) {
+            storage.addFilms(films.subList(from, Math.min(films.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    /**
+     * Наивный поиск: каждый фильм приводится к нижнему регистру и проверяется на вхождение слов запроса.
+     */
+    private static List<Film> scan(List<Film> films, String query) {
+        String[] tokens = query.toLowerCase(Locale.ROOT).split(" ");
+        List<Film> found = new ArrayList<>();
+        for (Film film : films) {
+            String text = (film.getName() + " " + film.getDescription()).toLowerCase(Locale.ROOT);
+            boolean matches = true;
+            for (String token : tokens) {
+                matches &= text.contains(token);
+            }
+            if (matches) {
+                found.add(film);
+            }
+        }
+        found.sort((a, b) -> Integer.compare(b.getLikes(), a.getLikes()));
+        return found.subList(0, Math.min(RESULTS, found.size()));
+    }
+
+    private static String[] vocabulary(int size, Random random) {
+        String[] vocabulary = new String[size];
+        for (int i = 0; i < size; i++) {
+            String[] syllables = random.nextBoolean() ? RU_SYLLABLES : EN_SYLLABLES;
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+
+    private String text(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            String word = vocabulary[sampler.next(random) - 1];
+            text.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return text.toString();
+    }
+
+    private String query(Random random) {
+        String last = vocabulary[sampler.next(random) - 1];
+        String prefix = last.substring(0, Math.min(last.length(), 3 + random.nextInt(3)));
+        if (random.nextBoolean()) {
+            return prefix;
+        }
+        return vocabulary[sampler.next(random) - 1] + " " + prefix;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class UserServiceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private InMemoryUserStorage userStorage;
+    private UserService userService;
+    private ZipfSampler userSampler;
+    // без кэша: каждый вызов считает рекомендации заново
+    private FriendRecommendations recommendations;
+    private FriendRecommendations uncappedRecommendations;
+    private final AtomicInteger userNumber = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStorage = BenchmarkData.users(users);
+        BenchmarkData.friendships(userStorage, users, new Random(BenchmarkData.SEED));
+        userService = new UserService(userStorage);
+        userSampler = new ZipfSampler(users, BenchmarkData.POWER_LAW_EXPONENT);
+        userNumber.set(users);
+        recommendations = new FriendRecommendations(userStorage, FriendRecommendations.DEFAULT_MAX_DEGREE, 0);
+        uncappedRecommendations = new FriendRecommendations(userStorage, Integer.MAX_VALUE, 0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<User> mutualFriends() {
+        return mutual();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<User> mutualFriendsConcurrent() {
+        return mutual();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<User> friendList() {
+        return userService.getUsersFriendList(userSampler.next(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<User> friendListConcurrent() {
+        return userService.getUsersFriendList(userSampler.next(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<FriendRecommendations.Recommendation> recommendations() {
+        return recommendations.recommend(userSampler.next(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<FriendRecommendations.Recommendation> recommendationsWithoutDegreeCap() {
+        return uncappedRecommendations.recommend(userSampler.next(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public User addUser() {
+        return userStorage.addUser(BenchmarkData.newUser(userNumber.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User addUserConcurrent() {
+        return userStorage.addUser(BenchmarkData.newUser(userNumber.incrementAndGet()));
+    }
+
+    private List<User> mutual() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.getMutualFriends(userSampler.next(random), userSampler.next(random));
+    }
+}
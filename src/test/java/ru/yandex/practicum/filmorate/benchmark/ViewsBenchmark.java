@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.controller.FilmJsonFragments;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время сериализации ответа «популярные фильмы» целыми фильмами, сводками и сводками из кэша
+ * JSON-фрагментов; размер ответа выводится счётчиком {@code responseBytes}. Самый популярный фильм
+ * получает {@code hot} лайков, остальные лайки распределены по закону Ципфа.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class ViewsBenchmark {
+    private static final int BATCH_SIZE = 100_000;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"5000000"})
+    public long likes;
+
+    @Param({"500000"})
+    public int hot;
+
+    @Param({"100"})
+    public int count;
+
+    private List<Film> popular;
+    private final ObjectMapper plain = new ObjectMapper().findAndRegisterModules();
+    private final ObjectMapper fragments = new ObjectMapper().findAndRegisterModules()
+            .registerModule(new FilmJsonFragments());
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage storage = BenchmarkData.films(films);
+        Random random = new Random(BenchmarkData.SEED);
+        ZipfSampler sampler = new ZipfSampler(films, BenchmarkData.POWER_LAW_EXPONENT);
+        List<FilmLike> batch = new ArrayList<>(BATCH_SIZE);
+        for (long i = 0; i < likes + hot; i++) {
+            // первые hot лайков ставятся самому популярному фильму от разных пользователей
+            batch.add(i < hot ? new FilmLike(1, (int) i + 1)
+                    : new FilmLike(sampler.next(random), random.nextInt(10_000_000) + 1));
+            if (batch.size() == BATCH_SIZE) {
+                storage.addLikes(batch);
+                batch.clear();
+            }
+        }
+        storage.addLikes(batch);
+        popular = storage.getPopularFilms(count);
+    }
+
+    @Benchmark
+    public byte[] fullFilms(ResponseSize size) throws JsonProcessingException {
+        return size.record(plain.writeValueAsBytes(popular));
+    }
+
+    @Benchmark
+    public byte[] summaries(ResponseSize size) throws JsonProcessingException {
+        return size.record(plain.writeValueAsBytes(FilmSummary.of(popular)));
+    }
+
+    @Benchmark
+    public byte[] summariesFromFragments(ResponseSize size) throws JsonProcessingException {
+        return size.record(fragments.writeValueAsBytes(FilmSummary.of(popular)));
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+
+        private byte[] record(byte[] response) {
+            responseBytes = response.length;
+            return response;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Выбирает номера 1..size по закону Ципфа: несколько элементов получают большую часть обращений,
+ * как популярные фильмы и пользователи-«хабы» в реальных данных.
+ */
+public class ZipfSampler {
+    private final double[] cumulative;
+
+    public ZipfSampler(int size, double exponent) {
+        cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public int next(Random random) {
+        int position = Arrays.binarySearch(cumulative, random.nextDouble());
+        return (position >= 0 ? position : -position - 1) + 1;
+    }
+}